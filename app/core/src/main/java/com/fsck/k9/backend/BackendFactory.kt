@@ -7,6 +7,12 @@ import com.fsck.k9.mail.ServerSettings
 interface BackendFactory {
     fun createBackend(account: Account): Backend
 
+    /**
+     * Deletes data the backend stored for [account] outside of the account's database. Called when the account is
+     * removed.
+     */
+    fun deleteBackendData(account: Account) = Unit
+
     fun decodeStoreUri(storeUri: String): ServerSettings
     fun createStoreUri(serverSettings: ServerSettings): String
 
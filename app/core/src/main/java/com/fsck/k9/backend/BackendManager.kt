@@ -28,6 +28,14 @@ class BackendManager(private val backendFactories: Map<String, BackendFactory>)
         synchronized(backendCache) {
             backendCache.remove(account.uuid)
         }
+
+        val storeUri = account.storeUri
+        backendFactories.forEach { (storeUriPrefix, backendFactory) ->
+            if (storeUri.startsWith(storeUriPrefix)) {
+                backendFactory.deleteBackendData(account)
+                return
+            }
+        }
     }
 
     private fun createBackend(account: Account): Backend {
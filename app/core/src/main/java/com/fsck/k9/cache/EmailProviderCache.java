@@ -1,5 +1,6 @@
 package com.fsck.k9.cache;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -40,118 +41,161 @@ public class EmailProviderCache {
 
 
     private String mAccountUuid;
-    private final Map<Long, Map<String, String>> mMessageCache = new HashMap<>();
-    private final Map<Long, Map<String, String>> mThreadCache = new HashMap<>();
-    private final Map<Long, Long> mHiddenMessageCache = new HashMap<>();
+    private final Object mWriteLock = new Object();
+    private volatile Overlay mOverlay = Overlay.EMPTY;
 
 
     private EmailProviderCache(String accountUuid) {
         mAccountUuid = accountUuid;
     }
 
+    /**
+     * Returns the current state of the cache.
+     *
+     * <p>
+     * The returned object is never modified, so it can be read without holding a lock. Every change to the cache
+     * publishes a new {@link Overlay} with a higher {@link Overlay#version}.
+     * </p>
+     */
+    Overlay getOverlay() {
+        return mOverlay;
+    }
+
     public String getValueForMessage(Long messageId, String columnName) {
-        synchronized (mMessageCache) {
-            Map<String, String> map = mMessageCache.get(messageId);
-            return (map == null) ? null : map.get(columnName);
-        }
+        return mOverlay.getValueForMessage(messageId, columnName);
     }
 
     public String getValueForThread(Long threadRootId, String columnName) {
-        synchronized (mThreadCache) {
-            Map<String, String> map = mThreadCache.get(threadRootId);
-            return (map == null) ? null : map.get(columnName);
-        }
+        return mOverlay.getValueForThread(threadRootId, columnName);
     }
 
     public void setValueForMessages(List<Long> messageIds, String columnName, String value) {
-        synchronized (mMessageCache) {
-            for (Long messageId : messageIds) {
-                Map<String, String> map = mMessageCache.get(messageId);
-                if (map == null) {
-                    map = new HashMap<>();
-                    mMessageCache.put(messageId, map);
-                }
-                map.put(columnName, value);
-            }
+        synchronized (mWriteLock) {
+            Overlay overlay = mOverlay;
+            Map<Long, Map<String, String>> messageValues =
+                    setValues(overlay.messageValues, messageIds, columnName, value);
+            mOverlay = new Overlay(overlay.version + 1, messageValues, overlay.threadValues,
+                    overlay.hiddenMessages);
         }
 
         notifyChange();
     }
 
     public void setValueForThreads(List<Long> threadRootIds, String columnName, String value) {
-        synchronized (mThreadCache) {
-            for (Long threadRootId : threadRootIds) {
-                Map<String, String> map = mThreadCache.get(threadRootId);
-                if (map == null) {
-                    map = new HashMap<>();
-                    mThreadCache.put(threadRootId, map);
-                }
-                map.put(columnName, value);
-            }
+        synchronized (mWriteLock) {
+            Overlay overlay = mOverlay;
+            Map<Long, Map<String, String>> threadValues =
+                    setValues(overlay.threadValues, threadRootIds, columnName, value);
+            mOverlay = new Overlay(overlay.version + 1, overlay.messageValues, threadValues,
+                    overlay.hiddenMessages);
         }
 
         notifyChange();
     }
 
     public void removeValueForMessages(List<Long> messageIds, String columnName) {
-        synchronized (mMessageCache) {
-            for (Long messageId : messageIds) {
-                Map<String, String> map = mMessageCache.get(messageId);
-                if (map != null) {
-                    map.remove(columnName);
-                    if (map.isEmpty()) {
-                        mMessageCache.remove(messageId);
-                    }
-                }
+        synchronized (mWriteLock) {
+            Overlay overlay = mOverlay;
+            Map<Long, Map<String, String>> messageValues = removeValues(overlay.messageValues, messageIds, columnName);
+            if (messageValues != overlay.messageValues) {
+                mOverlay = new Overlay(overlay.version + 1, messageValues, overlay.threadValues,
+                        overlay.hiddenMessages);
             }
         }
     }
 
     public void removeValueForThreads(List<Long> threadRootIds, String columnName) {
-        synchronized (mThreadCache) {
-            for (Long threadRootId : threadRootIds) {
-                Map<String, String> map = mThreadCache.get(threadRootId);
-                if (map != null) {
-                    map.remove(columnName);
-                    if (map.isEmpty()) {
-                        mThreadCache.remove(threadRootId);
-                    }
-                }
+        synchronized (mWriteLock) {
+            Overlay overlay = mOverlay;
+            Map<Long, Map<String, String>> threadValues = removeValues(overlay.threadValues, threadRootIds, columnName);
+            if (threadValues != overlay.threadValues) {
+                mOverlay = new Overlay(overlay.version + 1, overlay.messageValues, threadValues,
+                        overlay.hiddenMessages);
             }
         }
     }
 
     public void hideMessages(List<LocalMessage> messages) {
-        synchronized (mHiddenMessageCache) {
+        synchronized (mWriteLock) {
+            Overlay overlay = mOverlay;
+            Map<Long, Long> hiddenMessages = new HashMap<>(overlay.hiddenMessages);
             for (LocalMessage message : messages) {
                 long messageId = message.getDatabaseId();
-                mHiddenMessageCache.put(messageId, message.getFolder().getDatabaseId());
+                hiddenMessages.put(messageId, message.getFolder().getDatabaseId());
             }
+            mOverlay = new Overlay(overlay.version + 1, overlay.messageValues, overlay.threadValues,
+                    hiddenMessages);
         }
 
         notifyChange();
     }
 
     public boolean isMessageHidden(Long messageId, long folderId) {
-        synchronized (mHiddenMessageCache) {
-            Long hiddenInFolder = mHiddenMessageCache.get(messageId);
-            return (hiddenInFolder != null && hiddenInFolder == folderId);
-        }
+        return mOverlay.isMessageHidden(messageId, folderId);
     }
 
     public void unhideMessages(List<? extends Message> messages) {
-        synchronized (mHiddenMessageCache) {
+        synchronized (mWriteLock) {
+            Overlay overlay = mOverlay;
+            if (overlay.hiddenMessages.isEmpty()) {
+                return;
+            }
+
+            Map<Long, Long> hiddenMessages = new HashMap<>(overlay.hiddenMessages);
             for (Message message : messages) {
                 LocalMessage localMessage = (LocalMessage) message;
                 long messageId = localMessage.getDatabaseId();
                 long folderId = localMessage.getFolder().getDatabaseId();
-                Long hiddenInFolder = mHiddenMessageCache.get(messageId);
+                Long hiddenInFolder = hiddenMessages.get(messageId);
 
                 if (hiddenInFolder != null && hiddenInFolder == folderId) {
-                    mHiddenMessageCache.remove(messageId);
+                    hiddenMessages.remove(messageId);
                 }
             }
+            mOverlay = new Overlay(overlay.version + 1, overlay.messageValues, overlay.threadValues,
+                    hiddenMessages);
+        }
+    }
+
+    private static Map<Long, Map<String, String>> setValues(Map<Long, Map<String, String>> values, List<Long> ids,
+            String columnName, String value) {
+        Map<Long, Map<String, String>> newValues = new HashMap<>(values);
+        for (Long id : ids) {
+            Map<String, String> oldColumnValues = newValues.get(id);
+            Map<String, String> columnValues = (oldColumnValues == null) ?
+                    new HashMap<String, String>() : new HashMap<>(oldColumnValues);
+            columnValues.put(columnName, value);
+            newValues.put(id, columnValues);
         }
+        return newValues;
+    }
+
+    /**
+     * Returns a copy of {@code values} without the entries for {@code columnName}, or {@code values} itself if there
+     * was nothing to remove.
+     */
+    private static Map<Long, Map<String, String>> removeValues(Map<Long, Map<String, String>> values, List<Long> ids,
+            String columnName) {
+        Map<Long, Map<String, String>> newValues = null;
+        for (Long id : ids) {
+            Map<String, String> oldColumnValues = values.get(id);
+            if (oldColumnValues == null || !oldColumnValues.containsKey(columnName)) {
+                continue;
+            }
+
+            if (newValues == null) {
+                newValues = new HashMap<>(values);
+            }
+
+            if (oldColumnValues.size() == 1) {
+                newValues.remove(id);
+            } else {
+                Map<String, String> columnValues = new HashMap<>(oldColumnValues);
+                columnValues.remove(columnName);
+                newValues.put(id, columnValues);
+            }
+        }
+        return (newValues == null) ? values : newValues;
     }
 
     /**
@@ -172,4 +216,50 @@ public class EmailProviderCache {
                 "/messages");
         sContext.getContentResolver().notifyChange(uri, null);
     }
+
+
+    /**
+     * Immutable state of the cache.
+     */
+    static class Overlay {
+        static final Overlay EMPTY = new Overlay(0, Collections.<Long, Map<String, String>>emptyMap(),
+                Collections.<Long, Map<String, String>>emptyMap(), Collections.<Long, Long>emptyMap());
+
+        final long version;
+        private final Map<Long, Map<String, String>> messageValues;
+        private final Map<Long, Map<String, String>> threadValues;
+        private final Map<Long, Long> hiddenMessages;
+
+
+        private Overlay(long version, Map<Long, Map<String, String>> messageValues,
+                Map<Long, Map<String, String>> threadValues, Map<Long, Long> hiddenMessages) {
+            this.version = version;
+            this.messageValues = messageValues;
+            this.threadValues = threadValues;
+            this.hiddenMessages = hiddenMessages;
+        }
+
+        boolean hasValues() {
+            return !messageValues.isEmpty() || !threadValues.isEmpty();
+        }
+
+        boolean hasHiddenMessages() {
+            return !hiddenMessages.isEmpty();
+        }
+
+        String getValueForMessage(long messageId, String columnName) {
+            Map<String, String> map = messageValues.get(messageId);
+            return (map == null) ? null : map.get(columnName);
+        }
+
+        String getValueForThread(long threadRootId, String columnName) {
+            Map<String, String> map = threadValues.get(threadRootId);
+            return (map == null) ? null : map.get(columnName);
+        }
+
+        boolean isMessageHidden(long messageId, long folderId) {
+            Long hiddenInFolder = hiddenMessages.get(messageId);
+            return (hiddenInFolder != null && hiddenInFolder == folderId);
+        }
+    }
 }
@@ -43,11 +43,14 @@ public class EmailProviderCacheCursor extends CursorWrapper {
                     ", " + ThreadColumns.ROOT);
         }
 
-        while (cursor.moveToNext()) {
-            long messageId = cursor.getLong(mMessageIdColumn);
-            long folderId = cursor.getLong(mFolderIdColumn);
-            if (mCache.isMessageHidden(messageId, folderId)) {
-                mHiddenRows.add(cursor.getPosition());
+        EmailProviderCache.Overlay overlay = mCache.getOverlay();
+        if (overlay.hasHiddenMessages()) {
+            while (cursor.moveToNext()) {
+                long messageId = cursor.getLong(mMessageIdColumn);
+                long folderId = cursor.getLong(mFolderIdColumn);
+                if (overlay.isMessageHidden(messageId, folderId)) {
+                    mHiddenRows.add(cursor.getPosition());
+                }
             }
         }
 
@@ -58,17 +61,23 @@ public class EmailProviderCacheCursor extends CursorWrapper {
 
     @Override
     public int getInt(int columnIndex) {
+        // Reading the overlay doesn't require a lock. Most of the time it's empty and the database value is returned.
+        EmailProviderCache.Overlay overlay = mCache.getOverlay();
+        if (!overlay.hasValues()) {
+            return super.getInt(columnIndex);
+        }
+
         long messageId = getLong(mMessageIdColumn);
         long threadRootId = getLong(mThreadRootColumn);
 
         String columnName = getColumnName(columnIndex);
-        String value = mCache.getValueForMessage(messageId, columnName);
+        String value = overlay.getValueForMessage(messageId, columnName);
 
         if (value != null) {
             return Integer.parseInt(value);
         }
 
-        value = mCache.getValueForThread(threadRootId, columnName);
+        value = overlay.getValueForThread(threadRootId, columnName);
         if (value != null) {
             return Integer.parseInt(value);
         }
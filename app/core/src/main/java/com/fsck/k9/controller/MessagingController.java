@@ -9,15 +9,21 @@ import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -55,6 +61,7 @@ import com.fsck.k9.controller.MessagingControllerCommands.PendingExpunge;
 import com.fsck.k9.controller.MessagingControllerCommands.PendingMarkAllAsRead;
 import com.fsck.k9.controller.MessagingControllerCommands.PendingMoveOrCopy;
 import com.fsck.k9.controller.MessagingControllerCommands.PendingSetFlag;
+import com.fsck.k9.controller.PendingCommandCoalescer.CoalescedCommand;
 import com.fsck.k9.controller.ProgressBodyFactory.ProgressListener;
 import com.fsck.k9.helper.Contacts;
 import com.fsck.k9.mail.Address;
@@ -66,7 +73,6 @@ import com.fsck.k9.mail.Flag;
 import com.fsck.k9.mail.Folder;
 import com.fsck.k9.mail.Message;
 import com.fsck.k9.mail.Message.RecipientType;
-import com.fsck.k9.mail.MessageRetrievalListener;
 import com.fsck.k9.mail.MessagingException;
 import com.fsck.k9.mail.Part;
 import com.fsck.k9.mail.PushReceiver;
@@ -115,6 +121,12 @@ public class MessagingController {
 
     public static final Set<Flag> SYNC_FLAGS = EnumSet.of(Flag.SEEN, Flag.FLAGGED, Flag.ANSWERED, Flag.FORWARDED);
 
+    /**
+     * The maximum number of local search results passed to {@link MessagingListener#listLocalMessagesAddMessages}
+     * at once.
+     */
+    private static final int LOCAL_SEARCH_PAGE_SIZE = 50;
+
 
     private final Context context;
     private final Contacts contacts;
@@ -129,6 +141,7 @@ public class MessagingController {
     private final Set<MessagingListener> listeners = new CopyOnWriteArraySet<>();
     private final ConcurrentHashMap<Account, Pusher> pushers = new ConcurrentHashMap<>();
     private final ExecutorService threadPool = Executors.newCachedThreadPool();
+    private final ExecutorService folderSyncExecutor = Executors.newCachedThreadPool();
     private final MemorizingMessagingListener memorizingMessagingListener = new MemorizingMessagingListener();
     private final UnreadMessageCountProvider unreadMessageCountProvider;
     private final CoreResourceProvider resourceProvider;
@@ -476,9 +489,17 @@ public class MessagingController {
 
     /**
      * Find all messages in any local account which match the query 'query'
+     *
+     * <p>
+     * Results are passed to the listener per account, sorted by date within each account. They are not merged across
+     * accounts. Callers that need a single ordered list have to sort the results themselves.
+     * </p>
+     *
+     * @return A {@link Future} that can be used to cancel the search, e.g. when the query changed, or to wait for it
+     *         to complete.
      */
-    public void searchLocalMessages(final LocalSearch search, final MessagingListener listener) {
-        threadPool.execute(new Runnable() {
+    public Future<?> searchLocalMessages(final LocalSearch search, final MessagingListener listener) {
+        return threadPool.submit(new Runnable() {
             @Override
             public void run() {
                 searchLocalMessagesSynchronous(search, listener);
@@ -492,50 +513,88 @@ public class MessagingController {
         List<Account> accounts = Preferences.getPreferences(context).getAccounts();
         boolean allAccounts = uuidSet.contains(SearchSpecification.ALL_ACCOUNTS);
 
-        // for every account we want to search do the query in the localstore
-        for (final Account account : accounts) {
+        long startTime = SystemClock.elapsedRealtime();
 
+        // Query the local stores of all accounts we want to search in parallel
+        Map<Account, Future<List<LocalMessage>>> searchResults = new LinkedHashMap<>();
+        for (final Account account : accounts) {
             if (!allAccounts && !uuidSet.contains(account.getUuid())) {
                 continue;
             }
 
-            // Collecting statistics of the search result
-            MessageRetrievalListener<LocalMessage> retrievalListener = new MessageRetrievalListener<LocalMessage>() {
+            Future<List<LocalMessage>> searchResult = threadPool.submit(new Callable<List<LocalMessage>>() {
                 @Override
-                public void messageStarted(String message, int number, int ofTotal) {
+                public List<LocalMessage> call() throws Exception {
+                    LocalStore localStore = localStoreProvider.getInstance(account);
+                    return localStore.searchForMessages(null, search);
                 }
+            });
+            searchResults.put(account, searchResult);
+        }
 
-                @Override
-                public void messagesFinished(int number) {
+        long firstResultTime = -1;
+        int resultCount = 0;
+        try {
+            for (Entry<Account, Future<List<LocalMessage>>> entry : searchResults.entrySet()) {
+                Account account = entry.getKey();
+
+                List<LocalMessage> messages;
+                try {
+                    messages = entry.getValue().get();
+                } catch (ExecutionException e) {
+                    Timber.e(e.getCause(), "Error searching messages of account %s", account.getDescription());
+                    continue;
                 }
 
-                @Override
-                public void messageFinished(LocalMessage message, int number, int ofTotal) {
-                    if (!isMessageSuppressed(message)) {
-                        List<LocalMessage> messages = new ArrayList<>();
+                List<LocalMessage> page = new ArrayList<>(Math.min(messages.size(), LOCAL_SEARCH_PAGE_SIZE));
+                for (LocalMessage message : messages) {
+                    if (isMessageSuppressed(message)) {
+                        continue;
+                    }
 
-                        messages.add(message);
-                        if (listener != null) {
-                            listener.listLocalMessagesAddMessages(account, null, messages);
-                        }
+                    page.add(message);
+                    if (page.size() == LOCAL_SEARCH_PAGE_SIZE) {
+                        firstResultTime = deliverLocalSearchResults(account, page, listener, firstResultTime);
+                        resultCount += page.size();
+                        page = new ArrayList<>(LOCAL_SEARCH_PAGE_SIZE);
                     }
                 }
-            };
 
-            // build and do the query in the localstore
-            try {
-                LocalStore localStore = localStoreProvider.getInstance(account);
-                localStore.searchForMessages(retrievalListener, search);
-            } catch (Exception e) {
-                Timber.e(e);
+                if (!page.isEmpty()) {
+                    firstResultTime = deliverLocalSearchResults(account, page, listener, firstResultTime);
+                    resultCount += page.size();
+                }
             }
+        } catch (InterruptedException e) {
+            Timber.d("Local search was cancelled");
+            for (Future<List<LocalMessage>> searchResult : searchResults.values()) {
+                searchResult.cancel(true);
+            }
+            return;
         }
 
+        Timber.d("Local search in %d account(s) found %d message(s); first results after %d ms, done after %d ms",
+                searchResults.size(), resultCount, firstResultTime < 0 ? -1 : firstResultTime - startTime,
+                SystemClock.elapsedRealtime() - startTime);
+
         if (listener != null) {
             listener.listLocalMessagesFinished();
         }
     }
 
+    private long deliverLocalSearchResults(Account account, List<LocalMessage> messages, MessagingListener listener,
+            long firstResultTime) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+
+        if (listener != null) {
+            listener.listLocalMessagesAddMessages(account, null, messages);
+        }
+
+        return firstResultTime < 0 ? SystemClock.elapsedRealtime() : firstResultTime;
+    }
+
     public Future<?> searchRemoteMessages(final String acctUuid, final String folderServerId, final String query,
             final Set<Flag> requiredFlags, final Set<Flag> forbiddenFlags, final MessagingListener listener) {
         Timber.i("searchRemoteMessages (acct = %s, folderServerId = %s, query = %s)", acctUuid, folderServerId, query);
@@ -696,18 +755,20 @@ public class MessagingController {
     void synchronizeMailboxSynchronous(final Account account, final String folder, final MessagingListener listener,
             Folder providedRemoteFolder) {
         Backend remoteMessageStore = getBackend(account);
-        syncFolder(account, folder, listener, providedRemoteFolder, remoteMessageStore);
+        syncFolder(account, folder, listener, providedRemoteFolder, remoteMessageStore, true);
     }
 
     private void syncFolder(Account account, String folder, MessagingListener listener, Folder providedRemoteFolder,
-            Backend remoteMessageStore) {
+            Backend remoteMessageStore, boolean processPendingCommands) {
 
         Exception commandException = null;
-        try {
-            processPendingCommandsSynchronous(account);
-        } catch (Exception e) {
-            Timber.e(e, "Failure processing command, but allow message sync attempt");
-            commandException = e;
+        if (processPendingCommands) {
+            try {
+                processPendingCommandsSynchronous(account);
+            } catch (Exception e) {
+                Timber.e(e, "Failure processing command, but allow message sync attempt");
+                commandException = e;
+            }
         }
 
         // We don't ever sync the Outbox
@@ -806,7 +867,8 @@ public class MessagingController {
 
         PendingCommand processingCommand = null;
         try {
-            for (PendingCommand command : commands) {
+            for (CoalescedCommand coalescedCommand : PendingCommandCoalescer.coalesce(commands)) {
+                PendingCommand command = coalescedCommand.command;
                 processingCommand = command;
                 Timber.d("Processing pending command '%s'", command);
 
@@ -821,18 +883,18 @@ public class MessagingController {
                 try {
                     command.execute(this, account);
 
-                    localStore.removePendingCommand(command);
+                    removePendingCommands(localStore, coalescedCommand.originalCommands);
 
                     Timber.d("Done processing pending command '%s'", command);
                 } catch (MessagingException me) {
                     if (me.isPermanentFailure()) {
                         Timber.e("Failure of command '%s' was permanent, removing command from queue", command);
-                        localStore.removePendingCommand(processingCommand);
+                        removePendingCommands(localStore, coalescedCommand.originalCommands);
                     } else {
                         throw me;
                     }
                 } finally {
-                    progress++;
+                    progress += coalescedCommand.originalCommands.size();
                     for (MessagingListener l : getListeners()) {
                         l.synchronizeMailboxProgress(account, null, progress, todo);
                         l.pendingCommandCompleted(account, command.getCommandName());
@@ -850,6 +912,13 @@ public class MessagingController {
         }
     }
 
+    private void removePendingCommands(LocalStore localStore, List<PendingCommand> commands)
+            throws MessagingException {
+        for (PendingCommand command : commands) {
+            localStore.removePendingCommand(command);
+        }
+    }
+
     /**
      * Process a pending append message command. This command uploads a local message to the
      * server, first checking to be sure that the server message is not newer than
@@ -988,21 +1057,20 @@ public class MessagingController {
          */
         if (newUidMap != null && remoteUidMap != null && !remoteUidMap.isEmpty()) {
             Timber.i("processingPendingMoveOrCopy: changing local uids of %d messages", remoteUidMap.size());
+            Map<String, String> localUidMapping = new HashMap<>(remoteUidMap.size());
             for (Entry<String, String> entry : remoteUidMap.entrySet()) {
                 String remoteSrcUid = entry.getKey();
                 String newUid = entry.getValue();
                 String localDestUid = newUidMap.get(remoteSrcUid);
-                if (localDestUid == null) {
-                    continue;
+                if (localDestUid != null) {
+                    localUidMapping.put(localDestUid, newUid);
                 }
+            }
 
-                Message localDestMessage = localDestFolder.getMessage(localDestUid);
-                if (localDestMessage != null) {
-                    localDestMessage.setUid(newUid);
-                    localDestFolder.changeUid((LocalMessage) localDestMessage);
-                    for (MessagingListener l : getListeners()) {
-                        l.messageUidChanged(account, destFolder, localDestUid, newUid);
-                    }
+            Map<String, String> changedUids = localDestFolder.changeUids(localUidMapping);
+            for (Entry<String, String> entry : changedUids.entrySet()) {
+                for (MessagingListener l : getListeners()) {
+                    l.messageUidChanged(account, destFolder, entry.getKey(), entry.getValue());
                 }
             }
         }
@@ -1598,89 +1666,95 @@ public class MessagingController {
 
             Backend backend = getBackend(account);
 
-            for (LocalMessage message : localMessages) {
-                if (message.isSet(Flag.DELETED)) {
-                    //FIXME: When uploading a message to the remote Sent folder the move code creates a placeholder
-                    // message in the Outbox. This code gets rid of these messages. It'd be preferable if the
-                    // placeholder message was never created, though.
-                    message.destroy();
-                    continue;
-                }
-                try {
-                    long messageId = message.getDatabaseId();
-                    OutboxState outboxState = outboxStateRepository.getOutboxState(messageId);
-
-                    if (outboxState.getSendState() != SendState.READY) {
-                        Timber.v("Skipping sending message " + message.getUid());
-                        notificationController.showSendFailedNotification(account,
-                                new MessagingException(message.getSubject()));
+            // Send all messages using the same connection to the server
+            backend.beginSendSession();
+            try {
+                for (LocalMessage message : localMessages) {
+                    if (message.isSet(Flag.DELETED)) {
+                        //FIXME: When uploading a message to the remote Sent folder the move code creates a placeholder
+                        // message in the Outbox. This code gets rid of these messages. It'd be preferable if the
+                        // placeholder message was never created, though.
+                        message.destroy();
                         continue;
                     }
-
-                    Timber.i("Send count for message %s is %d", message.getUid(),
-                            outboxState.getNumberOfSendAttempts());
-
-                    localFolder.fetch(Collections.singletonList(message), fp, null);
                     try {
-                        if (message.getHeader(K9.IDENTITY_HEADER).length > 0 || message.isSet(Flag.DRAFT)) {
-                            Timber.v("The user has set the Outbox and Drafts folder to the same thing. " +
-                                    "This message appears to be a draft, so K-9 will not send it");
+                        long messageId = message.getDatabaseId();
+                        OutboxState outboxState = outboxStateRepository.getOutboxState(messageId);
+
+                        if (outboxState.getSendState() != SendState.READY) {
+                            Timber.v("Skipping sending message " + message.getUid());
+                            notificationController.showSendFailedNotification(account,
+                                    new MessagingException(message.getSubject()));
                             continue;
                         }
 
-                        outboxStateRepository.incrementSendAttempts(messageId);
-                        message.setFlag(Flag.X_SEND_IN_PROGRESS, true);
+                        Timber.i("Send count for message %s is %d", message.getUid(),
+                                outboxState.getNumberOfSendAttempts());
 
-                        Timber.i("Sending message with UID %s", message.getUid());
-                        backend.sendMessage(message);
+                        localFolder.fetch(Collections.singletonList(message), fp, null);
+                        try {
+                            if (message.getHeader(K9.IDENTITY_HEADER).length > 0 || message.isSet(Flag.DRAFT)) {
+                                Timber.v("The user has set the Outbox and Drafts folder to the same thing. " +
+                                        "This message appears to be a draft, so K-9 will not send it");
+                                continue;
+                            }
 
-                        message.setFlag(Flag.X_SEND_IN_PROGRESS, false);
-                        message.setFlag(Flag.SEEN, true);
-                        progress++;
-                        for (MessagingListener l : getListeners()) {
-                            l.synchronizeMailboxProgress(account, account.getSentFolder(), progress, todo);
-                        }
-                        moveOrDeleteSentMessage(account, localStore, localFolder, message);
+                            outboxStateRepository.incrementSendAttempts(messageId);
+                            message.setFlag(Flag.X_SEND_IN_PROGRESS, true);
 
-                        outboxStateRepository.removeOutboxState(messageId);
-                    } catch (AuthenticationFailedException e) {
-                        outboxStateRepository.decrementSendAttempts(messageId);
-                        lastFailure = e;
-                        wasPermanentFailure = false;
+                            Timber.i("Sending message with UID %s", message.getUid());
+                            backend.sendMessage(message);
 
-                        handleAuthenticationFailure(account, false);
-                        handleSendFailure(account, localFolder, message, e);
-                    } catch (CertificateValidationException e) {
-                        outboxStateRepository.decrementSendAttempts(messageId);
-                        lastFailure = e;
-                        wasPermanentFailure = false;
+                            message.setFlag(Flag.X_SEND_IN_PROGRESS, false);
+                            message.setFlag(Flag.SEEN, true);
+                            progress++;
+                            for (MessagingListener l : getListeners()) {
+                                l.synchronizeMailboxProgress(account, account.getSentFolder(), progress, todo);
+                            }
+                            moveOrDeleteSentMessage(account, localStore, localFolder, message);
+
+                            outboxStateRepository.removeOutboxState(messageId);
+                        } catch (AuthenticationFailedException e) {
+                            outboxStateRepository.decrementSendAttempts(messageId);
+                            lastFailure = e;
+                            wasPermanentFailure = false;
+
+                            handleAuthenticationFailure(account, false);
+                            handleSendFailure(account, localFolder, message, e);
+                        } catch (CertificateValidationException e) {
+                            outboxStateRepository.decrementSendAttempts(messageId);
+                            lastFailure = e;
+                            wasPermanentFailure = false;
+
+                            notifyUserIfCertificateProblem(account, e, false);
+                            handleSendFailure(account, localFolder, message, e);
+                        } catch (MessagingException e) {
+                            lastFailure = e;
+                            wasPermanentFailure = e.isPermanentFailure();
+
+                            if (wasPermanentFailure) {
+                                String errorMessage = e.getMessage();
+                                outboxStateRepository.setSendAttemptError(messageId, errorMessage);
+                            } else if (outboxState.getNumberOfSendAttempts() + 1 >= MAX_SEND_ATTEMPTS) {
+                                outboxStateRepository.setSendAttemptsExceeded(messageId);
+                            }
 
-                        notifyUserIfCertificateProblem(account, e, false);
-                        handleSendFailure(account, localFolder, message, e);
-                    } catch (MessagingException e) {
-                        lastFailure = e;
-                        wasPermanentFailure = e.isPermanentFailure();
+                            handleSendFailure(account, localFolder, message, e);
+                        } catch (Exception e) {
+                            lastFailure = e;
+                            wasPermanentFailure = true;
 
-                        if (wasPermanentFailure) {
-                            String errorMessage = e.getMessage();
-                            outboxStateRepository.setSendAttemptError(messageId, errorMessage);
-                        } else if (outboxState.getNumberOfSendAttempts() + 1 >= MAX_SEND_ATTEMPTS) {
-                            outboxStateRepository.setSendAttemptsExceeded(messageId);
+                            handleSendFailure(account, localFolder, message, e);
                         }
-
-                        handleSendFailure(account, localFolder, message, e);
                     } catch (Exception e) {
                         lastFailure = e;
-                        wasPermanentFailure = true;
-
-                        handleSendFailure(account, localFolder, message, e);
+                        wasPermanentFailure = false;
+                        Timber.e(e, "Failed to fetch message for sending");
+                        notifySynchronizeMailboxFailed(account, localFolder, e);
                     }
-                } catch (Exception e) {
-                    lastFailure = e;
-                    wasPermanentFailure = false;
-                    Timber.e(e, "Failed to fetch message for sending");
-                    notifySynchronizeMailboxFailed(account, localFolder, e);
                 }
+            } finally {
+                backend.endSendSession();
             }
 
             for (MessagingListener l : getListeners()) {
@@ -2064,12 +2138,18 @@ public class MessagingController {
 
         LocalStore localStore = localStoreProvider.getInstance(account);
 
-        List<Message> messagesInThreads = new ArrayList<>();
+        // Several of the selected messages may belong to the same thread. Only load each thread once.
+        Set<Long> threadIds = new LinkedHashSet<>();
         for (Message message : messages) {
             LocalMessage localMessage = (LocalMessage) message;
             long rootId = localMessage.getRootId();
             long threadId = (rootId == -1) ? localMessage.getThreadId() : rootId;
 
+            threadIds.add(threadId);
+        }
+
+        List<Message> messagesInThreads = new ArrayList<>();
+        for (long threadId : threadIds) {
             List<? extends Message> messagesInThread = localStore.getMessagesInThread(threadId);
 
             messagesInThreads.addAll(messagesInThread);
@@ -2495,6 +2575,7 @@ public class MessagingController {
             Account.FolderMode aSyncMode = account.getFolderSyncMode();
 
             LocalStore localStore = localStoreProvider.getInstance(account);
+            List<Folder> foldersToSync = new ArrayList<>();
             for (final Folder folder : localStore.getPersonalNamespaces(false)) {
                 folder.open(Folder.OPEN_MODE_RW);
 
@@ -2524,7 +2605,18 @@ public class MessagingController {
 
                     continue;
                 }
-                synchronizeFolder(account, folder, ignoreLastCheckedTime, accountInterval, listener);
+
+                foldersToSync.add(folder);
+            }
+
+            int maxConcurrentSyncs = getBackend(account).getMaxConcurrentSyncs();
+            if (foldersToSync.size() > 1 && maxConcurrentSyncs > 1) {
+                synchronizeFoldersConcurrently(account, foldersToSync, maxConcurrentSyncs, ignoreLastCheckedTime,
+                        accountInterval, listener);
+            } else {
+                for (Folder folder : foldersToSync) {
+                    synchronizeFolder(account, folder, ignoreLastCheckedTime, accountInterval, listener);
+                }
             }
         } catch (MessagingException e) {
             Timber.e(e, "Unable to synchronize account %s", account.getName());
@@ -2565,38 +2657,129 @@ public class MessagingController {
         putBackground("sync" + folder.getServerId(), null, new Runnable() {
                     @Override
                     public void run() {
-                        LocalFolder tLocalFolder = null;
+                        synchronizeFolderSynchronous(account, folder, ignoreLastCheckedTime, accountInterval,
+                                listener, true, true);
+                    }
+                }
+        );
+
+
+    }
+
+    /**
+     * Synchronizes multiple folders of an account at the same time.
+     *
+     * <p>
+     * Pending commands are processed once before the folders are synchronized. While the folders are being
+     * synchronized the command queue is blocked. So no other pending commands can be added and processed out of
+     * order, and commands queued after the mail check (e.g. "finalize sync") only run once all folders are done.
+     * </p>
+     */
+    private void synchronizeFoldersConcurrently(
+            final Account account,
+            final List<Folder> folders,
+            final int maxConcurrentSyncs,
+            final boolean ignoreLastCheckedTime,
+            final long accountInterval,
+            final MessagingListener listener) {
+
+        putBackground("sync folders of " + account.getDescription(), null, new Runnable() {
+                    @Override
+                    public void run() {
                         try {
-                            // In case multiple Commands get enqueued, don't run more than
-                            // once
-                            final LocalStore localStore = localStoreProvider.getInstance(account);
-                            tLocalFolder = localStore.getFolder(folder.getServerId());
-                            tLocalFolder.open(Folder.OPEN_MODE_RW);
-
-                            if (!ignoreLastCheckedTime && tLocalFolder.getLastChecked() >
-                                    (System.currentTimeMillis() - accountInterval)) {
-                                Timber.v("Not running Command for folder %s, previously synced @ %tc which would " +
-                                        "be too recent for the account period",
-                                        folder.getServerId(), folder.getLastChecked());
-                                return;
+                            processPendingCommandsSynchronous(account);
+                        } catch (Exception e) {
+                            Timber.e(e, "Failure processing command, but allow message sync attempt");
+                        }
+
+                        // Each worker synchronizes folders until none are left
+                        final Queue<Folder> remainingFolders = new ConcurrentLinkedQueue<>(folders);
+                        Runnable worker = new Runnable() {
+                            @Override
+                            public void run() {
+                                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+
+                                Folder folder;
+                                while ((folder = remainingFolders.poll()) != null) {
+                                    synchronizeFolderSynchronous(account, folder, ignoreLastCheckedTime,
+                                            accountInterval, listener, false, false);
+                                }
                             }
-                            showFetchingMailNotificationIfNecessary(account, folder);
-                            try {
-                                synchronizeMailboxSynchronous(account, folder.getServerId(), listener, null);
-                            } finally {
-                                clearFetchingMailNotificationIfNecessary(account);
+                        };
+
+                        int workerCount = Math.min(folders.size(), maxConcurrentSyncs);
+                        List<Future<?>> futures = new ArrayList<>(workerCount);
+                        try {
+                            for (int i = 0; i < workerCount; i++) {
+                                futures.add(folderSyncExecutor.submit(worker));
                             }
-                        } catch (Exception e) {
-                            Timber.e(e, "Exception while processing folder %s:%s",
-                                    account.getDescription(), folder.getServerId());
                         } finally {
-                            closeFolder(tLocalFolder);
+                            // Don't clear the notification while some workers are still running
+                            for (Future<?> future : futures) {
+                                awaitFolderSyncWorker(account, future);
+                            }
+                            clearFetchingMailNotificationIfNecessary(account);
                         }
                     }
                 }
         );
+    }
 
+    private void awaitFolderSyncWorker(Account account, Future<?> future) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    future.get();
+                    return;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Timber.e(e.getCause(), "Exception while synchronizing folders of %s", account.getDescription());
+                    return;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
 
+    private void synchronizeFolderSynchronous(Account account, Folder folder, boolean ignoreLastCheckedTime,
+            long accountInterval, MessagingListener listener, boolean processPendingCommands,
+            boolean clearFetchingMailNotification) {
+        LocalFolder tLocalFolder = null;
+        try {
+            // In case multiple Commands get enqueued, don't run more than
+            // once
+            final LocalStore localStore = localStoreProvider.getInstance(account);
+            tLocalFolder = localStore.getFolder(folder.getServerId());
+            tLocalFolder.open(Folder.OPEN_MODE_RW);
+
+            if (!ignoreLastCheckedTime && tLocalFolder.getLastChecked() >
+                    (System.currentTimeMillis() - accountInterval)) {
+                Timber.v("Not running Command for folder %s, previously synced @ %tc which would " +
+                        "be too recent for the account period",
+                        folder.getServerId(), folder.getLastChecked());
+                return;
+            }
+            showFetchingMailNotificationIfNecessary(account, folder);
+            try {
+                Backend remoteMessageStore = getBackend(account);
+                syncFolder(account, folder.getServerId(), listener, null, remoteMessageStore,
+                        processPendingCommands);
+            } finally {
+                if (clearFetchingMailNotification) {
+                    clearFetchingMailNotificationIfNecessary(account);
+                }
+            }
+        } catch (Exception e) {
+            Timber.e(e, "Exception while processing folder %s:%s",
+                    account.getDescription(), folder.getServerId());
+        } finally {
+            closeFolder(tLocalFolder);
+        }
     }
 
     private void showFetchingMailNotificationIfNecessary(Account account, Folder folder) {
@@ -70,6 +70,13 @@ public class MessagingControllerPushReceiver implements PushReceiver {
         }
     }
 
+    @Override
+    public void syncFolder(String folderServerId) {
+        Timber.v("syncFolder(%s)", folderServerId);
+
+        controller.synchronizeMailbox(account, folderServerId, null, null);
+    }
+
     @Override
     public void sleep(WakeLock wakeLock, long millis) {
         SleepService.sleep(context, millis, wakeLock, K9.PUSH_WAKE_LOCK_TIMEOUT);
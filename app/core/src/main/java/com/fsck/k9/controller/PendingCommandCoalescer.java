@@ -0,0 +1,185 @@
+package com.fsck.k9.controller;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import com.fsck.k9.controller.MessagingControllerCommands.PendingCommand;
+import com.fsck.k9.controller.MessagingControllerCommands.PendingDelete;
+import com.fsck.k9.controller.MessagingControllerCommands.PendingSetFlag;
+import com.fsck.k9.mail.Flag;
+
+
+/**
+ * Merges runs of pending commands that can be sent to the server as fewer commands.
+ *
+ * <p>
+ * Only adjacent commands are merged, so the relative order of commands of different types is retained:
+ * <ul>
+ * <li>A run of {@link PendingSetFlag} commands is reduced to at most two commands per folder and flag, one setting and
+ * one clearing the flag. For each message only the last requested state is kept.</li>
+ * <li>A run of {@link PendingDelete} commands for the same folder is reduced to one command.</li>
+ * </ul>
+ * </p>
+ */
+class PendingCommandCoalescer {
+    private PendingCommandCoalescer() {
+    }
+
+    static List<CoalescedCommand> coalesce(List<PendingCommand> commands) {
+        List<CoalescedCommand> result = new ArrayList<>();
+
+        int index = 0;
+        int size = commands.size();
+        while (index < size) {
+            PendingCommand command = commands.get(index);
+
+            int end = index + 1;
+            while (end < size && canMerge(command, commands.get(end))) {
+                end++;
+            }
+
+            List<PendingCommand> run = commands.subList(index, end);
+            if (run.size() == 1) {
+                result.add(new CoalescedCommand(command, Collections.singletonList(command)));
+            } else if (command instanceof PendingSetFlag) {
+                coalesceSetFlagCommands(run, result);
+            } else {
+                coalesceDeleteCommands(run, result);
+            }
+
+            index = end;
+        }
+
+        return result;
+    }
+
+    private static boolean canMerge(PendingCommand first, PendingCommand other) {
+        if (first instanceof PendingSetFlag) {
+            return other instanceof PendingSetFlag;
+        } else if (first instanceof PendingDelete) {
+            return other instanceof PendingDelete &&
+                    ((PendingDelete) first).folder.equals(((PendingDelete) other).folder);
+        }
+
+        return false;
+    }
+
+    private static void coalesceSetFlagCommands(List<PendingCommand> run, List<CoalescedCommand> result) {
+        Map<FolderAndFlag, Map<String, Boolean>> finalStates = new LinkedHashMap<>();
+        for (PendingCommand command : run) {
+            PendingSetFlag setFlag = (PendingSetFlag) command;
+
+            FolderAndFlag key = new FolderAndFlag(setFlag.folder, setFlag.flag);
+            Map<String, Boolean> states = finalStates.get(key);
+            if (states == null) {
+                states = new LinkedHashMap<>();
+                finalStates.put(key, states);
+            }
+
+            for (String uid : setFlag.uids) {
+                states.put(uid, setFlag.newState);
+            }
+        }
+
+        List<PendingSetFlag> mergedCommands = new ArrayList<>();
+        for (Entry<FolderAndFlag, Map<String, Boolean>> entry : finalStates.entrySet()) {
+            FolderAndFlag key = entry.getKey();
+
+            List<String> uidsToSet = new ArrayList<>();
+            List<String> uidsToClear = new ArrayList<>();
+            for (Entry<String, Boolean> state : entry.getValue().entrySet()) {
+                if (state.getValue()) {
+                    uidsToSet.add(state.getKey());
+                } else {
+                    uidsToClear.add(state.getKey());
+                }
+            }
+
+            if (!uidsToSet.isEmpty()) {
+                mergedCommands.add(PendingSetFlag.create(key.folder, true, key.flag, uidsToSet));
+            }
+            if (!uidsToClear.isEmpty()) {
+                mergedCommands.add(PendingSetFlag.create(key.folder, false, key.flag, uidsToClear));
+            }
+        }
+
+        if (mergedCommands.isEmpty()) {
+            result.add(new CoalescedCommand(run.get(0), run));
+            return;
+        }
+
+        // The original commands may only be removed once all merged commands have been executed
+        int lastIndex = mergedCommands.size() - 1;
+        for (int i = 0; i < lastIndex; i++) {
+            result.add(new CoalescedCommand(mergedCommands.get(i), Collections.<PendingCommand>emptyList()));
+        }
+        result.add(new CoalescedCommand(mergedCommands.get(lastIndex), run));
+    }
+
+    private static void coalesceDeleteCommands(List<PendingCommand> run, List<CoalescedCommand> result) {
+        String folder = ((PendingDelete) run.get(0)).folder;
+
+        Set<String> uids = new LinkedHashSet<>();
+        for (PendingCommand command : run) {
+            uids.addAll(((PendingDelete) command).uids);
+        }
+
+        PendingDelete mergedCommand = PendingDelete.create(folder, new ArrayList<>(uids));
+        result.add(new CoalescedCommand(mergedCommand, run));
+    }
+
+
+    static class CoalescedCommand {
+        /**
+         * The command to execute.
+         */
+        final PendingCommand command;
+
+        /**
+         * The stored commands that are done once {@link #command} has been executed.
+         */
+        final List<PendingCommand> originalCommands;
+
+
+        CoalescedCommand(PendingCommand command, List<PendingCommand> originalCommands) {
+            this.command = command;
+            this.originalCommands = originalCommands;
+        }
+    }
+
+    private static class FolderAndFlag {
+        final String folder;
+        final Flag flag;
+
+
+        FolderAndFlag(String folder, Flag flag) {
+            this.folder = folder;
+            this.flag = flag;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof FolderAndFlag)) {
+                return false;
+            }
+
+            FolderAndFlag that = (FolderAndFlag) o;
+            return folder.equals(that.folder) && flag == that.flag;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * folder.hashCode() + flag.hashCode();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.fsck.k9.job
+
+import android.content.Context
+import androidx.work.Worker
+import androidx.work.WorkerParameters
+import com.fsck.k9.Preferences
+import com.fsck.k9.mailstore.LocalStoreProvider
+import com.fsck.k9.mailstore.MessageFulltextIndexer
+import timber.log.Timber
+
+/**
+ * Fills in missing entries of the full-text search index, one batch at a time.
+ *
+ * Messages that couldn't be loaded make the worker ask to be retried. The last of [MAX_RUN_ATTEMPTS] runs gives up on
+ * them, so a message that can never be indexed doesn't keep the worker coming back.
+ */
+class FulltextIndexWorker(
+    private val preferences: Preferences,
+    private val localStoreProvider: LocalStoreProvider,
+    context: Context,
+    parameters: WorkerParameters
+) : Worker(context, parameters) {
+
+    override fun doWork(): Result {
+        var retryLater = false
+        val isLastAttempt = runAttemptCount >= MAX_RUN_ATTEMPTS - 1
+        for (account in preferences.availableAccounts) {
+            val localStore = localStoreProvider.getInstance(account)
+            val indexer = MessageFulltextIndexer(localStore, giveUpOnFailedMessages = isLastAttempt)
+
+            var indexedMessages = 0
+            do {
+                if (isStopped) {
+                    Timber.d("Full-text indexing was stopped after %d messages", indexedMessages)
+                    return Result.retry()
+                }
+
+                val batchCount = indexer.indexBatch()
+                indexedMessages += batchCount
+            } while (batchCount > 0)
+
+            if (indexer.hasSkippedMessages) {
+                retryLater = true
+            }
+
+            Timber.d("Full-text indexing of account %s done. Indexed %d messages.", account.description,
+                    indexedMessages)
+        }
+
+        return if (retryLater) Result.retry() else Result.success()
+    }
+
+    companion object {
+        const val MAX_RUN_ATTEMPTS = 5
+    }
+}
@@ -1,5 +1,9 @@
 package com.fsck.k9.job
 
+import android.os.Build
+import androidx.work.Constraints
+import androidx.work.ExistingWorkPolicy
+import androidx.work.OneTimeWorkRequestBuilder
 import androidx.work.WorkManager
 import com.fsck.k9.Preferences
 import timber.log.Timber
@@ -12,6 +16,7 @@ class K9JobManager(
     fun scheduleAllMailJobs() {
         Timber.v("scheduling all jobs")
         scheduleMailSync()
+        scheduleFulltextIndexing()
     }
 
     fun scheduleMailSync() {
@@ -22,6 +27,24 @@ class K9JobManager(
         }
     }
 
+    fun scheduleFulltextIndexing() {
+        val constraints = Constraints.Builder()
+                .setRequiresBatteryNotLow(true)
+                .setRequiresStorageNotLow(true)
+                .apply {
+                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                        setRequiresDeviceIdle(true)
+                    }
+                }
+                .build()
+
+        val indexRequest = OneTimeWorkRequestBuilder<FulltextIndexWorker>()
+                .setConstraints(constraints)
+                .build()
+
+        workManager.enqueueUniqueWork(FULLTEXT_INDEX_WORK_NAME, ExistingWorkPolicy.KEEP, indexRequest)
+    }
+
     fun schedulePusherRefresh() {
         // Push is temporarily disabled. See GH-4253
     }
@@ -30,4 +53,8 @@ class K9JobManager(
         Timber.v("canceling mail sync job")
         workManager.cancelAllWorkByTag(MailSyncWorkerManager.MAIL_SYNC_TAG)
     }
+
+    companion object {
+        private const val FULLTEXT_INDEX_WORK_NAME = "FulltextIndex"
+    }
 }
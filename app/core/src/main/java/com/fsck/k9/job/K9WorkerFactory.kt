@@ -6,10 +6,12 @@ import androidx.work.WorkerFactory
 import androidx.work.WorkerParameters
 import com.fsck.k9.Preferences
 import com.fsck.k9.controller.MessagingController
+import com.fsck.k9.mailstore.LocalStoreProvider
 
 class K9WorkerFactory(
     private val messagingController: MessagingController,
-    private val preferences: Preferences
+    private val preferences: Preferences,
+    private val localStoreProvider: LocalStoreProvider
 ) : WorkerFactory() {
     override fun createWorker(
         appContext: Context,
@@ -20,6 +22,9 @@ class K9WorkerFactory(
             MailSyncWorker::class.java.canonicalName -> {
                 MailSyncWorker(messagingController, preferences, appContext, workerParameters)
             }
+            FulltextIndexWorker::class.java.canonicalName -> {
+                FulltextIndexWorker(preferences, localStoreProvider, appContext, workerParameters)
+            }
             else -> null
         }
     }
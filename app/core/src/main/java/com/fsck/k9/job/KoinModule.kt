@@ -5,7 +5,7 @@ import org.koin.dsl.module
 
 val jobModule = module {
     single { WorkManagerProvider(get(), get()) }
-    single<WorkerFactory> { K9WorkerFactory(get(), get()) }
+    single<WorkerFactory> { K9WorkerFactory(get(), get(), get()) }
     single { get<WorkManagerProvider>().getWorkManager() }
     single { K9JobManager(get(), get(), get()) }
     factory { MailSyncWorkerManager(get()) }
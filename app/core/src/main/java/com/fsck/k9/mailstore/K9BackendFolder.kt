@@ -211,6 +211,12 @@ class K9BackendFolder(
         localMessage.setFlag(Flag.X_DOWNLOADED_FULL, true)
     }
 
+    override fun saveCompleteMessages(messages: List<Message>) {
+        if (messages.isEmpty()) return
+
+        localFolder.storeDownloadedMessages(messages, Flag.X_DOWNLOADED_FULL)
+    }
+
     // TODO: Move implementation from LocalFolder to this class
     override fun savePartialMessage(message: Message) {
         localFolder.appendMessages(listOf(message))
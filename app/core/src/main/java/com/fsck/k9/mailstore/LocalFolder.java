@@ -1008,16 +1008,79 @@ public class LocalFolder extends Folder<LocalMessage> {
         }
     }
 
-    public List<LocalMessage> getMessagesByUids(@NonNull List<String> uids) throws MessagingException {
+    /**
+     * Loads the messages with the given UIDs, using one query per {@link LocalStore#UID_CHECK_BATCH_SIZE} UIDs.
+     *
+     * @return The messages that were found, in the order of {@code uids}.
+     */
+    public List<LocalMessage> getMessagesByUids(@NonNull final List<String> uids) throws MessagingException {
         open(OPEN_MODE_RW);
-        List<LocalMessage> messages = new ArrayList<>();
-        for (String uid : uids) {
-            LocalMessage message = getMessage(uid);
-            if (message != null) {
-                messages.add(message);
-            }
+        try {
+            return this.localStore.getDatabase().execute(false, new DbCallback<List<LocalMessage>>() {
+                @Override
+                public List<LocalMessage> doDbWork(final SQLiteDatabase db) throws WrappedException {
+                    Map<String, LocalMessage> messagesByUid = new HashMap<>();
+                    List<String> selectionArgs = new ArrayList<>();
+                    int start = 0;
+
+                    while (start < uids.size()) {
+                        StringBuilder selection = new StringBuilder();
+                        selectionArgs.add(Long.toString(databaseId));
+
+                        int count = Math.min(uids.size() - start, LocalStore.UID_CHECK_BATCH_SIZE);
+
+                        for (int i = start, end = start + count; i < end; i++) {
+                            if (i > start) {
+                                selection.append(",?");
+                            } else {
+                                selection.append("?");
+                            }
+
+                            selectionArgs.add(uids.get(i));
+                        }
+
+                        Cursor cursor = db.rawQuery(
+                                "SELECT " +
+                                LocalStore.GET_MESSAGES_COLS +
+                                "FROM messages " +
+                                "LEFT JOIN message_parts ON (message_parts.id = messages.message_part_id) " +
+                                "LEFT JOIN threads ON (threads.message_id = messages.id) " +
+                                "WHERE folder_id = ? AND uid IN (" + selection + ")",
+                                selectionArgs.toArray(LocalStore.EMPTY_STRING_ARRAY));
+
+                        try {
+                            while (cursor.moveToNext()) {
+                                LocalMessage message = new LocalMessage(localStore, null, LocalFolder.this);
+                                message.populateFromGetMessageCursor(cursor);
+
+                                if (!messagesByUid.containsKey(message.getUid())) {
+                                    messagesByUid.put(message.getUid(), message);
+                                }
+                            }
+                        } catch (MessagingException e) {
+                            throw new WrappedException(e);
+                        } finally {
+                            Utility.closeQuietly(cursor);
+                        }
+
+                        selectionArgs.clear();
+                        start += count;
+                    }
+
+                    List<LocalMessage> messages = new ArrayList<>(messagesByUid.size());
+                    for (String uid : uids) {
+                        LocalMessage message = messagesByUid.remove(uid);
+                        if (message != null) {
+                            messages.add(message);
+                        }
+                    }
+
+                    return messages;
+                }
+            });
+        } catch (WrappedException e) {
+            throw(MessagingException) e.getCause();
         }
-        return messages;
     }
 
     public List<LocalMessage> getMessagesByReference(@NonNull List<MessageReference> messageReferences)
@@ -1062,8 +1125,10 @@ public class LocalFolder extends Folder<LocalMessage> {
 
         final Map<String, String> uidMap = new HashMap<>();
 
+        // Use one transaction for all messages. Committing after every statement makes moving large numbers of
+        // messages very slow.
         try {
-            this.localStore.getDatabase().execute(false, new DbCallback<Void>() {
+            this.localStore.getDatabase().execute(true, new DbCallback<Void>() {
                 @Override
                 public Void doDbWork(final SQLiteDatabase db) throws WrappedException, UnavailableStorageException {
                     try {
@@ -1222,6 +1287,22 @@ public class LocalFolder extends Folder<LocalMessage> {
         return appendMessages(messages, false);
     }
 
+    /**
+     * Stores downloaded messages using a single database transaction.
+     *
+     * <p>
+     * Every message is saved with {@code downloadStateFlag} set, so no separate flag update is necessary. Observers
+     * are notified once for the whole batch.
+     * </p>
+     *
+     * @param messages Messages to store. Never <code>null</code>.
+     * @param downloadStateFlag Either {@link Flag#X_DOWNLOADED_FULL} or {@link Flag#X_DOWNLOADED_PARTIAL}.
+     */
+    public void storeDownloadedMessages(List<? extends Message> messages, Flag downloadStateFlag)
+            throws MessagingException {
+        appendMessages(messages, false, downloadStateFlag);
+    }
+
     public void destroyMessages(final List<? extends Message> messages) {
         try {
             this.localStore.getDatabase().execute(true, new DbCallback<Void>() {
@@ -1289,6 +1370,11 @@ public class LocalFolder extends Folder<LocalMessage> {
      */
     private Map<String, String> appendMessages(final List<? extends Message> messages, final boolean copy)
             throws MessagingException {
+        return appendMessages(messages, copy, null);
+    }
+
+    private Map<String, String> appendMessages(final List<? extends Message> messages, final boolean copy,
+            final Flag additionalFlag) throws MessagingException {
         open(OPEN_MODE_RW);
         try {
             final Map<String, String> uidMap = new HashMap<>();
@@ -1297,7 +1383,7 @@ public class LocalFolder extends Folder<LocalMessage> {
                 public Void doDbWork(final SQLiteDatabase db) throws WrappedException, UnavailableStorageException {
                     try {
                         for (Message message : messages) {
-                            saveMessage(db, message, copy, uidMap);
+                            saveMessage(db, message, copy, uidMap, additionalFlag);
                         }
                     } catch (MessagingException e) {
                         throw new WrappedException(e);
@@ -1314,8 +1400,8 @@ public class LocalFolder extends Folder<LocalMessage> {
         }
     }
 
-    private void saveMessage(SQLiteDatabase db, Message message, boolean copy, Map<String, String> uidMap)
-            throws MessagingException {
+    private void saveMessage(SQLiteDatabase db, Message message, boolean copy, Map<String, String> uidMap,
+            Flag additionalFlag) throws MessagingException {
         if (!(message instanceof MimeMessage)) {
             throw new Error("LocalStore can only store Messages that extend MimeMessage");
         }
@@ -1397,7 +1483,13 @@ public class LocalFolder extends Folder<LocalMessage> {
             cv.put("sender_list", Address.pack(message.getFrom()));
             cv.put("date", message.getSentDate() == null
                     ? System.currentTimeMillis() : message.getSentDate().getTime());
-            cv.put("flags", LocalStore.serializeFlags(message.getFlags()));
+            Set<Flag> flags = message.getFlags();
+            if (additionalFlag != null) {
+                flags = new HashSet<>(flags);
+                flags.add(additionalFlag);
+            }
+
+            cv.put("flags", LocalStore.serializeFlags(flags));
             cv.put("deleted", message.isSet(Flag.DELETED) ? 1 : 0);
             cv.put("read", message.isSet(Flag.SEEN) ? 1 : 0);
             cv.put("flagged", message.isSet(Flag.FLAGGED) ? 1 : 0);
@@ -1751,6 +1843,56 @@ public class LocalFolder extends Folder<LocalMessage> {
         this.localStore.notifyChange();
     }
 
+    /**
+     * Replaces the UIDs of messages in this folder, e.g. after the server reported the UIDs assigned to moved or
+     * copied messages.
+     *
+     * <p>
+     * All changes are made in a single transaction.
+     * </p>
+     *
+     * @param uidMapping
+     *         Maps the current (local) UID of a message to its new UID.
+     *
+     * @return The entries of {@code uidMapping} for which a message was found and updated.
+     */
+    public Map<String, String> changeUids(final Map<String, String> uidMapping) throws MessagingException {
+        open(OPEN_MODE_RW);
+
+        Map<String, String> changedUids;
+        try {
+            changedUids = this.localStore.getDatabase().execute(true, new DbCallback<Map<String, String>>() {
+                @Override
+                public Map<String, String> doDbWork(final SQLiteDatabase db) throws WrappedException {
+                    Map<String, String> changedUids = new HashMap<>();
+                    ContentValues cv = new ContentValues();
+                    String folderId = Long.toString(databaseId);
+
+                    for (Map.Entry<String, String> entry : uidMapping.entrySet()) {
+                        String oldUid = entry.getKey();
+                        String newUid = entry.getValue();
+
+                        cv.put("uid", newUid);
+                        int rowsUpdated = db.update("messages", cv, "folder_id = ? AND uid = ?",
+                                new String[] { folderId, oldUid });
+                        if (rowsUpdated > 0) {
+                            changedUids.put(oldUid, newUid);
+                        }
+                    }
+
+                    return changedUids;
+                }
+            });
+        } catch (WrappedException e) {
+            throw(MessagingException) e.getCause();
+        }
+
+        //TODO: remove this once the UI code exclusively uses the database id
+        this.localStore.notifyChange();
+
+        return changedUids;
+    }
+
     @Override
     public void setFlags(final List<? extends Message> messages, final Set<Flag> flags, final boolean value)
     throws MessagingException {
@@ -210,6 +210,7 @@ public class LocalStore {
 
         database = new LockableDatabase(context, account.getUuid(), schemaDefinition);
         database.setStorageProviderId(account.getLocalStorageProviderId());
+        database.setWriteAheadLoggingEnabled(true);
         database.open();
 
         Clock clock = DI.get(Clock.class);
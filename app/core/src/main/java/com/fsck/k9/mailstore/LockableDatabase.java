@@ -106,6 +106,8 @@ public class LockableDatabase {
 
     private String mStorageProviderId;
 
+    private boolean writeAheadLoggingEnabled = false;
+
     private SQLiteDatabase mDb;
     /**
      * Reentrant read lock
@@ -350,6 +352,23 @@ public class LockableDatabase {
         }
     }
 
+    /**
+     * Use SQLite's write-ahead logging for databases on internal storage.
+     *
+     * <p>
+     * With write-ahead logging Android uses a pool of connections for queries, so they don't have to wait for a long
+     * running write transaction (e.g. during message sync) to finish. All writes still use the same (primary)
+     * connection. Checkpoints are done automatically by SQLite once the log reaches 1000 pages.
+     * </p>
+     *
+     * <p>
+     * Needs to be called before {@link #open()}.
+     * </p>
+     */
+    public void setWriteAheadLoggingEnabled(boolean enabled) {
+        writeAheadLoggingEnabled = enabled;
+    }
+
     public void open() throws UnavailableStorageException {
         lockWrite();
         try {
@@ -380,16 +399,31 @@ public class LockableDatabase {
                 doOpenOrCreateDb(databaseFile);
             }
 
-            mDb.execSQL("PRAGMA foreign_keys = ON;");
+            // Unlike 'PRAGMA foreign_keys = ON' this applies to every pooled connection and survives the
+            // reconfiguration of the connection pool when write-ahead logging is enabled.
+            mDb.setForeignKeyConstraintsEnabled(true);
 
             if (mDb.getVersion() != mSchemaDefinition.getVersion()) {
                 mSchemaDefinition.doDbUpgrade(mDb);
             }
+
+            enableWriteAheadLoggingIfSupported();
         } finally {
             unlockWrite();
         }
     }
 
+    private void enableWriteAheadLoggingIfSupported() {
+        // Write-ahead logging requires shared memory support which isn't reliably available on external storage
+        if (!writeAheadLoggingEnabled || !StorageManager.InternalStorageProvider.ID.equals(mStorageProviderId)) {
+            return;
+        }
+
+        if (!mDb.enableWriteAheadLogging()) {
+            Timber.w("LockableDatabase: Unable to enable write-ahead logging for %s", uUid);
+        }
+    }
+
     private void doOpenOrCreateDb(final File databaseFile) {
         if (StorageManager.InternalStorageProvider.ID.equals(mStorageProviderId)) {
             // internal storage
@@ -0,0 +1,112 @@
+package com.fsck.k9.mailstore
+
+import com.fsck.k9.mail.FetchProfile
+import timber.log.Timber
+
+/**
+ * Adds missing entries to the `messages_fulltext` table in small batches.
+ *
+ * The set of messages without an entry in `messages_fulltext` serves as the checkpoint. Indexing can be interrupted
+ * at any time and will continue with the remaining messages. Messages without any text get an empty entry so they are
+ * not picked up again. Messages that couldn't be loaded are skipped by this instance and retried by the next one. If
+ * [giveUpOnFailedMessages] is `true` they get an empty entry instead, so a message that can never be loaded isn't
+ * retried forever.
+ */
+class MessageFulltextIndexer(
+    private val localStore: LocalStore,
+    private val giveUpOnFailedMessages: Boolean = false
+) {
+    private val database = localStore.database
+    private val fulltextCreator = localStore.messageFulltextCreator
+    private val fetchProfile = FetchProfile().apply { add(FetchProfile.Item.BODY) }
+    private val skippedMessageIds = mutableSetOf<Long>()
+
+    val hasSkippedMessages: Boolean
+        get() = skippedMessageIds.isNotEmpty()
+
+    /**
+     * Indexes up to [batchSize] messages.
+     *
+     * @return The number of messages processed. `0` if all messages are indexed.
+     */
+    fun indexBatch(batchSize: Int = DEFAULT_BATCH_SIZE): Int {
+        val messagesToIndex = getUnindexedMessages(batchSize)
+        if (messagesToIndex.isEmpty()) return 0
+
+        val fulltexts = messagesToIndex.mapNotNull { (messageId, folderServerId, messageServerId) ->
+            val fulltext = createFulltext(folderServerId, messageServerId)
+            if (fulltext == null && giveUpOnFailedMessages) {
+                Timber.w("Giving up on creating fulltext for message %s", messageServerId)
+                messageId to ""
+            } else if (fulltext == null) {
+                skippedMessageIds.add(messageId)
+                null
+            } else {
+                messageId to fulltext
+            }
+        }
+
+        database.execute(true) { db ->
+            for ((messageId, fulltext) in fulltexts) {
+                // The message might have been deleted or saved again (creating a newer entry) while its body was
+                // loaded outside of this transaction.
+                db.execSQL(
+                        "INSERT INTO messages_fulltext (docid, fulltext) " +
+                        "SELECT ?, ? " +
+                        "WHERE EXISTS (SELECT 1 FROM messages WHERE id = ? AND deleted = 0) " +
+                        "AND NOT EXISTS (SELECT 1 FROM messages_fulltext WHERE docid = ?)",
+                        arrayOf<Any>(messageId, fulltext, messageId, messageId)
+                )
+            }
+        }
+
+        return messagesToIndex.size
+    }
+
+    private fun getUnindexedMessages(batchSize: Int): List<UnindexedMessage> {
+        return database.rawQuery(
+                "SELECT m.id, f.server_id, m.uid " +
+                "FROM messages m " +
+                "JOIN folders f ON (f.id = m.folder_id) " +
+                "LEFT JOIN messages_fulltext ft ON (ft.docid = m.id) " +
+                "WHERE ft.docid IS NULL AND m.empty = 0 AND m.deleted = 0 " +
+                getSkippedMessagesSelection() +
+                "ORDER BY m.id DESC " +
+                "LIMIT $batchSize"
+        ) { cursor ->
+            val messages = mutableListOf<UnindexedMessage>()
+            while (cursor.moveToNext()) {
+                messages.add(UnindexedMessage(cursor.getLong(0), cursor.getString(1), cursor.getString(2)))
+            }
+            messages
+        }
+    }
+
+    private fun getSkippedMessagesSelection(): String {
+        return if (skippedMessageIds.isEmpty()) "" else "AND m.id NOT IN (${skippedMessageIds.joinToString()}) "
+    }
+
+    /**
+     * @return The text to index, an empty string if the message doesn't contain any text, or `null` if the message
+     * couldn't be loaded.
+     */
+    private fun createFulltext(folderServerId: String, messageServerId: String): String? {
+        return try {
+            val folder = localStore.getFolder(folderServerId)
+            val message = folder.getMessage(messageServerId) ?: return null
+            folder.fetch(listOf(message), fetchProfile, null)
+
+            fulltextCreator.createFulltext(message).orEmpty()
+        } catch (e: Exception) {
+            // Broken message data can also cause runtime exceptions while loading the message
+            Timber.e(e, "Error creating fulltext for message %s", messageServerId)
+            null
+        }
+    }
+
+    private data class UnindexedMessage(val messageId: Long, val folderServerId: String, val messageServerId: String)
+
+    companion object {
+        const val DEFAULT_BATCH_SIZE = 50
+    }
+}
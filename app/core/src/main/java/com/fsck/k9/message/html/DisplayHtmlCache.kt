@@ -0,0 +1,51 @@
+package com.fsck.k9.message.html
+
+import java.security.MessageDigest
+
+/**
+ * A size-bounded in-memory cache of the output of [HtmlProcessor.processForDisplay].
+ *
+ * Entries are keyed by a hash of the unsanitized HTML and the [HtmlSettings] used to display it. When the message parts
+ * change, so does the HTML built from them, and stale entries are simply never looked up again. They are evicted once
+ * the cache exceeds its size limit.
+ *
+ * The cache is deliberately not persisted. The output may contain the decrypted body of an encrypted message, and it
+ * must not survive an update of the sanitizer.
+ */
+class DisplayHtmlCache(private val maxSize: Int = MAX_SIZE) {
+    private val cache = LinkedHashMap<String, String>(16, 0.75f, true)
+    private var size = 0
+
+    fun createKey(settings: HtmlSettings, html: String): String {
+        val digest = MessageDigest.getInstance("SHA-256")
+        digest.update("${settings.useDarkMode}:${settings.useFixedWidthFont}:".toByteArray())
+        digest.update(html.toByteArray())
+
+        return digest.digest().joinToString(separator = "") { "%02x".format(it) }
+    }
+
+    fun get(key: String): String? {
+        synchronized(cache) {
+            return cache[key]
+        }
+    }
+
+    fun put(key: String, html: String) {
+        if (html.length > maxSize) return
+
+        synchronized(cache) {
+            cache.put(key, html)?.let { size -= it.length }
+            size += html.length
+
+            val iterator = cache.values.iterator()
+            while (size > maxSize && iterator.hasNext()) {
+                size -= iterator.next().length
+                iterator.remove()
+            }
+        }
+    }
+
+    companion object {
+        private const val MAX_SIZE = 2 * 1024 * 1024
+    }
+}
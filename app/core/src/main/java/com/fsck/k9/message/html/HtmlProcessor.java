@@ -7,18 +7,32 @@ import org.jsoup.nodes.Document;
 public class HtmlProcessor {
     private final HtmlSanitizer htmlSanitizer;
     private final DisplayHtml displayHtml;
+    private final DisplayHtmlCache displayHtmlCache;
+    private final HtmlSettings settings;
 
 
-    HtmlProcessor(HtmlSanitizer htmlSanitizer, DisplayHtml displayHtml) {
+    HtmlProcessor(HtmlSanitizer htmlSanitizer, DisplayHtml displayHtml, DisplayHtmlCache displayHtmlCache,
+            HtmlSettings settings) {
         this.htmlSanitizer = htmlSanitizer;
         this.displayHtml = displayHtml;
+        this.displayHtmlCache = displayHtmlCache;
+        this.settings = settings;
     }
 
     public String processForDisplay(String html) {
+        String cacheKey = displayHtmlCache.createKey(settings, html);
+        String cachedHtml = displayHtmlCache.get(cacheKey);
+        if (cachedHtml != null) {
+            return cachedHtml;
+        }
+
         Document document = htmlSanitizer.sanitize(html);
         addCustomHeadContents(document);
 
-        return toCompactString(document);
+        String processedHtml = toCompactString(document);
+        displayHtmlCache.put(cacheKey, processedHtml);
+
+        return processedHtml;
     }
 
     private void addCustomHeadContents(Document document) {
@@ -3,7 +3,8 @@ package com.fsck.k9.message.html
 import org.koin.dsl.module
 
 val htmlModule = module {
-    single { HtmlProcessorFactory(get(), get()) }
+    single { HtmlProcessorFactory(get(), get(), get()) }
     single { HtmlSanitizer() }
     single { DisplayHtmlFactory() }
+    single { DisplayHtmlCache() }
 }
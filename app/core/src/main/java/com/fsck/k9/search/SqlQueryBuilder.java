@@ -22,6 +22,31 @@ public class SqlQueryBuilder {
         buildWhereClauseInternal(account, node, query, selectionArgs);
     }
 
+    /**
+     * Turns the text entered by the user into an FTS query that matches messages containing all words as prefixes.
+     *
+     * <p>
+     * Every word is quoted so characters that have a special meaning in the FTS query syntax can't lead to a syntax
+     * error. Words containing punctuation, e.g. email addresses or domain names, become phrase queries and thus still
+     * match the sequence of tokens the indexer produced for them.
+     * </p>
+     */
+    static String createFulltextQuery(String searchText) {
+        StringBuilder fulltextQuery = new StringBuilder();
+        for (String word : searchText.split("[\\s\"]+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+
+            if (fulltextQuery.length() > 0) {
+                fulltextQuery.append(' ');
+            }
+            fulltextQuery.append('"').append(word).append("*\"");
+        }
+
+        return fulltextQuery.toString();
+    }
+
     private static void buildWhereClauseInternal(Account account, ConditionsTreeNode node,
             StringBuilder query, List<String> selectionArgs) {
         if (node == null) {
@@ -83,7 +108,7 @@ public class SqlQueryBuilder {
                         Timber.e("message contents can only be matched!");
                     }
                     query.append("m.id IN (SELECT docid FROM messages_fulltext WHERE fulltext MATCH ?)");
-                    selectionArgs.add(fulltextQueryString);
+                    selectionArgs.add(createFulltextQuery(fulltextQueryString));
                     break;
                 }
                 default: {
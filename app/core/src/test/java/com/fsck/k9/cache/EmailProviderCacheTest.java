@@ -140,4 +140,23 @@ public class EmailProviderCacheTest extends RobolectricTest {
         assertFalse(result);
     }
 
+    @Test
+    public void getOverlay_isNotAffectedByLaterChanges() {
+        cache.setValueForMessages(Collections.singletonList(1L), "flagged", "1");
+        EmailProviderCache.Overlay overlay = cache.getOverlay();
+
+        cache.setValueForMessages(Collections.singletonList(1L), "flagged", "0");
+
+        assertEquals("1", overlay.getValueForMessage(1L, "flagged"));
+        assertEquals("0", cache.getOverlay().getValueForMessage(1L, "flagged"));
+        assertTrue(cache.getOverlay().version > overlay.version);
+    }
+
+    @Test
+    public void getOverlay_withoutValues_hasNoValues() {
+        cache.setValueForThreads(Collections.singletonList(1L), "flagged", "1");
+        cache.removeValueForThreads(Collections.singletonList(1L), "flagged");
+
+        assertFalse(cache.getOverlay().hasValues());
+    }
 }
@@ -3,10 +3,15 @@ package com.fsck.k9.controller;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import android.content.Context;
 
@@ -20,6 +25,8 @@ import com.fsck.k9.K9RobolectricTest;
 import com.fsck.k9.Preferences;
 import com.fsck.k9.backend.BackendManager;
 import com.fsck.k9.backend.api.Backend;
+import com.fsck.k9.backend.api.SyncConfig;
+import com.fsck.k9.backend.api.SyncListener;
 import com.fsck.k9.helper.Contacts;
 import com.fsck.k9.mail.AuthenticationFailedException;
 import com.fsck.k9.mail.CertificateValidationException;
@@ -57,6 +64,7 @@ import org.robolectric.RuntimeEnvironment;
 import org.robolectric.shadows.ShadowLog;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.Matchers.any;
@@ -68,6 +76,7 @@ import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
@@ -77,6 +86,7 @@ import static org.mockito.Mockito.when;
 public class MessagingControllerTest extends K9RobolectricTest {
     private static final String FOLDER_NAME = "Folder";
     private static final String SENT_FOLDER_NAME = "Sent";
+    private static final String OTHER_FOLDER_NAME = "Other";
     private static final int MAXIMUM_SMALL_MESSAGE_SIZE = 1000;
     private static final String ACCOUNT_UUID = "1";
 
@@ -99,6 +109,8 @@ public class MessagingControllerTest extends K9RobolectricTest {
     @Mock
     private LocalFolder sentFolder;
     @Mock
+    private LocalFolder otherFolder;
+    @Mock
     private LocalStore localStore;
     @Mock
     private NotificationController notificationController;
@@ -108,8 +120,6 @@ public class MessagingControllerTest extends K9RobolectricTest {
     private ArgumentCaptor<List<LocalFolder>> localFolderListCaptor;
     @Captor
     private ArgumentCaptor<FetchProfile> fetchProfileCaptor;
-    @Captor
-    private ArgumentCaptor<MessageRetrievalListener<LocalMessage>> messageRetrievalListenerCaptor;
 
     private Context appContext;
     private Set<Flag> reqFlags;
@@ -275,21 +285,35 @@ public class MessagingControllerTest extends K9RobolectricTest {
     }
 
     @Test
-    public void searchLocalMessagesSynchronous_shouldNotifyWhenStoreFinishesRetrievingAMessage()
+    public void searchLocalMessagesSynchronous_shouldNotifyListenerWithSearchResults()
             throws Exception {
         setAccountsInPreferences(Collections.singletonMap(ACCOUNT_UUID, account));
         LocalMessage localMessage = mock(LocalMessage.class);
         when(localMessage.getFolder()).thenReturn(localFolder);
         when(search.getAccountUuids()).thenReturn(new String[]{"allAccounts"});
         when(localStore.searchForMessages(nullable(MessageRetrievalListener.class), eq(search)))
-                .thenThrow(new MessagingException("Test"));
+                .thenReturn(Collections.singletonList(localMessage));
 
         controller.searchLocalMessagesSynchronous(search, listener);
 
-        verify(localStore).searchForMessages(messageRetrievalListenerCaptor.capture(), eq(search));
-        messageRetrievalListenerCaptor.getValue().messageFinished(localMessage, 1, 1);
         verify(listener).listLocalMessagesAddMessages(eq(account),
                 eq((String) null), eq(Collections.singletonList(localMessage)));
+        verify(listener).listLocalMessagesFinished();
+    }
+
+    @Test
+    public void searchLocalMessagesSynchronous_withSearchError_shouldStillFinish()
+            throws Exception {
+        setAccountsInPreferences(Collections.singletonMap(ACCOUNT_UUID, account));
+        when(search.getAccountUuids()).thenReturn(new String[]{"allAccounts"});
+        when(localStore.searchForMessages(nullable(MessageRetrievalListener.class), eq(search)))
+                .thenThrow(new MessagingException("Test"));
+
+        controller.searchLocalMessagesSynchronous(search, listener);
+
+        verify(listener, never()).listLocalMessagesAddMessages(any(Account.class), nullable(String.class),
+                ArgumentMatchers.<LocalMessage>anyList());
+        verify(listener).listLocalMessagesFinished();
     }
 
     private void setupRemoteSearch() throws Exception {
@@ -525,6 +549,69 @@ public class MessagingControllerTest extends K9RobolectricTest {
         verify(listener).sendPendingMessagesCompleted(account);
     }
 
+    @Test
+    public void processPendingMoveOrCopy_shouldChangeLocalUidsOfMovedMessagesAtOnce() throws MessagingException {
+        List<String> uids = Arrays.asList("1", "2");
+        Map<String, String> newUidMap = new HashMap<>();
+        newUidMap.put("1", "K9LOCAL:1");
+        newUidMap.put("2", "K9LOCAL:2");
+        Map<String, String> remoteUidMap = new HashMap<>();
+        remoteUidMap.put("1", "101");
+        remoteUidMap.put("2", "102");
+        Map<String, String> localUidMapping = new HashMap<>();
+        localUidMapping.put("K9LOCAL:1", "101");
+        localUidMapping.put("K9LOCAL:2", "102");
+        when(localStore.getFolder(SENT_FOLDER_NAME)).thenReturn(sentFolder);
+        when(backend.moveMessages(FOLDER_NAME, SENT_FOLDER_NAME, uids)).thenReturn(remoteUidMap);
+        when(sentFolder.changeUids(localUidMapping)).thenReturn(localUidMapping);
+        controller.addListener(listener);
+
+        controller.processPendingMoveOrCopy(account, FOLDER_NAME, SENT_FOLDER_NAME, uids, false, newUidMap);
+
+        verify(sentFolder).changeUids(localUidMapping);
+        verify(listener).messageUidChanged(account, SENT_FOLDER_NAME, "K9LOCAL:1", "101");
+        verify(listener).messageUidChanged(account, SENT_FOLDER_NAME, "K9LOCAL:2", "102");
+    }
+
+    @Test
+    public void checkMailBlocking_withConcurrentSyncs_shouldSyncFoldersConcurrentlyBeforeClearingNotification()
+            throws Exception {
+        setupAccountWithTwoFoldersToSync();
+        when(backend.getMaxConcurrentSyncs()).thenReturn(2);
+        final CountDownLatch syncsStarted = new CountDownLatch(2);
+        final AtomicBoolean syncsOverlapped = new AtomicBoolean(true);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                syncsStarted.countDown();
+                if (!syncsStarted.await(5, TimeUnit.SECONDS)) {
+                    syncsOverlapped.set(false);
+                }
+                return null;
+            }
+        }).when(backend).sync(anyString(), any(SyncConfig.class), any(SyncListener.class), nullable(Folder.class));
+
+        controller.checkMailBlocking(account);
+
+        assertTrue(syncsOverlapped.get());
+        InOrder inOrder = inOrder(backend, notificationController);
+        inOrder.verify(backend, times(2))
+                .sync(anyString(), any(SyncConfig.class), any(SyncListener.class), nullable(Folder.class));
+        inOrder.verify(notificationController).clearFetchingMailNotification(account);
+        verify(backend).sync(eq(FOLDER_NAME), any(SyncConfig.class), any(SyncListener.class), nullable(Folder.class));
+        verify(backend).sync(eq(OTHER_FOLDER_NAME), any(SyncConfig.class), any(SyncListener.class),
+                nullable(Folder.class));
+    }
+
+    private void setupAccountWithTwoFoldersToSync() throws MessagingException {
+        account.setFolderDisplayMode(Account.FolderMode.ALL);
+        account.setFolderSyncMode(Account.FolderMode.ALL);
+        account.setNotifySync(true);
+        when(otherFolder.getServerId()).thenReturn(OTHER_FOLDER_NAME);
+        when(localStore.getFolder(OTHER_FOLDER_NAME)).thenReturn(otherFolder);
+        when(localStore.getPersonalNamespaces(false)).thenReturn(Arrays.asList(localFolder, otherFolder));
+    }
+
     private void setupAccountWithMessageToSend() throws MessagingException {
         when(account.getOutboxFolder()).thenReturn(FOLDER_NAME);
         account.setSentFolder(SENT_FOLDER_NAME, SpecialFolderSelection.AUTOMATIC);
@@ -0,0 +1,110 @@
+package com.fsck.k9.controller;
+
+
+import java.util.List;
+
+import com.fsck.k9.controller.MessagingControllerCommands.PendingAppend;
+import com.fsck.k9.controller.MessagingControllerCommands.PendingCommand;
+import com.fsck.k9.controller.MessagingControllerCommands.PendingDelete;
+import com.fsck.k9.controller.MessagingControllerCommands.PendingSetFlag;
+import com.fsck.k9.controller.PendingCommandCoalescer.CoalescedCommand;
+import com.fsck.k9.mail.Flag;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+public class PendingCommandCoalescerTest {
+    private static final String FOLDER = "Folder";
+    private static final String OTHER_FOLDER = "OtherFolder";
+
+
+    @Test
+    public void coalesce_withSingleCommand_shouldReturnCommandUnchanged() {
+        PendingCommand command = PendingSetFlag.create(FOLDER, true, Flag.SEEN, singletonList("1"));
+
+        List<CoalescedCommand> result = PendingCommandCoalescer.coalesce(singletonList(command));
+
+        assertEquals(1, result.size());
+        assertSame(command, result.get(0).command);
+        assertEquals(singletonList(command), result.get(0).originalCommands);
+    }
+
+    @Test
+    public void coalesce_withSetFlagCommands_shouldMergeUids() {
+        PendingCommand first = PendingSetFlag.create(FOLDER, true, Flag.SEEN, singletonList("1"));
+        PendingCommand second = PendingSetFlag.create(FOLDER, true, Flag.SEEN, asList("2", "3"));
+
+        List<CoalescedCommand> result = PendingCommandCoalescer.coalesce(asList(first, second));
+
+        assertEquals(1, result.size());
+        assertSetFlag(result.get(0).command, true, Flag.SEEN, "1", "2", "3");
+        assertEquals(asList(first, second), result.get(0).originalCommands);
+    }
+
+    @Test
+    public void coalesce_withSetAndClearOfSameFlag_shouldKeepLastState() {
+        PendingCommand set = PendingSetFlag.create(FOLDER, true, Flag.FLAGGED, asList("1", "2"));
+        PendingCommand clear = PendingSetFlag.create(FOLDER, false, Flag.FLAGGED, singletonList("1"));
+
+        List<CoalescedCommand> result = PendingCommandCoalescer.coalesce(asList(set, clear));
+
+        assertEquals(2, result.size());
+        assertSetFlag(result.get(0).command, true, Flag.FLAGGED, "2");
+        assertTrue(result.get(0).originalCommands.isEmpty());
+        assertSetFlag(result.get(1).command, false, Flag.FLAGGED, "1");
+        assertEquals(asList(set, clear), result.get(1).originalCommands);
+    }
+
+    @Test
+    public void coalesce_withSetFlagCommandsSeparatedByOtherCommand_shouldNotMerge() {
+        PendingCommand first = PendingSetFlag.create(FOLDER, true, Flag.SEEN, singletonList("1"));
+        PendingCommand append = PendingAppend.create(FOLDER, "K9LOCAL:1");
+        PendingCommand second = PendingSetFlag.create(FOLDER, true, Flag.SEEN, singletonList("2"));
+
+        List<CoalescedCommand> result = PendingCommandCoalescer.coalesce(asList(first, append, second));
+
+        assertEquals(3, result.size());
+        assertSame(first, result.get(0).command);
+        assertSame(append, result.get(1).command);
+        assertSame(second, result.get(2).command);
+    }
+
+    @Test
+    public void coalesce_withDeleteCommandsForSameFolder_shouldMergeUids() {
+        PendingCommand first = PendingDelete.create(FOLDER, asList("1", "2"));
+        PendingCommand second = PendingDelete.create(FOLDER, asList("2", "3"));
+
+        List<CoalescedCommand> result = PendingCommandCoalescer.coalesce(asList(first, second));
+
+        assertEquals(1, result.size());
+        PendingDelete delete = (PendingDelete) result.get(0).command;
+        assertEquals(FOLDER, delete.folder);
+        assertEquals(asList("1", "2", "3"), delete.uids);
+        assertEquals(asList(first, second), result.get(0).originalCommands);
+    }
+
+    @Test
+    public void coalesce_withDeleteCommandsForDifferentFolders_shouldNotMerge() {
+        PendingCommand first = PendingDelete.create(FOLDER, singletonList("1"));
+        PendingCommand second = PendingDelete.create(OTHER_FOLDER, singletonList("2"));
+
+        List<CoalescedCommand> result = PendingCommandCoalescer.coalesce(asList(first, second));
+
+        assertEquals(2, result.size());
+        assertSame(first, result.get(0).command);
+        assertSame(second, result.get(1).command);
+    }
+
+    private static void assertSetFlag(PendingCommand command, boolean newState, Flag flag, String... uids) {
+        PendingSetFlag setFlag = (PendingSetFlag) command;
+        assertEquals(FOLDER, setFlag.folder);
+        assertEquals(newState, setFlag.newState);
+        assertEquals(flag, setFlag.flag);
+        assertEquals(asList(uids), setFlag.uids);
+    }
+}
@@ -83,6 +83,17 @@ class K9BackendFolderTest : K9RobolectricTest() {
         assertEquals(200L, lastUid)
     }
 
+    @Test
+    fun saveCompleteMessages() {
+        val messages = listOf(createMimeMessage("1", setOf(Flag.SEEN)), createMimeMessage("2"))
+
+        backendFolder.saveCompleteMessages(messages)
+
+        assertEquals(setOf("1", "2"), backendFolder.getAllMessagesAndEffectiveDates().keys)
+        assertEquals(setOf(Flag.SEEN, Flag.X_DOWNLOADED_FULL), backendFolder.getMessageFlags("1"))
+        assertEquals(setOf(Flag.X_DOWNLOADED_FULL), backendFolder.getMessageFlags("2"))
+    }
+
     fun createAccount(): Account {
         // FIXME: This is a hack to get Preferences into a state where it's safe to call newAccount()
         preferences.clearAccounts()
@@ -104,7 +115,16 @@ class K9BackendFolderTest : K9RobolectricTest() {
     }
 
     fun createMessage(messageServerId: String, flags: Set<Flag> = emptySet()) {
-        val message = MimeMessage().apply {
+        val message = createMimeMessage(messageServerId, flags)
+
+        backendFolder.saveCompleteMessage(message)
+
+        val messageServerIds = backendFolder.getAllMessagesAndEffectiveDates().keys
+        assertTrue(messageServerId in messageServerIds)
+    }
+
+    fun createMimeMessage(messageServerId: String, flags: Set<Flag> = emptySet()): MimeMessage {
+        return MimeMessage().apply {
             subject = "Test message"
             setFrom(Address("alice@domain.example"))
             setHeader("To", "bob@domain.example")
@@ -113,11 +133,6 @@ class K9BackendFolderTest : K9RobolectricTest() {
             uid = messageServerId
             setFlags(flags, true)
         }
-
-        backendFolder.saveCompleteMessage(message)
-
-        val messageServerIds = backendFolder.getAllMessagesAndEffectiveDates().keys
-        assertTrue(messageServerId in messageServerIds)
     }
 
     private fun setFlagsColumnToNull() {
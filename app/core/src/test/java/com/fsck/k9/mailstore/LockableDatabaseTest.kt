@@ -0,0 +1,47 @@
+package com.fsck.k9.mailstore
+
+import android.database.DatabaseUtils
+import com.fsck.k9.Account
+import com.fsck.k9.K9RobolectricTest
+import com.fsck.k9.Preferences
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import org.koin.core.inject
+
+class LockableDatabaseTest : K9RobolectricTest() {
+    val preferences: Preferences by inject()
+    val localStoreProvider: LocalStoreProvider by inject()
+
+    val account: Account = createAccount()
+    val database: LockableDatabase = localStoreProvider.getInstance(account).database
+
+    @After
+    fun tearDown() {
+        preferences.deleteAccount(account)
+    }
+
+    @Test
+    fun deleteMessage_shouldCascadeToOutboxState() {
+        database.execute(false) { db ->
+            db.execSQL("INSERT INTO messages (id, uid) VALUES (1, 'uid1')")
+            db.execSQL("INSERT INTO outbox_state (message_id, send_state) VALUES (1, 'ready')")
+        }
+
+        database.execute(false) { db ->
+            db.execSQL("DELETE FROM messages WHERE id = 1")
+        }
+
+        val outboxStateCount = database.execute(false) { db ->
+            DatabaseUtils.queryNumEntries(db, "outbox_state")
+        }
+        assertEquals(0L, outboxStateCount)
+    }
+
+    fun createAccount(): Account {
+        // FIXME: This is a hack to get Preferences into a state where it's safe to call newAccount()
+        preferences.clearAccounts()
+
+        return preferences.newAccount()
+    }
+}
@@ -0,0 +1,156 @@
+package com.fsck.k9.mailstore
+
+import android.net.Uri
+import com.fsck.k9.Account
+import com.fsck.k9.K9RobolectricTest
+import com.fsck.k9.Preferences
+import com.fsck.k9.backend.api.FolderInfo
+import com.fsck.k9.mail.Address
+import com.fsck.k9.mail.Folder.FolderType
+import com.fsck.k9.mail.internet.MimeMessage
+import com.fsck.k9.mail.internet.MimeMessageHelper
+import com.fsck.k9.mail.internet.TextBody
+import com.fsck.k9.provider.EmailProvider
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.koin.core.inject
+
+class MessageFulltextIndexerTest : K9RobolectricTest() {
+    val preferences: Preferences by inject()
+    val folderRepositoryManager: FolderRepositoryManager by inject()
+    val localStoreProvider: LocalStoreProvider by inject()
+
+    val account: Account = createAccount()
+    val localStore: LocalStore = localStoreProvider.getInstance(account)
+    val indexer = MessageFulltextIndexer(localStore)
+
+    @Before
+    fun setUp() {
+        // Set EmailProvider.CONTENT_URI so LocalStore.notifyChange() won't crash
+        EmailProvider.CONTENT_URI = Uri.parse("content://dummy")
+
+        createFolder()
+    }
+
+    @After
+    fun tearDown() {
+        preferences.deleteAccount(account)
+    }
+
+    @Test
+    fun indexBatch_withMissingEntries_shouldIndexInBatches() {
+        saveMessage("1", "Hello Bob!")
+        saveMessage("2", "Hello Alice!")
+        saveMessage("3", "Hello Eve!")
+        clearFulltextTable()
+
+        assertEquals(2, indexer.indexBatch(batchSize = 2))
+        assertEquals(1, indexer.indexBatch(batchSize = 2))
+        assertEquals(0, indexer.indexBatch(batchSize = 2))
+
+        assertEquals(3, countFulltextEntries())
+        assertEquals(1, countFulltextMatches("Alice"))
+    }
+
+    @Test
+    fun indexBatch_withCompleteIndex_shouldReturnZero() {
+        saveMessage("1", "Hello Bob!")
+
+        assertEquals(0, indexer.indexBatch())
+    }
+
+    @Test
+    fun indexBatch_withBrokenMessage_shouldSkipMessage() {
+        saveMessage("1", "Hello Bob!")
+        clearFulltextTable()
+        breakMessage("1")
+
+        assertEquals(1, indexer.indexBatch())
+        assertEquals(0, indexer.indexBatch())
+
+        assertTrue(indexer.hasSkippedMessages)
+        assertEquals(0, countFulltextEntries())
+    }
+
+    @Test
+    fun indexBatch_withBrokenMessageAndGiveUpOnFailedMessages_shouldAddEmptyEntry() {
+        val indexer = MessageFulltextIndexer(localStore, giveUpOnFailedMessages = true)
+        saveMessage("1", "Hello Bob!")
+        clearFulltextTable()
+        breakMessage("1")
+
+        assertEquals(1, indexer.indexBatch())
+        assertEquals(0, indexer.indexBatch())
+
+        assertFalse(indexer.hasSkippedMessages)
+        assertEquals(1, countFulltextEntries())
+        assertEquals(0, MessageFulltextIndexer(localStore).indexBatch())
+    }
+
+    private fun createAccount(): Account {
+        // FIXME: This is a hack to get Preferences into a state where it's safe to call newAccount()
+        preferences.clearAccounts()
+
+        return preferences.newAccount()
+    }
+
+    private fun createFolder() {
+        val folderRepository = folderRepositoryManager.getFolderRepository(account)
+        val specialFolderUpdater = SpecialFolderUpdater(preferences, folderRepository, account)
+        val backendStorage = K9BackendStorage(preferences, account, localStore, specialFolderUpdater)
+        backendStorage.createFolders(listOf(FolderInfo(FOLDER_SERVER_ID, FOLDER_SERVER_ID, FolderType.REGULAR)))
+    }
+
+    private fun saveMessage(messageServerId: String, text: String) {
+        val message = MimeMessage().apply {
+            subject = "Test message"
+            setFrom(Address("alice@domain.example"))
+            setHeader("To", "bob@domain.example")
+            MimeMessageHelper.setBody(this, TextBody(text))
+
+            uid = messageServerId
+        }
+
+        val backendFolder = K9BackendFolder(preferences, account, localStore, FOLDER_SERVER_ID)
+        backendFolder.saveCompleteMessage(message)
+    }
+
+    private fun breakMessage(messageServerId: String) {
+        localStore.database.execute(false) { db ->
+            // A part whose parent doesn't exist can't be loaded
+            db.execSQL(
+                    "INSERT INTO message_parts (type, root, parent, seq, data_location) " +
+                    "SELECT 0, message_part_id, 9999, 99, 0 FROM messages WHERE uid = ?",
+                    arrayOf<Any>(messageServerId)
+            )
+        }
+    }
+
+    private fun clearFulltextTable() {
+        localStore.database.execute(false) { db -> db.execSQL("DELETE FROM messages_fulltext") }
+    }
+
+    private fun countFulltextEntries(): Int {
+        return localStore.database.rawQuery("SELECT COUNT(*) FROM messages_fulltext") { cursor ->
+            cursor.moveToFirst()
+            cursor.getInt(0)
+        }
+    }
+
+    private fun countFulltextMatches(query: String): Int {
+        return localStore.database.rawQuery(
+                "SELECT COUNT(*) FROM messages_fulltext WHERE fulltext MATCH ?", query
+        ) { cursor ->
+            cursor.moveToFirst()
+            cursor.getInt(0)
+        }
+    }
+
+    companion object {
+        const val FOLDER_SERVER_ID = "testFolder"
+    }
+}
@@ -0,0 +1,49 @@
+package com.fsck.k9.message.html
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotEquals
+import org.junit.Assert.assertNull
+import org.junit.Test
+
+class DisplayHtmlCacheTest {
+    private val settings = HtmlSettings(useDarkMode = false, useFixedWidthFont = false)
+
+    @Test
+    fun get_afterPut_shouldReturnHtml() {
+        val cache = DisplayHtmlCache()
+        val key = cache.createKey(settings, "<p>Hello</p>")
+
+        cache.put(key, "<html>Hello</html>")
+
+        assertEquals("<html>Hello</html>", cache.get(key))
+    }
+
+    @Test
+    fun get_withUnknownKey_shouldReturnNull() {
+        val cache = DisplayHtmlCache()
+
+        assertNull(cache.get(cache.createKey(settings, "<p>Hello</p>")))
+    }
+
+    @Test
+    fun createKey_withDifferentSettingsOrHtml_shouldReturnDifferentKeys() {
+        val cache = DisplayHtmlCache()
+        val darkSettings = HtmlSettings(useDarkMode = true, useFixedWidthFont = false)
+
+        val key = cache.createKey(settings, "<p>Hello</p>")
+
+        assertEquals(key, cache.createKey(settings, "<p>Hello</p>"))
+        assertNotEquals(key, cache.createKey(darkSettings, "<p>Hello</p>"))
+        assertNotEquals(key, cache.createKey(settings, "<p>Hello!</p>"))
+    }
+
+    @Test
+    fun put_exceedingMaxSize_shouldEvictLeastRecentlyUsedEntries() {
+        val cache = DisplayHtmlCache(maxSize = 15)
+        cache.put("first", "1234567890")
+        cache.put("second", "1234567890")
+
+        assertNull(cache.get("first"))
+        assertEquals("1234567890", cache.get("second"))
+    }
+}
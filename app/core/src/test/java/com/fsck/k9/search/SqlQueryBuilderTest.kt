@@ -0,0 +1,34 @@
+package com.fsck.k9.search
+
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+
+class SqlQueryBuilderTest {
+    @Test
+    fun createFulltextQuery_withSingleWord_shouldCreatePrefixQuery() {
+        val query = SqlQueryBuilder.createFulltextQuery("invoice")
+
+        assertThat(query).isEqualTo("\"invoice*\"")
+    }
+
+    @Test
+    fun createFulltextQuery_withMultipleWords_shouldMatchAllWords() {
+        val query = SqlQueryBuilder.createFulltextQuery("  quarterly\treport ")
+
+        assertThat(query).isEqualTo("\"quarterly*\" \"report*\"")
+    }
+
+    @Test
+    fun createFulltextQuery_withEmailAddress_shouldCreatePhraseQuery() {
+        val query = SqlQueryBuilder.createFulltextQuery("alice@example.com")
+
+        assertThat(query).isEqualTo("\"alice@example.com*\"")
+    }
+
+    @Test
+    fun createFulltextQuery_withQuotesAndOperators_shouldNotPassQuerySyntaxThrough() {
+        val query = SqlQueryBuilder.createFulltextQuery("\"foo\" -bar OR")
+
+        assertThat(query).isEqualTo("\"foo*\" \"-bar*\" \"OR*\"")
+    }
+}
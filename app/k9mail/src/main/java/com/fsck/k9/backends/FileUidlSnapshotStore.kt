@@ -0,0 +1,44 @@
+package com.fsck.k9.backends
+
+import com.fsck.k9.mail.store.pop3.UidlSnapshotStore
+import java.io.File
+import java.io.IOException
+import timber.log.Timber
+
+class FileUidlSnapshotStore(private val file: File) : UidlSnapshotStore {
+    override fun loadSnapshot(): List<String>? {
+        if (!file.exists()) return null
+
+        return try {
+            file.readLines()
+        } catch (e: IOException) {
+            Timber.w(e, "Couldn't read UIDL snapshot from %s", file)
+            null
+        }
+    }
+
+    override fun saveSnapshot(uids: List<String>) {
+        val tempFile = getTempFile()
+        try {
+            tempFile.bufferedWriter().use { writer ->
+                for (uid in uids) {
+                    writer.write(uid)
+                    writer.newLine()
+                }
+            }
+
+            if (!tempFile.renameTo(file)) {
+                Timber.w("Couldn't rename %s to %s", tempFile, file)
+            }
+        } catch (e: IOException) {
+            Timber.w(e, "Couldn't write UIDL snapshot to %s", file)
+        }
+    }
+
+    fun delete() {
+        file.delete()
+        getTempFile().delete()
+    }
+
+    private fun getTempFile() = File(file.parentFile, "${file.name}.tmp")
+}
@@ -12,6 +12,7 @@ import com.fsck.k9.mail.ServerSettings
 import com.fsck.k9.mail.oauth.OAuth2TokenProvider
 import com.fsck.k9.mail.power.PowerManager
 import com.fsck.k9.mail.ssl.TrustedSocketFactory
+import com.fsck.k9.mail.store.imap.IdleKeepAliveController
 import com.fsck.k9.mail.store.imap.ImapStore
 import com.fsck.k9.mail.transport.smtp.SmtpTransport
 import com.fsck.k9.mail.transport.smtp.SmtpTransportUriCreator
@@ -22,7 +23,8 @@ class ImapBackendFactory(
     private val context: Context,
     private val powerManager: PowerManager,
     private val backendStorageFactory: K9BackendStorageFactory,
-    private val trustedSocketFactory: TrustedSocketFactory
+    private val trustedSocketFactory: TrustedSocketFactory,
+    private val keepAliveController: IdleKeepAliveController
 ) : BackendFactory {
     override val transportUriPrefix = "smtp"
 
@@ -31,7 +33,7 @@ class ImapBackendFactory(
         val backendStorage = backendStorageFactory.createBackendStorage(account)
         val imapStore = createImapStore(account)
         val smtpTransport = createSmtpTransport(account)
-        return ImapBackend(accountName, backendStorage, imapStore, powerManager, smtpTransport)
+        return ImapBackend(accountName, backendStorage, imapStore, powerManager, smtpTransport, keepAliveController)
     }
 
     private fun createImapStore(account: Account): ImapStore {
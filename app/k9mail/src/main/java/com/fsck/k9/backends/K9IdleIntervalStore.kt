@@ -0,0 +1,25 @@
+package com.fsck.k9.backends
+
+import com.fsck.k9.Preferences
+import com.fsck.k9.mail.store.imap.IdleIntervalStore
+
+class K9IdleIntervalStore(private val preferences: Preferences) : IdleIntervalStore {
+    override fun getSafeInterval(key: String): Long {
+        return preferences.storage.getLong("$KEY_PREFIX$key.safe", 0L)
+    }
+
+    override fun getFailedInterval(key: String): Long {
+        return preferences.storage.getLong("$KEY_PREFIX$key.failed", 0L)
+    }
+
+    override fun saveIntervals(key: String, safeInterval: Long, failedInterval: Long) {
+        preferences.createStorageEditor()
+                .putLong("$KEY_PREFIX$key.safe", safeInterval)
+                .putLong("$KEY_PREFIX$key.failed", failedInterval)
+                .commit()
+    }
+
+    companion object {
+        private const val KEY_PREFIX = "idleInterval."
+    }
+}
@@ -1,6 +1,7 @@
 package com.fsck.k9.backends
 
 import com.fsck.k9.backend.BackendManager
+import com.fsck.k9.mail.store.imap.IdleKeepAliveController
 import org.koin.dsl.module
 
 val backendsModule = module {
@@ -12,7 +13,8 @@ val backendsModule = module {
                         "webdav" to get<WebDavBackendFactory>()
                 ))
     }
-    single { ImapBackendFactory(get(), get(), get(), get()) }
-    single { Pop3BackendFactory(get(), get()) }
+    single { ImapBackendFactory(get(), get(), get(), get(), get()) }
+    single { IdleKeepAliveController(K9IdleIntervalStore(get())) }
+    single { Pop3BackendFactory(get(), get(), get()) }
     single { WebDavBackendFactory(get(), get()) }
 }
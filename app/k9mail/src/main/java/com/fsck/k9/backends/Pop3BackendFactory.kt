@@ -1,5 +1,6 @@
 package com.fsck.k9.backends
 
+import android.content.Context
 import com.fsck.k9.Account
 import com.fsck.k9.backend.BackendFactory
 import com.fsck.k9.backend.api.Backend
@@ -14,8 +15,10 @@ import com.fsck.k9.mail.transport.smtp.SmtpTransport
 import com.fsck.k9.mail.transport.smtp.SmtpTransportUriCreator
 import com.fsck.k9.mail.transport.smtp.SmtpTransportUriDecoder
 import com.fsck.k9.mailstore.K9BackendStorageFactory
+import java.io.File
 
 class Pop3BackendFactory(
+    private val context: Context,
     private val backendStorageFactory: K9BackendStorageFactory,
     private val trustedSocketFactory: TrustedSocketFactory
 ) : BackendFactory {
@@ -29,9 +32,18 @@ class Pop3BackendFactory(
         return Pop3Backend(accountName, backendStorage, pop3Store, smtpTransport)
     }
 
+    override fun deleteBackendData(account: Account) {
+        createUidlSnapshotStore(account).delete()
+    }
+
     private fun createPop3Store(account: Account): Pop3Store {
         val serverSettings = decodeStoreUri(account.storeUri)
-        return Pop3Store(serverSettings, account, trustedSocketFactory)
+        val uidlSnapshotStore = createUidlSnapshotStore(account)
+        return Pop3Store(serverSettings, account, trustedSocketFactory, uidlSnapshotStore)
+    }
+
+    private fun createUidlSnapshotStore(account: Account): FileUidlSnapshotStore {
+        return FileUidlSnapshotStore(File(context.cacheDir, "pop3-uidl-${account.uuid}"))
     }
 
     private fun createSmtpTransport(account: Account): SmtpTransport {
@@ -8,11 +8,11 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Semaphore;
-import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -481,18 +481,20 @@ public class MessageProvider extends ContentProvider {
             return getMessages(projection);
         }
 
-        protected MatrixCursor getMessages(String[] projection) throws InterruptedException {
-            BlockingQueue<List<MessageInfoHolder>> queue = new SynchronousQueue<>();
-
+        protected MatrixCursor getMessages(String[] projection) throws InterruptedException, ExecutionException {
             // new code for integrated inbox, only execute this once as it will be processed afterwards via the listener
             SearchAccount integratedInboxAccount = SearchAccount.createUnifiedInboxAccount();
             MessagingController msgController = MessagingController.getInstance(getContext());
 
-            msgController.searchLocalMessages(integratedInboxAccount.getRelatedSearch(),
-                    new MessageInfoHolderRetrieverListener(queue));
+            MessageInfoHolderRetrieverListener listener = new MessageInfoHolderRetrieverListener();
+            Future<?> search = msgController.searchLocalMessages(integratedInboxAccount.getRelatedSearch(), listener);
+
+            // Wait for the search to complete. If it failed, the exception is passed on to the caller.
+            search.get();
 
-            List<MessageInfoHolder> holders = queue.take();
+            List<MessageInfoHolder> holders = listener.getHolders();
 
+            // Results are delivered per account. Sorting merges them.
             // TODO add sort order parameter
             Collections.sort(holders, new ReverseDateComparator());
 
@@ -1039,17 +1041,16 @@ public class MessageProvider extends ContentProvider {
     }
 
     /**
-     * Synchronized listener used to retrieve {@link MessageInfoHolder}s using a given {@link BlockingQueue}.
+     * Listener used to collect the {@link MessageInfoHolder}s of a local search.
+     *
+     * <p>
+     * Only call {@link #getHolders()} after the search has completed.
+     * </p>
      */
     protected class MessageInfoHolderRetrieverListener extends SimpleMessagingListener {
-        private final BlockingQueue<List<MessageInfoHolder>> queue;
-        private List<MessageInfoHolder> holders = new ArrayList<>();
+        private final List<MessageInfoHolder> holders = new ArrayList<>();
 
 
-        public MessageInfoHolderRetrieverListener(BlockingQueue<List<MessageInfoHolder>> queue) {
-            this.queue = queue;
-        }
-
         @Override
         public void listLocalMessagesAddMessages(Account account, String folderServerId, List<LocalMessage> messages) {
             Context context = getContext();
@@ -1062,13 +1063,8 @@ public class MessageProvider extends ContentProvider {
             }
         }
 
-        @Override
-        public void listLocalMessagesFinished() {
-            try {
-                queue.put(holders);
-            } catch (InterruptedException e) {
-                Timber.e(e, "Unable to return message list back to caller");
-            }
+        public List<MessageInfoHolder> getHolders() {
+            return holders;
         }
     }
 }
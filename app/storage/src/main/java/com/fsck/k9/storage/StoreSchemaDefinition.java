@@ -13,7 +13,7 @@ import timber.log.Timber;
 
 
 class StoreSchemaDefinition implements SchemaDefinition {
-    static final int DB_VERSION = 69;
+    static final int DB_VERSION = 71;
 
     private final MigrationsHelper migrationsHelper;
 
@@ -192,6 +192,10 @@ class StoreSchemaDefinition implements SchemaDefinition {
         db.execSQL("DROP INDEX IF EXISTS msg_composite");
         db.execSQL("CREATE INDEX IF NOT EXISTS msg_composite ON messages (deleted, empty,folder_id,flagged,read)");
 
+        db.execSQL("DROP INDEX IF EXISTS msg_list_folder_id_date");
+        db.execSQL("CREATE INDEX IF NOT EXISTS msg_list_folder_id_date ON messages (folder_id, date) " +
+                "WHERE deleted = 0 AND empty = 0");
+
 
         db.execSQL("DROP TABLE IF EXISTS threads");
         db.execSQL("CREATE TABLE threads (" +
@@ -248,6 +252,6 @@ class StoreSchemaDefinition implements SchemaDefinition {
                 "END");
 
         db.execSQL("DROP TABLE IF EXISTS messages_fulltext");
-        db.execSQL("CREATE VIRTUAL TABLE messages_fulltext USING fts4 (fulltext)");
+        db.execSQL("CREATE VIRTUAL TABLE messages_fulltext USING fts4 (fulltext, prefix=\"2,3\")");
     }
 }
@@ -0,0 +1,17 @@
+package com.fsck.k9.storage.migrations
+
+import android.database.sqlite.SQLiteDatabase
+
+internal object MigrationTo70 {
+    /**
+     * Adds a partial index matching the message list query (visible messages of a folder ordered by date).
+     *
+     * This allows SQLite to read a page of the message list with an index range scan instead of sorting all
+     * messages of the folder.
+     */
+    @JvmStatic
+    fun addMessageListIndex(db: SQLiteDatabase) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS msg_list_folder_id_date ON messages (folder_id, date) " +
+                "WHERE deleted = 0 AND empty = 0")
+    }
+}
@@ -0,0 +1,26 @@
+package com.fsck.k9.storage.migrations
+
+import android.database.sqlite.SQLiteDatabase
+
+internal object MigrationTo71 {
+    /**
+     * Recreates the full-text search table with prefix indexes so prefix queries don't have to scan the term list.
+     *
+     * The FTS4 options can't be changed on an existing table. The existing entries are copied to a temporary table
+     * and written back to the new table, so search keeps working without waiting for the background indexer.
+     */
+    @JvmStatic
+    fun addFulltextPrefixIndex(db: SQLiteDatabase) {
+        db.execSQL("DROP TABLE IF EXISTS messages_fulltext_backup")
+        db.execSQL("CREATE TEMP TABLE messages_fulltext_backup AS SELECT docid, fulltext FROM messages_fulltext")
+
+        db.execSQL("DROP TABLE messages_fulltext")
+        db.execSQL("CREATE VIRTUAL TABLE messages_fulltext USING fts4 (fulltext, prefix=\"2,3\")")
+
+        db.execSQL(
+            "INSERT INTO messages_fulltext (docid, fulltext) " +
+                "SELECT docid, fulltext FROM messages_fulltext_backup"
+        )
+        db.execSQL("DROP TABLE messages_fulltext_backup")
+    }
+}
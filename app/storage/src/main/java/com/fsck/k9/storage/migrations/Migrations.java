@@ -3,14 +3,12 @@ package com.fsck.k9.storage.migrations;
 
 import android.database.sqlite.SQLiteDatabase;
 
-import com.fsck.k9.mailstore.LocalStore;
 import com.fsck.k9.mailstore.MigrationsHelper;
 
 
 public class Migrations {
     @SuppressWarnings("fallthrough")
     public static void upgradeDatabase(SQLiteDatabase db, MigrationsHelper migrationsHelper) {
-        boolean shouldBuildFtsTable = false;
         switch (db.getVersion()) {
             case 29:
                 MigrationTo30.addDeletedColumn(db);
@@ -67,8 +65,8 @@ public class Migrations {
             case 53:
                 MigrationTo54.addPreviewTypeColumn(db);
             case 54:
+                // The full-text index is filled by FulltextIndexWorker in the background
                 MigrationTo55.createFtsSearchTable(db);
-                shouldBuildFtsTable = true;
             case 55:
                 MigrationTo56.cleanUpFtsTable(db);
             case 56:
@@ -96,16 +94,10 @@ public class Migrations {
                 MigrationTo68.addOutboxStateTable(db);
             case 68:
                 new MigrationTo69(db).createPendingDelete();
+            case 69:
+                MigrationTo70.addMessageListIndex(db);
+            case 70:
+                MigrationTo71.addFulltextPrefixIndex(db);
         }
-
-        if (shouldBuildFtsTable) {
-            buildFtsTable(db, migrationsHelper);
-        }
-    }
-
-    private static void buildFtsTable(SQLiteDatabase db, MigrationsHelper migrationsHelper) {
-        LocalStore localStore = migrationsHelper.getLocalStore();
-        FullTextIndexer fullTextIndexer = new FullTextIndexer(localStore, db);
-        fullTextIndexer.indexAllMessages();
     }
 }
@@ -0,0 +1,46 @@
+package com.fsck.k9.storage.migrations
+
+import android.database.sqlite.SQLiteDatabase
+import com.fsck.k9.storage.RobolectricTest
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class MigrationTo71Test : RobolectricTest() {
+    private val database = createV70Database()
+
+    @Test
+    fun addFulltextPrefixIndex_shouldKeepExistingEntriesSearchable() {
+        database.execSQL("INSERT INTO messages_fulltext (docid, fulltext) VALUES (1, 'meeting tomorrow')")
+        database.execSQL("INSERT INTO messages_fulltext (docid, fulltext) VALUES (2, 'lunch today')")
+
+        MigrationTo71.addFulltextPrefixIndex(database)
+
+        assertEquals(listOf(1L), search("meeting"))
+        assertEquals(listOf(2L), search("lun*"))
+    }
+
+    @Test
+    fun addFulltextPrefixIndex_withEmptyTable_shouldCreateEmptyTable() {
+        MigrationTo71.addFulltextPrefixIndex(database)
+
+        assertEquals(emptyList<Long>(), search("meeting"))
+    }
+
+    private fun search(query: String): List<Long> {
+        return database.rawQuery(
+            "SELECT docid FROM messages_fulltext WHERE fulltext MATCH ? ORDER BY docid", arrayOf(query)
+        ).use { cursor ->
+            val docIds = mutableListOf<Long>()
+            while (cursor.moveToNext()) {
+                docIds.add(cursor.getLong(0))
+            }
+            docIds
+        }
+    }
+
+    private fun createV70Database(): SQLiteDatabase {
+        val database = SQLiteDatabase.create(null)
+        database.execSQL("CREATE VIRTUAL TABLE messages_fulltext USING fts4 (fulltext)")
+        return database
+    }
+}
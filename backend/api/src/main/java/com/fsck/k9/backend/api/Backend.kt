@@ -21,6 +21,12 @@ interface Backend {
     val isPushCapable: Boolean
     val isDeleteMoveToTrash: Boolean
 
+    /**
+     * The maximum number of folders that may be synchronized at the same time. `1` if folders have to be synchronized
+     * one after another.
+     */
+    val maxConcurrentSyncs: Int
+
     @Throws(MessagingException::class)
     fun refreshFolderList()
 
@@ -90,6 +96,11 @@ interface Backend {
     @Throws(MessagingException::class)
     fun sendMessage(message: Message)
 
+    // Messages sent between beginSendSession() and endSendSession() may share a connection to the server
+    fun beginSendSession()
+
+    fun endSendSession()
+
     @Throws(MessagingException::class)
     fun checkOutgoingServerSettings()
 }
@@ -24,6 +24,7 @@ interface BackendFolder {
     fun setMessageFlag(messageServerId: String, flag: Flag, value: Boolean)
     fun savePartialMessage(message: Message)
     fun saveCompleteMessage(message: Message)
+    fun saveCompleteMessages(messages: List<Message>)
     fun getLatestOldMessageSeenTime(): Date
     fun setLatestOldMessageSeenTime(date: Date)
     fun getOldestMessageDate(): Date?
@@ -19,6 +19,7 @@ import com.fsck.k9.mail.Part;
 import com.fsck.k9.mail.PushReceiver;
 import com.fsck.k9.mail.Pusher;
 import com.fsck.k9.mail.power.PowerManager;
+import com.fsck.k9.mail.store.imap.IdleKeepAliveController;
 import com.fsck.k9.mail.store.imap.ImapPusher;
 import com.fsck.k9.mail.store.imap.ImapStore;
 import com.fsck.k9.mail.transport.smtp.SmtpTransport;
@@ -30,6 +31,7 @@ public class ImapBackend implements Backend {
     private final ImapStore imapStore;
     private final PowerManager powerManager;
     private final SmtpTransport smtpTransport;
+    private final IdleKeepAliveController keepAliveController;
     private final ImapSync imapSync;
     private final CommandRefreshFolderList commandRefreshFolderList;
     private final CommandSetFlag commandSetFlag;
@@ -44,10 +46,11 @@ public class ImapBackend implements Backend {
 
 
     public ImapBackend(String accountName, BackendStorage backendStorage, ImapStore imapStore,
-            PowerManager powerManager, SmtpTransport smtpTransport) {
+            PowerManager powerManager, SmtpTransport smtpTransport, IdleKeepAliveController keepAliveController) {
         this.imapStore = imapStore;
         this.powerManager = powerManager;
         this.smtpTransport = smtpTransport;
+        this.keepAliveController = keepAliveController;
 
         imapSync = new ImapSync(accountName, backendStorage, imapStore);
         commandSetFlag = new CommandSetFlag(imapStore);
@@ -107,6 +110,12 @@ public class ImapBackend implements Backend {
         return true;
     }
 
+    @Override
+    public int getMaxConcurrentSyncs() {
+        // Every sync needs its own connection. Don't use more than the store keeps around for reuse.
+        return ImapStore.MAX_IDLE_CONNECTIONS;
+    }
+
     @Override
     public void refreshFolderList() {
         commandRefreshFolderList.refreshFolderList();
@@ -207,7 +216,7 @@ public class ImapBackend implements Backend {
     @NotNull
     @Override
     public Pusher createPusher(@NotNull PushReceiver receiver) {
-        return new ImapPusher(imapStore, receiver, powerManager);
+        return new ImapPusher(imapStore, receiver, powerManager, keepAliveController);
     }
 
     @Override
@@ -220,6 +229,16 @@ public class ImapBackend implements Backend {
         smtpTransport.sendMessage(message);
     }
 
+    @Override
+    public void beginSendSession() {
+        smtpTransport.beginSession();
+    }
+
+    @Override
+    public void endSendSession() {
+        smtpTransport.endSession();
+    }
+
     @Override
     public void checkOutgoingServerSettings() throws MessagingException {
         smtpTransport.checkSettings();
@@ -31,11 +31,21 @@ import com.fsck.k9.mail.MessagingException;
 import com.fsck.k9.mail.Part;
 import com.fsck.k9.mail.internet.MessageExtractor;
 import com.fsck.k9.mail.store.imap.ImapFolder;
+import com.fsck.k9.mail.store.imap.ImapMessage;
 import com.fsck.k9.mail.store.imap.ImapStore;
 import timber.log.Timber;
 
 
 class ImapSync {
+    private static final String EXTRA_HIGHEST_MOD_SEQ = "imapHighestModSeq";
+    private static final String EXTRA_UID_NEXT = "imapUidNext";
+    private static final String EXTRA_MESSAGE_COUNT = "imapMessageCount";
+    private static final String EXTRA_VISIBLE_LIMIT = "imapVisibleLimit";
+    private static final String EXTRA_EARLIEST_POLL_TIMESTAMP = "imapEarliestPollTimestamp";
+    private static final String EXTRA_LAST_UID = "imapLastUid";
+    private static final int SMALL_MESSAGE_BATCH_SIZE = 10;
+
+
     private final String accountName;
     private final BackendStorage backendStorage;
     private final ImapStore imapStore;
@@ -72,8 +82,6 @@ class ImapSync {
 
             Long lastUid = backendFolder.getLastUid();
 
-            Map<String, Long> localUidMap = backendFolder.getAllMessagesAndEffectiveDates();
-
             if (providedRemoteFolder != null) {
                 Timber.v("SYNC: using providedRemoteFolder %s", folder);
                 remoteFolder = providedRemoteFolder;
@@ -125,14 +133,28 @@ class ImapSync {
                 visibleLimit = syncConfig.getDefaultVisibleLimit();
             }
 
-            final List<Message> remoteMessages = new ArrayList<>();
-            Map<String, Message> remoteUidMap = new HashMap<>();
-
             Timber.v("SYNC: Remote message count for folder %s is %d", folder, remoteMessageCount);
 
             final Date earliestDate = syncConfig.getEarliestPollDate();
             long earliestTimestamp = earliestDate != null ? earliestDate.getTime() : 0L;
 
+            // A folder provided by the caller might have been opened a long time ago, so its UIDNEXT and
+            // HIGHESTMODSEQ values can't be trusted.
+            if (providedRemoteFolder == null && remoteFolder instanceof ImapFolder) {
+                ImapFolder imapFolder = (ImapFolder) remoteFolder;
+                if (canSyncFlagChangesOnly(imapFolder, backendFolder, remoteMessageCount, visibleLimit,
+                        earliestTimestamp, lastUid)) {
+                    syncFlagChangesOnly(syncConfig, imapFolder, backendFolder, listener);
+                    finishSync(folder, backendFolder, remoteMessageCount, 0, listener);
+                    return;
+                }
+            }
+
+            Map<String, Long> localUidMap = backendFolder.getAllMessagesAndEffectiveDates();
+
+            final List<Message> remoteMessages = new ArrayList<>();
+            Map<String, Message> remoteUidMap = new HashMap<>();
+
 
             int remoteStart = 1;
             if (remoteMessageCount > 0) {
@@ -209,23 +231,12 @@ class ImapSync {
             int newMessages = downloadMessages(syncConfig, remoteFolder, backendFolder, remoteMessages, false,
                     lastUid, listener);
 
-            int unreadMessageCount = backendFolder.getUnreadMessageCount();
-            listener.folderStatusChanged(folder, unreadMessageCount);
-
-            /* Notify listeners that we're finally done. */
-
-            backendFolder.setLastChecked(System.currentTimeMillis());
-            backendFolder.setStatus(null);
-
-            Timber.d("Done synchronizing folder %s:%s @ %tc with %d new messages",
-                    accountName,
-                    folder,
-                    System.currentTimeMillis(),
-                    newMessages);
-
-            listener.syncFinished(folder, remoteMessageCount, newMessages);
+            if (providedRemoteFolder == null && remoteFolder instanceof ImapFolder) {
+                saveFolderSyncState((ImapFolder) remoteFolder, backendFolder, remoteMessageCount, visibleLimit,
+                        earliestTimestamp);
+            }
 
-            Timber.i("Done synchronizing folder %s:%s", accountName, folder);
+            finishSync(folder, backendFolder, remoteMessageCount, newMessages, listener);
 
         } catch (AuthenticationFailedException e) {
             listener.syncFailed(folder, "Authentication failure", e);
@@ -256,6 +267,111 @@ class ImapSync {
 
     }
 
+    private void finishSync(String folder, BackendFolder backendFolder, int remoteMessageCount, int newMessages,
+            SyncListener listener) {
+        int unreadMessageCount = backendFolder.getUnreadMessageCount();
+        listener.folderStatusChanged(folder, unreadMessageCount);
+
+        /* Notify listeners that we're finally done. */
+
+        backendFolder.setLastChecked(System.currentTimeMillis());
+        backendFolder.setStatus(null);
+
+        Timber.d("Done synchronizing folder %s:%s @ %tc with %d new messages",
+                accountName,
+                folder,
+                System.currentTimeMillis(),
+                newMessages);
+
+        listener.syncFinished(folder, remoteMessageCount, newMessages);
+
+        Timber.i("Done synchronizing folder %s:%s", accountName, folder);
+    }
+
+    /**
+     * Checks whether the only changes to the remote folder since the last full sync can be changes to message flags.
+     *
+     * <p>
+     * This is the case when the server supports CONDSTORE (RFC 7162) and neither {@code UIDNEXT} nor the message count
+     * changed. An expunge without a new message lowers the message count, and a new message always increases
+     * {@code UIDNEXT}. We also require the local sync window and the local messages to be unchanged.
+     * </p>
+     */
+    private boolean canSyncFlagChangesOnly(ImapFolder imapFolder, BackendFolder backendFolder,
+            int remoteMessageCount, int visibleLimit, long earliestTimestamp, Long lastUid) {
+        long highestModSeq = imapFolder.getHighestModSeq();
+        long uidNext = imapFolder.getUidNext();
+        if (highestModSeq <= 0 || uidNext <= 0) {
+            return false;
+        }
+
+        Long savedHighestModSeq = backendFolder.getFolderExtraNumber(EXTRA_HIGHEST_MOD_SEQ);
+
+        return savedHighestModSeq != null && savedHighestModSeq > 0 && savedHighestModSeq <= highestModSeq &&
+                isFolderExtraNumberEqualTo(backendFolder, EXTRA_UID_NEXT, uidNext) &&
+                isFolderExtraNumberEqualTo(backendFolder, EXTRA_MESSAGE_COUNT, remoteMessageCount) &&
+                isFolderExtraNumberEqualTo(backendFolder, EXTRA_VISIBLE_LIMIT, visibleLimit) &&
+                isFolderExtraNumberEqualTo(backendFolder, EXTRA_EARLIEST_POLL_TIMESTAMP, earliestTimestamp) &&
+                isFolderExtraNumberEqualTo(backendFolder, EXTRA_LAST_UID, lastUid != null ? lastUid : -1L);
+    }
+
+    private static boolean isFolderExtraNumberEqualTo(BackendFolder backendFolder, String name, long value) {
+        Long savedValue = backendFolder.getFolderExtraNumber(name);
+        return savedValue != null && savedValue == value;
+    }
+
+    private void saveFolderSyncState(ImapFolder imapFolder, BackendFolder backendFolder, int remoteMessageCount,
+            int visibleLimit, long earliestTimestamp) {
+        long highestModSeq = imapFolder.getHighestModSeq();
+        long uidNext = imapFolder.getUidNext();
+        if (highestModSeq <= 0 || uidNext <= 0) {
+            // Always perform a full sync if the server doesn't support CONDSTORE
+            backendFolder.setFolderExtraNumber(EXTRA_HIGHEST_MOD_SEQ, 0L);
+            return;
+        }
+
+        Long lastUid = backendFolder.getLastUid();
+
+        backendFolder.setFolderExtraNumber(EXTRA_UID_NEXT, uidNext);
+        backendFolder.setFolderExtraNumber(EXTRA_MESSAGE_COUNT, remoteMessageCount);
+        backendFolder.setFolderExtraNumber(EXTRA_VISIBLE_LIMIT, visibleLimit);
+        backendFolder.setFolderExtraNumber(EXTRA_EARLIEST_POLL_TIMESTAMP, earliestTimestamp);
+        backendFolder.setFolderExtraNumber(EXTRA_LAST_UID, lastUid != null ? lastUid : -1L);
+        backendFolder.setFolderExtraNumber(EXTRA_HIGHEST_MOD_SEQ, highestModSeq);
+    }
+
+    private void syncFlagChangesOnly(SyncConfig syncConfig, ImapFolder imapFolder, BackendFolder backendFolder,
+            SyncListener listener) throws MessagingException {
+        String folder = imapFolder.getServerId();
+        long savedHighestModSeq = backendFolder.getFolderExtraNumber(EXTRA_HIGHEST_MOD_SEQ);
+        long highestModSeq = imapFolder.getHighestModSeq();
+
+        if (savedHighestModSeq == highestModSeq) {
+            Timber.d("SYNC: Folder %s:%s is unchanged (HIGHESTMODSEQ %d)", accountName, folder, highestModSeq);
+            return;
+        }
+
+        Timber.d("SYNC: Fetching flag changes since mod-sequence %d for folder %s:%s", savedHighestModSeq,
+                accountName, folder);
+
+        List<ImapMessage> changedMessages = imapFolder.fetchChangedFlags(savedHighestModSeq);
+
+        int progress = 0;
+        int todo = changedMessages.size();
+        listener.syncProgress(folder, progress, todo);
+
+        for (ImapMessage remoteMessage : changedMessages) {
+            boolean messageChanged = syncFlags(syncConfig, backendFolder, remoteMessage);
+            if (messageChanged) {
+                listener.syncFlagChanged(folder, remoteMessage.getUid());
+            }
+            progress++;
+            listener.syncProgress(folder, progress, todo);
+        }
+
+        backendFolder.setFolderExtraNumber(EXTRA_HIGHEST_MOD_SEQ, highestModSeq);
+    }
+
     void downloadMessage(SyncConfig syncConfig, String folderServerId, String messageServerId)
             throws MessagingException {
         BackendFolder backendFolder = backendStorage.getFolder(folderServerId);
@@ -523,52 +639,131 @@ class ImapSync {
 
         Timber.d("SYNC: Fetching %d small messages for folder %s", smallMessages.size(), folder);
 
-        remoteFolder.fetch(smallMessages,
-                fp, new MessageRetrievalListener<T>() {
-                    @Override
-                    public void messageFinished(final T message, int number, int ofTotal) {
-                        try {
+        final List<T> messagesToSave = new ArrayList<>(SMALL_MESSAGE_BATCH_SIZE);
+
+        try {
+            remoteFolder.fetch(smallMessages,
+                    fp, new MessageRetrievalListener<T>() {
+                        @Override
+                        public void messageFinished(final T message, int number, int ofTotal) {
                             if (!shouldImportMessage(message, earliestDate)) {
                                 progress.incrementAndGet();
 
                                 return;
                             }
 
-                            // Store the updated message locally
-                            backendFolder.saveCompleteMessage(message);
-                            progress.incrementAndGet();
+                            messagesToSave.add(message);
+                            if (messagesToSave.size() >= SMALL_MESSAGE_BATCH_SIZE) {
+                                saveSmallMessages(folder, backendFolder, messagesToSave, progress, newMessages, todo,
+                                        lastUid, listener);
+                            }
+                        }
 
+                        @Override
+                        public void messageStarted(String uid, int number, int ofTotal) {
+                        }
 
-                            // Increment the number of "new messages" if the newly downloaded message is
-                            // not marked as read.
-                            if (!message.isSet(Flag.SEEN)) {
-                                newMessages.incrementAndGet();
-                            }
+                        @Override
+                        public void messagesFinished(int total) {
+                        }
+                    });
+        } finally {
+            // Don't lose the messages that were downloaded before the fetch failed
+            saveSmallMessages(folder, backendFolder, messagesToSave, progress, newMessages, todo, lastUid, listener);
+        }
 
-                            String messageServerId = message.getUid();
-                            Timber.v("About to notify listeners that we got a new small message %s:%s:%s",
-                                    accountName, folder, messageServerId);
+        Timber.d("SYNC: Done fetching small messages for folder %s", folder);
+    }
 
-                            // Update the listener with what we've found
-                            listener.syncProgress(folder, progress.get(), todo);
+    /**
+     * Stores a batch of downloaded small messages in one go and notifies the listener about each of them.
+     *
+     * <p>
+     * Saving messages in batches avoids committing a database transaction and notifying observers for every single
+     * message. If the batch can't be saved, the messages are saved one by one so a single broken message doesn't
+     * prevent the others from being stored.
+     * </p>
+     */
+    private <T extends Message> void saveSmallMessages(
+            String folder,
+            BackendFolder backendFolder,
+            List<T> messages,
+            AtomicInteger progress,
+            AtomicInteger newMessages,
+            int todo,
+            Long lastUid,
+            SyncListener listener) {
+        if (messages.isEmpty()) {
+            return;
+        }
 
-                            boolean isOldMessage = isOldMessage(messageServerId, lastUid);
-                            listener.syncNewMessage(folder, messageServerId, isOldMessage);
-                        } catch (Exception e) {
-                            Timber.e(e, "SYNC: fetch small messages");
-                        }
-                    }
+        List<T> batch = new ArrayList<>(messages);
+        messages.clear();
 
-                    @Override
-                    public void messageStarted(String uid, int number, int ofTotal) {
-                    }
+        try {
+            // Store the updated messages locally
+            backendFolder.saveCompleteMessages(new ArrayList<Message>(batch));
+        } catch (Exception e) {
+            Timber.w(e, "SYNC: Error saving batch of small messages; saving them one at a time");
 
-                    @Override
-                    public void messagesFinished(int total) {
-                    }
-                });
+            saveSmallMessagesIndividually(folder, backendFolder, batch, progress, newMessages, todo, lastUid,
+                    listener);
+            return;
+        }
 
-        Timber.d("SYNC: Done fetching small messages for folder %s", folder);
+        try {
+            for (T message : batch) {
+                notifySmallMessageSaved(folder, message, progress, newMessages, todo, lastUid, listener);
+            }
+        } catch (Exception e) {
+            Timber.e(e, "SYNC: fetch small messages");
+        }
+    }
+
+    private <T extends Message> void saveSmallMessagesIndividually(
+            String folder,
+            BackendFolder backendFolder,
+            List<T> messages,
+            AtomicInteger progress,
+            AtomicInteger newMessages,
+            int todo,
+            Long lastUid,
+            SyncListener listener) {
+        for (T message : messages) {
+            try {
+                backendFolder.saveCompleteMessage(message);
+                notifySmallMessageSaved(folder, message, progress, newMessages, todo, lastUid, listener);
+            } catch (Exception e) {
+                Timber.e(e, "SYNC: fetch small message %s", message.getUid());
+            }
+        }
+    }
+
+    private void notifySmallMessageSaved(
+            String folder,
+            Message message,
+            AtomicInteger progress,
+            AtomicInteger newMessages,
+            int todo,
+            Long lastUid,
+            SyncListener listener) {
+        progress.incrementAndGet();
+
+        // Increment the number of "new messages" if the newly downloaded message is
+        // not marked as read.
+        if (!message.isSet(Flag.SEEN)) {
+            newMessages.incrementAndGet();
+        }
+
+        String messageServerId = message.getUid();
+        Timber.v("About to notify listeners that we got a new small message %s:%s:%s",
+                accountName, folder, messageServerId);
+
+        // Update the listener with what we've found
+        listener.syncProgress(folder, progress.get(), todo);
+
+        boolean isOldMessage = isOldMessage(messageServerId, lastUid);
+        listener.syncNewMessage(folder, messageServerId, isOldMessage);
     }
 
     private <T extends Message> void downloadLargeMessages(
@@ -19,6 +19,7 @@ import com.fsck.k9.mail.Message;
 import com.fsck.k9.mail.MessageRetrievalListener;
 import com.fsck.k9.mail.MessagingException;
 import com.fsck.k9.mail.store.imap.ImapFolder;
+import com.fsck.k9.mail.store.imap.ImapMessage;
 import com.fsck.k9.mail.store.imap.ImapStore;
 import org.junit.Before;
 import org.junit.Test;
@@ -35,9 +36,11 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -272,6 +275,121 @@ public class ImapSyncTest {
         assertEquals(FetchProfile.Item.BODY_SANE, fetchProfileCaptor.getAllValues().get(3).get(0));
     }
 
+    @Test
+    public void sync_withUnchangedCondstoreFolder_shouldNotFetchMessageList() throws Exception {
+        messageCountInRemoteFolder(1);
+        configureRemoteStoreWithFolder();
+        configureCondstoreFolderState(100L, 100L);
+
+        imapSync.sync(FOLDER_NAME, syncConfig, listener, null);
+
+        verify(remoteFolder, never()).getMessages(anyInt(), anyInt(), nullable(Date.class),
+                nullable(MessageRetrievalListener.class));
+        verify(remoteFolder, never()).fetchChangedFlags(anyLong());
+        verify(listener).syncFinished(FOLDER_NAME, 1, 0);
+    }
+
+    @Test
+    public void sync_withFlagChangesInCondstoreFolder_shouldOnlyFetchChangedFlags() throws Exception {
+        messageCountInRemoteFolder(1);
+        configureRemoteStoreWithFolder();
+        configureCondstoreFolderState(100L, 105L);
+        ImapMessage changedMessage = mock(ImapMessage.class);
+        when(changedMessage.getUid()).thenReturn(MESSAGE_UID1);
+        when(changedMessage.isSet(Flag.SEEN)).thenReturn(true);
+        when(remoteFolder.fetchChangedFlags(100L)).thenReturn(Collections.singletonList(changedMessage));
+        when(backendFolder.isMessagePresent(MESSAGE_UID1)).thenReturn(true);
+        when(backendFolder.getMessageFlags(MESSAGE_UID1)).thenReturn(Collections.<Flag>emptySet());
+
+        imapSync.sync(FOLDER_NAME, syncConfig, listener, null);
+
+        verify(remoteFolder, never()).getMessages(anyInt(), anyInt(), nullable(Date.class),
+                nullable(MessageRetrievalListener.class));
+        verify(backendFolder).setMessageFlag(MESSAGE_UID1, Flag.SEEN, true);
+        verify(listener).syncFlagChanged(FOLDER_NAME, MESSAGE_UID1);
+        verify(backendFolder).setFolderExtraNumber("imapHighestModSeq", 105L);
+    }
+
+    @Test
+    public void sync_withNewMessageInCondstoreFolder_shouldPerformFullSync() throws Exception {
+        messageCountInRemoteFolder(1);
+        configureRemoteStoreWithFolder();
+        configureCondstoreFolderState(100L, 101L);
+        when(remoteFolder.getUidNext()).thenReturn(11L);
+
+        imapSync.sync(FOLDER_NAME, syncConfig, listener, null);
+
+        verify(remoteFolder).getMessages(anyInt(), anyInt(), nullable(Date.class),
+                nullable(MessageRetrievalListener.class));
+        verify(remoteFolder, never()).fetchChangedFlags(anyLong());
+        verify(backendFolder).setFolderExtraNumber("imapUidNext", 11L);
+        verify(backendFolder).setFolderExtraNumber("imapHighestModSeq", 101L);
+    }
+
+    @Test
+    public void sync_withFailingBatchSave_shouldSaveSmallMessagesIndividually() throws Exception {
+        Message smallMessage = buildSmallNewMessage();
+        when(smallMessage.getUid()).thenReturn("UID");
+        messageCountInRemoteFolder(1);
+        hasUnsyncedRemoteMessage();
+        when(remoteFolder.supportsFetchingFlags()).thenReturn(false);
+        respondToAllFetchesWithMessage(smallMessage);
+        doThrow(new RuntimeException("Broken message")).when(backendFolder).saveCompleteMessages(any(List.class));
+
+        imapSync.sync(FOLDER_NAME, syncConfig, listener, remoteFolder);
+
+        verify(backendFolder).saveCompleteMessage(smallMessage);
+        verify(listener).syncNewMessage(FOLDER_NAME, "UID", false);
+    }
+
+    @Test
+    public void sync_withFetchFailingAfterSmallMessageDownloaded_shouldSaveDownloadedMessage() throws Exception {
+        Message smallMessage = buildSmallNewMessage();
+        when(smallMessage.getUid()).thenReturn("UID");
+        messageCountInRemoteFolder(1);
+        hasUnsyncedRemoteMessage();
+        when(remoteFolder.supportsFetchingFlags()).thenReturn(false);
+        respondToAllFetchesWithMessageAndFailBodyFetch(smallMessage);
+
+        imapSync.sync(FOLDER_NAME, syncConfig, listener, remoteFolder);
+
+        verify(backendFolder).saveCompleteMessages(Collections.singletonList(smallMessage));
+        verify(listener).syncNewMessage(FOLDER_NAME, "UID", false);
+    }
+
+    private void respondToAllFetchesWithMessage(final Message message) throws MessagingException {
+        doAnswer(new Answer() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                MessageRetrievalListener listener = (MessageRetrievalListener) invocation.getArguments()[2];
+                if (listener != null) {
+                    listener.messageStarted("UID", 1, 1);
+                    listener.messageFinished(message, 1, 1);
+                    listener.messagesFinished(1);
+                }
+                return null;
+            }
+        }).when(remoteFolder).fetch(any(List.class), any(FetchProfile.class), nullable(MessageRetrievalListener.class));
+    }
+
+    private void respondToAllFetchesWithMessageAndFailBodyFetch(final Message message) throws MessagingException {
+        doAnswer(new Answer() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws MessagingException {
+                FetchProfile fetchProfile = (FetchProfile) invocation.getArguments()[1];
+                MessageRetrievalListener listener = (MessageRetrievalListener) invocation.getArguments()[2];
+                if (listener != null) {
+                    listener.messageStarted("UID", 1, 1);
+                    listener.messageFinished(message, 1, 1);
+                }
+                if (fetchProfile.contains(FetchProfile.Item.BODY)) {
+                    throw new MessagingException("Connection lost");
+                }
+                return null;
+            }
+        }).when(remoteFolder).fetch(any(List.class), any(FetchProfile.class), nullable(MessageRetrievalListener.class));
+    }
+
     private void respondToFetchEnvelopesWithMessage(final Message message) throws MessagingException {
         doAnswer(new Answer() {
             @Override
@@ -326,6 +444,19 @@ public class ImapSyncTest {
                 nullable(MessageRetrievalListener.class))).thenReturn(Collections.singletonList(remoteMessage));
     }
 
+    private void configureCondstoreFolderState(long savedHighestModSeq, long highestModSeq) {
+        when(remoteFolder.getHighestModSeq()).thenReturn(highestModSeq);
+        when(remoteFolder.getUidNext()).thenReturn(10L);
+        when(backendFolder.getLastUid()).thenReturn(9L);
+        when(backendFolder.getFolderExtraNumber("imapHighestModSeq")).thenReturn(savedHighestModSeq);
+        when(backendFolder.getFolderExtraNumber("imapUidNext")).thenReturn(10L);
+        when(backendFolder.getFolderExtraNumber("imapMessageCount")).thenReturn(1L);
+        when(backendFolder.getFolderExtraNumber("imapVisibleLimit")).thenReturn((long) DEFAULT_VISIBLE_LIMIT);
+        when(backendFolder.getFolderExtraNumber("imapEarliestPollTimestamp")).thenReturn(0L);
+        when(backendFolder.getFolderExtraNumber("imapLastUid")).thenReturn(9L);
+        when(backendFolder.getVisibleLimit()).thenReturn(-1);
+    }
+
     private void configureSyncConfig() {
         syncConfig = new SyncConfig(
                 ExpungePolicy.MANUALLY,
@@ -36,6 +36,7 @@ class Pop3Backend(
     override val supportsSearchByDate = false
     override val isPushCapable = false
     override val isDeleteMoveToTrash = false
+    override val maxConcurrentSyncs = 1
 
     override fun refreshFolderList() {
         commandRefreshFolderList.refreshFolderList()
@@ -126,6 +127,14 @@ class Pop3Backend(
         smtpTransport.sendMessage(message)
     }
 
+    override fun beginSendSession() {
+        smtpTransport.beginSession()
+    }
+
+    override fun endSendSession() {
+        smtpTransport.endSession()
+    }
+
     override fun checkOutgoingServerSettings() {
         smtpTransport.checkSettings()
     }
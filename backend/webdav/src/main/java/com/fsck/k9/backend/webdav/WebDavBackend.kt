@@ -40,6 +40,7 @@ class WebDavBackend(
     override val supportsSearchByDate = false
     override val isPushCapable = false
     override val isDeleteMoveToTrash = true
+    override val maxConcurrentSyncs = 1
 
     override fun refreshFolderList() {
         commandGetFolders.refreshFolderList()
@@ -131,6 +132,10 @@ class WebDavBackend(
         webDavTransport.sendMessage(message)
     }
 
+    override fun beginSendSession() = Unit
+
+    override fun endSendSession() = Unit
+
     override fun checkOutgoingServerSettings() {
         webDavTransport.checkSettings()
     }
@@ -0,0 +1,80 @@
+package com.fsck.k9.mail.benchmarks;
+
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.fsck.k9.mail.filter.Base64;
+import com.fsck.k9.mail.filter.Base64OutputStream;
+import com.fsck.k9.mail.filter.EOLConvertingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+
+@RunWith(AndroidJUnit4.class)
+public class EncodingBenchmark {
+    private static final int DATA_SIZE = 1024 * 1024;
+    private static final int CHUNK_SIZE = 8192;
+
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+
+    @Test
+    public void base64_encodeBase64Chunked() {
+        byte[] data = MessageCorpus.createRandomData(DATA_SIZE);
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            Base64.encodeBase64Chunked(data);
+        }
+    }
+
+    @Test
+    public void base64OutputStream_encode() throws IOException {
+        byte[] data = MessageCorpus.createRandomData(DATA_SIZE);
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            OutputStream out = new Base64OutputStream(NullOutputStream.NULL_OUTPUT_STREAM);
+            writeInChunks(out, data);
+            out.close();
+        }
+    }
+
+    @Test
+    public void base64OutputStream_decode() throws IOException {
+        byte[] data = Base64.encodeBase64Chunked(MessageCorpus.createRandomData(DATA_SIZE));
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            OutputStream out = new Base64OutputStream(NullOutputStream.NULL_OUTPUT_STREAM, false);
+            writeInChunks(out, data);
+            out.close();
+        }
+    }
+
+    @Test
+    public void eolConvertingOutputStream() throws IOException {
+        byte[] data = MessageCorpus.createUnixText(DATA_SIZE);
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            OutputStream out = new EOLConvertingOutputStream(NullOutputStream.NULL_OUTPUT_STREAM);
+            writeInChunks(out, data);
+            out.flush();
+        }
+    }
+
+    private static void writeInChunks(OutputStream out, byte[] data) throws IOException {
+        for (int offset = 0; offset < data.length; offset += CHUNK_SIZE) {
+            out.write(data, offset, Math.min(CHUNK_SIZE, data.length - offset));
+        }
+    }
+}
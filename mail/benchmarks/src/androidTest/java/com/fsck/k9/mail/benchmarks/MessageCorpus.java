@@ -0,0 +1,130 @@
+package com.fsck.k9.mail.benchmarks;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import com.fsck.k9.mail.filter.Base64OutputStream;
+
+
+/**
+ * Generates the messages the benchmarks operate on.
+ *
+ * <p>
+ * The messages are created on the fly instead of being stored as resources so the corpus is reproducible without
+ * shipping large files. Random content is generated from a fixed seed.
+ * </p>
+ */
+public class MessageCorpus {
+    public static final int SMALL_MESSAGE_ATTACHMENT_SIZE = 0;
+    public static final int MEDIUM_MESSAGE_ATTACHMENT_SIZE = 256 * 1024;
+    public static final int LARGE_MESSAGE_ATTACHMENT_SIZE = 30 * 1024 * 1024;
+
+    private static final String BOUNDARY = "----=_Part_4183_1127917211.1575037516353";
+    private static final long RANDOM_SEED = 0x4B39L;
+
+
+    public static String createHeaderBlock() {
+        return "Return-Path: <alice@domain.example>\r\n" +
+                "Received: from mail.domain.example (mail.domain.example [192.0.2.17])\r\n" +
+                "\tby mx.example.com with ESMTPS id x12si3021375wrn.412.2019.11.29.06.25.16\r\n" +
+                "\tfor <bob@example.com>; Fri, 29 Nov 2019 06:25:16 -0800 (PST)\r\n" +
+                "DKIM-Signature: v=1; a=rsa-sha256; c=relaxed/relaxed; d=domain.example; s=20161025;\r\n" +
+                " h=mime-version:from:date:message-id:subject:to;\r\n" +
+                " bh=frcCV1k9oG9oKj3dpUqdJg1PxRT2RSN/XKdLCPjaYaY=;\r\n" +
+                " b=Fq4yNT1r0mJMZKW4pAFhSyGlWtzBZW8bqmtwyoyUE1Ce5WHUZjGOqa1XsyWbORfi/2\r\n" +
+                "From: =?UTF-8?Q?Alice_M=C3=BCller?= <alice@domain.example>\r\n" +
+                "To: Bob <bob@example.com>, =?ISO-8859-1?Q?Ren=E9?= <rene@example.com>\r\n" +
+                "Cc: carol@example.com\r\n" +
+                "Subject: =?UTF-8?B?UmU6IFF1YXJ0ZXJseSByZXBvcnQg4oCTIGRyYWZ0IGZvciByZXZpZXc=?=\r\n" +
+                "Date: Fri, 29 Nov 2019 15:25:16 +0100\r\n" +
+                "Message-ID: <CAHmqR6=VH+QMNk3qYKH0P7ZZ1Fb3wEbq7pmM2g@mail.domain.example>\r\n" +
+                "In-Reply-To: <5DE12A7B.3000107@example.com>\r\n" +
+                "References: <5DE0F1A2.9060502@example.com> <5DE12A7B.3000107@example.com>\r\n" +
+                "MIME-Version: 1.0\r\n" +
+                "Content-Type: multipart/mixed; boundary=\"" + BOUNDARY + "\"\r\n" +
+                "\r\n";
+    }
+
+    public static String createContentTypeHeaderBody() {
+        return "application/octet-stream;\r\n" +
+                " name*0*=UTF-8''%E2%98%85%20quarterly%20report%20for%20the%20board%20of%20;\r\n" +
+                " name*1*=directors%20%E2%80%93%20final%20version.pdf;\r\n" +
+                " x-mac-type=\"50444620\"; x-mac-creator=\"4341524F\"";
+    }
+
+    public static String createEncodedWordText() {
+        return "=?UTF-8?B?UmU6IFF1YXJ0ZXJseSByZXBvcnQg4oCTIGRyYWZ0IGZvciByZXZpZXc=?= " +
+                "=?ISO-8859-1?Q?Ren=E9_M=FCller?= and =?UTF-8?Q?=E2=98=85_more_text_?=" +
+                "=?UTF-8?Q?split_across_words?=";
+    }
+
+    /**
+     * Creates a {@code multipart/mixed} message with a plain text part, an HTML part and, if
+     * {@code attachmentSize} is not zero, a base64-encoded attachment of the given size.
+     */
+    public static byte[] createMessage(int attachmentSize) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(attachmentSize * 4 / 3 + 16 * 1024);
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+
+        writer.write(createHeaderBlock());
+        writer.write("This is a multi-part message in MIME format.\r\n");
+
+        writer.write("--" + BOUNDARY + "\r\n");
+        writer.write("Content-Type: text/plain; charset=UTF-8\r\n");
+        writer.write("Content-Transfer-Encoding: quoted-printable\r\n\r\n");
+        for (int i = 0; i < 40; i++) {
+            writer.write("Hi Bob, please find the numbers for the last quarter below. Gr=C3=BC=C3=9Fe=\r\n");
+        }
+
+        writer.write("--" + BOUNDARY + "\r\n");
+        writer.write("Content-Type: text/html; charset=UTF-8\r\n");
+        writer.write("Content-Transfer-Encoding: 8bit\r\n\r\n");
+        writer.write("<html><body>\r\n");
+        for (int i = 0; i < 40; i++) {
+            writer.write("<p>Hi Bob, please find the numbers for the <b>last quarter</b> below. Grüße</p>\r\n");
+        }
+        writer.write("</body></html>\r\n");
+
+        if (attachmentSize > 0) {
+            writer.write("--" + BOUNDARY + "\r\n");
+            writer.write("Content-Type: " + createContentTypeHeaderBody() + "\r\n");
+            writer.write("Content-Transfer-Encoding: base64\r\n");
+            writer.write("Content-Disposition: attachment; filename=\"report.pdf\"\r\n\r\n");
+            writer.flush();
+
+            Base64OutputStream base64OutputStream = new Base64OutputStream(out);
+            base64OutputStream.write(createRandomData(attachmentSize));
+            base64OutputStream.flush();
+            base64OutputStream.close();
+            writer.write("\r\n");
+        }
+
+        writer.write("--" + BOUNDARY + "--\r\n");
+        writer.flush();
+
+        return out.toByteArray();
+    }
+
+    public static byte[] createRandomData(int size) {
+        byte[] data = new byte[size];
+        new Random(RANDOM_SEED).nextBytes(data);
+        return data;
+    }
+
+    /**
+     * Creates text with bare {@code LF} line endings, the input {@code EOLConvertingOutputStream} has to convert.
+     */
+    public static byte[] createUnixText(int size) {
+        byte[] line = "The quick brown fox jumps over the lazy dog. 0123456789\n".getBytes(StandardCharsets.US_ASCII);
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = line[i % line.length];
+        }
+        return data;
+    }
+}
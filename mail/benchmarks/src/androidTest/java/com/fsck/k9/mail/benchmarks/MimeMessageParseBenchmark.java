@@ -0,0 +1,74 @@
+package com.fsck.k9.mail.benchmarks;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import com.fsck.k9.mail.MessagingException;
+import com.fsck.k9.mail.internet.BinaryTempFileBody;
+import com.fsck.k9.mail.internet.MimeMessage;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static com.fsck.k9.mail.benchmarks.MessageCorpus.LARGE_MESSAGE_ATTACHMENT_SIZE;
+import static com.fsck.k9.mail.benchmarks.MessageCorpus.MEDIUM_MESSAGE_ATTACHMENT_SIZE;
+import static com.fsck.k9.mail.benchmarks.MessageCorpus.SMALL_MESSAGE_ATTACHMENT_SIZE;
+
+
+@RunWith(AndroidJUnit4.class)
+public class MimeMessageParseBenchmark {
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private File tempDirectory;
+
+
+    @Before
+    public void setUp() throws IOException {
+        File cacheDir = InstrumentationRegistry.getInstrumentation().getTargetContext().getCacheDir();
+        tempDirectory = new File(cacheDir, "benchmark");
+        FileUtils.forceMkdir(tempDirectory);
+        BinaryTempFileBody.setTempDirectory(tempDirectory);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(tempDirectory);
+    }
+
+    @Test
+    public void parseSmallMessage() throws Exception {
+        benchmarkParse(MessageCorpus.createMessage(SMALL_MESSAGE_ATTACHMENT_SIZE));
+    }
+
+    @Test
+    public void parseMediumMessage() throws Exception {
+        benchmarkParse(MessageCorpus.createMessage(MEDIUM_MESSAGE_ATTACHMENT_SIZE));
+    }
+
+    @Test
+    public void parseLargeMessage() throws Exception {
+        benchmarkParse(MessageCorpus.createMessage(LARGE_MESSAGE_ATTACHMENT_SIZE));
+    }
+
+    private void benchmarkParse(byte[] messageData) throws IOException, MessagingException {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            MimeMessage.parseMimeMessage(new ByteArrayInputStream(messageData), true);
+
+            // Large attachments are written to temp files. Don't let them pile up over thousands of iterations.
+            state.pauseTiming();
+            FileUtils.cleanDirectory(tempDirectory);
+            state.resumeTiming();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.fsck.k9.mail.internet;
+
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.fsck.k9.mail.benchmarks.MessageCorpus;
+import com.fsck.k9.mail.message.MessageHeaderParser;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+
+/**
+ * Benchmarks for the header parsing and decoding code.
+ *
+ * <p>
+ * This class lives in the {@code com.fsck.k9.mail.internet} package so it can access package-private helpers like
+ * {@link DecoderUtil} and {@link CharsetSupport#fixupCharset(String, com.fsck.k9.mail.Message)}.
+ * </p>
+ */
+@RunWith(AndroidJUnit4.class)
+public class MimeHeaderBenchmark {
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+
+    @Test
+    public void messageHeaderParser() throws Exception {
+        byte[] headerData = MessageCorpus.createHeaderBlock().getBytes(StandardCharsets.US_ASCII);
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            MessageHeaderParser.parse(new MimeMessage(), new ByteArrayInputStream(headerData));
+        }
+    }
+
+    @Test
+    public void mimeHeaderParser_readHeaderValue() {
+        String headerBody = MessageCorpus.createContentTypeHeaderBody();
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            new MimeHeaderParser(headerBody).readHeaderValue();
+        }
+    }
+
+    @Test
+    public void mimeParameterDecoder_decode() {
+        String headerBody = MessageCorpus.createContentTypeHeaderBody();
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            MimeParameterDecoder.decode(headerBody);
+        }
+    }
+
+    @Test
+    public void decoderUtil_decodeEncodedWords() {
+        String text = MessageCorpus.createEncodedWordText();
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            DecoderUtil.decodeEncodedWords(text, null);
+        }
+    }
+
+    @Test
+    public void charsetSupport_fixupCharset() throws Exception {
+        MimeMessage message = new MimeMessage();
+        message.setHeader("From", "alice@domain.example");
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            CharsetSupport.fixupCharset("ISO-8859-1", message);
+        }
+    }
+
+    @Test
+    public void charsetSupport_readToString() throws Exception {
+        byte[] data = MessageCorpus.createUnixText(64 * 1024);
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            CharsetSupport.readToString(new ByteArrayInputStream(data), "utf-8");
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.fsck.k9.mail;
 
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -8,11 +9,25 @@ import java.io.OutputStream;
 import com.fsck.k9.mail.internet.BinaryTempFileBody;
 import com.fsck.k9.mail.internet.BinaryTempFileMessageBody;
 import com.fsck.k9.mail.internet.MimeUtility;
+import com.fsck.k9.mailstore.BinaryMemoryBody;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.ThresholdingOutputStream;
 import org.apache.james.mime4j.util.MimeUtil;
 
 
+/**
+ * Creates bodies for parts that are being parsed.
+ *
+ * <p>
+ * Most parts of a message are small. Their bodies are kept in memory to avoid creating, writing, and reading back a
+ * temporary file for each of them. Only bodies exceeding {@link #MEMORY_BACKED_THRESHOLD} bytes, and bodies of type
+ * message/rfc822, are written to a {@link BinaryTempFileBody}.
+ * </p>
+ */
 public class DefaultBodyFactory implements BodyFactory {
+    static final int MEMORY_BACKED_THRESHOLD = 16 * 1024;
+
+
     public Body createBody(String contentTransferEncoding, String contentType, InputStream inputStream)
             throws IOException {
 
@@ -20,24 +35,70 @@ public class DefaultBodyFactory implements BodyFactory {
             contentTransferEncoding = MimeUtility.getHeaderParameter(contentTransferEncoding, null);
         }
 
-        final BinaryTempFileBody tempBody;
         if (MimeUtil.isMessage(contentType)) {
-            tempBody = new BinaryTempFileMessageBody(contentTransferEncoding);
-        } else {
-            tempBody = new BinaryTempFileBody(contentTransferEncoding);
+            BinaryTempFileBody tempBody = new BinaryTempFileMessageBody(contentTransferEncoding);
+
+            OutputStream outputStream = tempBody.getOutputStream();
+            try {
+                copyData(inputStream, outputStream);
+            } finally {
+                outputStream.close();
+            }
+
+            return tempBody;
         }
 
-        OutputStream outputStream = tempBody.getOutputStream();
+        MemoryOrTempFileOutputStream outputStream = new MemoryOrTempFileOutputStream(contentTransferEncoding);
         try {
             copyData(inputStream, outputStream);
         } finally {
             outputStream.close();
         }
 
-        return tempBody;
+        return outputStream.getBody();
     }
 
     protected void copyData(InputStream inputStream, OutputStream outputStream) throws IOException {
         IOUtils.copy(inputStream, outputStream);
     }
+
+
+    /**
+     * Buffers data in memory and switches to a {@link BinaryTempFileBody} once
+     * {@link #MEMORY_BACKED_THRESHOLD} is exceeded.
+     */
+    private static class MemoryOrTempFileOutputStream extends ThresholdingOutputStream {
+        private final String encoding;
+        private ByteArrayOutputStream memoryOutputStream = new ByteArrayOutputStream();
+        private BinaryTempFileBody tempFileBody;
+        private OutputStream currentOutputStream = memoryOutputStream;
+
+
+        MemoryOrTempFileOutputStream(String encoding) {
+            super(MEMORY_BACKED_THRESHOLD);
+            this.encoding = encoding;
+        }
+
+        @Override
+        protected OutputStream getStream() {
+            return currentOutputStream;
+        }
+
+        @Override
+        protected void thresholdReached() throws IOException {
+            tempFileBody = new BinaryTempFileBody(encoding);
+            currentOutputStream = tempFileBody.getOutputStream();
+
+            memoryOutputStream.writeTo(currentOutputStream);
+            memoryOutputStream = null;
+        }
+
+        Body getBody() {
+            if (tempFileBody != null) {
+                return tempFileBody;
+            }
+
+            return new BinaryMemoryBody(memoryOutputStream.toByteArray(), encoding);
+        }
+    }
 }
@@ -8,6 +8,7 @@ import com.fsck.k9.mail.power.WakeLock;
 
 public interface PushReceiver {
     void syncFolder(Folder folder);
+    void syncFolder(String folderServerId);
     void messagesArrived(Folder folder, List<Message> mess);
     void messagesFlagsChanged(Folder folder, List<Message> mess);
     void messagesRemoved(Folder folder, List<Message> mess);
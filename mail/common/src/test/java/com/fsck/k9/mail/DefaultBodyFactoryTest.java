@@ -0,0 +1,79 @@
+package com.fsck.k9.mail;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import com.fsck.k9.mail.internet.BinaryTempFileBody;
+import com.fsck.k9.mail.internet.BinaryTempFileMessageBody;
+import com.fsck.k9.mail.internet.RawDataBody;
+import com.fsck.k9.mailstore.BinaryMemoryBody;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+@RunWith(K9LibRobolectricTestRunner.class)
+public class DefaultBodyFactoryTest {
+    private final DefaultBodyFactory bodyFactory = new DefaultBodyFactory();
+
+
+    @Before
+    public void setUp() {
+        BinaryTempFileBody.setTempDirectory(new File(System.getProperty("java.io.tmpdir")));
+    }
+
+    @Test
+    public void createBody_withSmallBody_shouldReturnMemoryBackedBody() throws Exception {
+        byte[] data = createData(DefaultBodyFactory.MEMORY_BACKED_THRESHOLD);
+
+        Body body = bodyFactory.createBody("base64", "application/octet-stream", new ByteArrayInputStream(data));
+
+        assertTrue(body instanceof BinaryMemoryBody);
+        assertEquals("base64", ((RawDataBody) body).getEncoding());
+        assertArrayEquals(data, readBody(body));
+    }
+
+    @Test
+    public void createBody_withLargeBody_shouldReturnTempFileBody() throws Exception {
+        byte[] data = createData(DefaultBodyFactory.MEMORY_BACKED_THRESHOLD + 1);
+
+        Body body = bodyFactory.createBody("base64", "application/octet-stream", new ByteArrayInputStream(data));
+
+        assertTrue(body instanceof BinaryTempFileBody);
+        assertEquals("base64", ((RawDataBody) body).getEncoding());
+        assertArrayEquals(data, readBody(body));
+    }
+
+    @Test
+    public void createBody_withMessageBody_shouldReturnTempFileMessageBody() throws Exception {
+        byte[] data = "Subject: Test\r\n\r\nText".getBytes();
+
+        Body body = bodyFactory.createBody("8bit", "message/rfc822", new ByteArrayInputStream(data));
+
+        assertTrue(body instanceof BinaryTempFileMessageBody);
+        assertArrayEquals(data, readBody(body));
+    }
+
+    private static byte[] createData(int size) {
+        byte[] data = new byte[size];
+        Arrays.fill(data, (byte) 'A');
+        return data;
+    }
+
+    private static byte[] readBody(Body body) throws Exception {
+        InputStream inputStream = body.getInputStream();
+        try {
+            return IOUtils.toByteArray(inputStream);
+        } finally {
+            inputStream.close();
+        }
+    }
+}
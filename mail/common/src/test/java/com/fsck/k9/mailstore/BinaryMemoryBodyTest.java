@@ -0,0 +1,56 @@
+package com.fsck.k9.mailstore;
+
+
+import java.io.ByteArrayOutputStream;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class BinaryMemoryBodyTest {
+    @Test
+    public void setEncoding_withSameEncoding_shouldKeepData() throws Exception {
+        BinaryMemoryBody body = new BinaryMemoryBody("Hällo".getBytes("UTF-8"), "8bit");
+
+        body.setEncoding("8bit");
+
+        assertEquals("8bit", body.getEncoding());
+        assertEquals("Hällo", writeToString(body, "UTF-8"));
+    }
+
+    @Test
+    public void setEncoding_from8bitToBase64_shouldConvertData() throws Exception {
+        BinaryMemoryBody body = new BinaryMemoryBody("Hello, world!".getBytes("US-ASCII"), "8bit");
+
+        body.setEncoding("base64");
+
+        assertEquals("base64", body.getEncoding());
+        assertEquals("SGVsbG8sIHdvcmxkIQ==", writeToString(body, "US-ASCII").trim());
+        assertEquals(body.getSize(), writeToString(body, "US-ASCII").length());
+    }
+
+    @Test
+    public void setEncoding_from8bitToQuotedPrintable_shouldConvertData() throws Exception {
+        BinaryMemoryBody body = new BinaryMemoryBody("Hällo".getBytes("UTF-8"), "8bit");
+
+        body.setEncoding("quoted-printable");
+
+        assertEquals("quoted-printable", body.getEncoding());
+        assertEquals("H=C3=A4llo", writeToString(body, "US-ASCII"));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void setEncoding_fromBase64_shouldThrow() throws Exception {
+        BinaryMemoryBody body = new BinaryMemoryBody("SGVsbG8=".getBytes("US-ASCII"), "base64");
+
+        body.setEncoding("quoted-printable");
+    }
+
+
+    private String writeToString(BinaryMemoryBody body, String charset) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.writeTo(out);
+        return out.toString(charset);
+    }
+}
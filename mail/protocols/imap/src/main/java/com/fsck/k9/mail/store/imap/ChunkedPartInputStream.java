@@ -0,0 +1,166 @@
+package com.fsck.k9.mail.store.imap;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+import com.fsck.k9.mail.MessagingException;
+import timber.log.Timber;
+
+
+/**
+ * An {@link InputStream} that downloads a body part in chunks using partial fetches.
+ *
+ * <p>
+ * If the connection is lost, the download is resumed at the start of the chunk that couldn't be retrieved instead of
+ * starting over. Reconnecting is attempted up to {@link #MAX_RETRIES} times per chunk, waiting twice as long before
+ * each attempt, so a network that takes a while to come back doesn't abort the download.
+ * </p>
+ */
+class ChunkedPartInputStream extends InputStream {
+    static final int MAX_RETRIES = 5;
+    static final long INITIAL_RETRY_DELAY = 1000;
+
+    private static final byte[] EMPTY_CHUNK = new byte[0];
+
+
+    private final ChunkFetcher chunkFetcher;
+    private final int chunkSize;
+    private final long initialRetryDelay;
+    private byte[] chunk = EMPTY_CHUNK;
+    private int position;
+    private long offset;
+    private boolean endReached;
+    private int retries;
+
+
+    ChunkedPartInputStream(ChunkFetcher chunkFetcher, int chunkSize) {
+        this(chunkFetcher, chunkSize, INITIAL_RETRY_DELAY);
+    }
+
+    ChunkedPartInputStream(ChunkFetcher chunkFetcher, int chunkSize, long initialRetryDelay) {
+        this.chunkFetcher = chunkFetcher;
+        this.chunkSize = chunkSize;
+        this.initialRetryDelay = initialRetryDelay;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureData()) {
+            return -1;
+        }
+
+        return chunk[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+
+        if (!ensureData()) {
+            return -1;
+        }
+
+        int count = Math.min(length, chunk.length - position);
+        System.arraycopy(chunk, position, buffer, offset, count);
+        position += count;
+
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return chunk.length - position;
+    }
+
+    private boolean ensureData() throws IOException {
+        if (position < chunk.length) {
+            return true;
+        } else if (endReached) {
+            return false;
+        }
+
+        chunk = fetchChunk();
+        position = 0;
+        offset += chunk.length;
+
+        // The server returns less data than requested once the end of the part has been reached
+        if (chunk.length < chunkSize) {
+            endReached = true;
+        }
+
+        return chunk.length > 0;
+    }
+
+    private byte[] fetchChunk() throws IOException {
+        retries = 0;
+        while (true) {
+            try {
+                return chunkFetcher.fetchChunk(offset, chunkSize);
+            } catch (MessagingException e) {
+                throw new ChunkFetchException(e);
+            } catch (IOException e) {
+                Timber.w(e, "Connection lost while downloading body part; resuming at offset %d", offset);
+                reconnect(e);
+            }
+        }
+    }
+
+    private void reconnect(IOException connectionLostException) throws IOException {
+        while (true) {
+            if (retries >= MAX_RETRIES) {
+                throw connectionLostException;
+            }
+
+            waitBeforeRetry(initialRetryDelay << retries);
+            retries++;
+
+            try {
+                chunkFetcher.reconnect();
+                return;
+            } catch (MessagingException e) {
+                if (retries >= MAX_RETRIES) {
+                    throw new ChunkFetchException(e);
+                }
+
+                Timber.w(e, "Reconnecting failed; attempt %d of %d", retries, MAX_RETRIES);
+            }
+        }
+    }
+
+    private static void waitBeforeRetry(long delay) throws InterruptedIOException {
+        if (delay <= 0) {
+            return;
+        }
+
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to reconnect");
+        }
+    }
+
+
+    interface ChunkFetcher {
+        byte[] fetchChunk(long offset, int length) throws IOException, MessagingException;
+
+        void reconnect() throws MessagingException;
+    }
+
+    /**
+     * Used to pass a {@link MessagingException} through code that only expects {@link IOException}s.
+     */
+    static class ChunkFetchException extends IOException {
+        ChunkFetchException(MessagingException cause) {
+            super(cause);
+        }
+
+        MessagingException getMessagingException() {
+            return (MessagingException) getCause();
+        }
+    }
+}
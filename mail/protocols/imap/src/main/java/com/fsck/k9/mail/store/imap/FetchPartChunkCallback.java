@@ -0,0 +1,18 @@
+package com.fsck.k9.mail.store.imap;
+
+
+import java.io.IOException;
+
+import com.fsck.k9.mail.filter.FixedLengthInputStream;
+import org.apache.commons.io.IOUtils;
+
+
+class FetchPartChunkCallback implements ImapResponseCallback {
+    @Override
+    public Object foundLiteral(ImapResponse response, FixedLengthInputStream literal) throws IOException {
+        if (response.getTag() == null && ImapResponseParser.equalsIgnoreCase(response.get(1), "FETCH")) {
+            return IOUtils.toByteArray(literal);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,17 @@
+package com.fsck.k9.mail.store.imap;
+
+
+/**
+ * Persists the IDLE intervals learned by {@link IdleKeepAliveController}.
+ *
+ * <p>
+ * Intervals are in milliseconds. {@code 0} means nothing is known.
+ * </p>
+ */
+public interface IdleIntervalStore {
+    long getSafeInterval(String key);
+
+    long getFailedInterval(String key);
+
+    void saveIntervals(String key, long safeInterval, long failedInterval);
+}
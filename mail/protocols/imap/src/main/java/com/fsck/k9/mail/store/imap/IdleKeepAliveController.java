@@ -0,0 +1,145 @@
+package com.fsck.k9.mail.store.imap;
+
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+import com.fsck.k9.mail.NetworkType;
+import timber.log.Timber;
+
+
+/**
+ * Learns how long an IDLE connection may stay silent before it is dropped, e.g. by a NAT gateway of a mobile carrier.
+ *
+ * <p>
+ * The interval is learned per server and {@link NetworkType}. Starting from {@link #MIN_IDLE_INTERVAL} it is doubled
+ * after each successful refresh of the IDLE command. Once a refresh failed, a binary search between the longest
+ * interval that worked and the shortest interval that failed is used. The interval never exceeds the IDLE refresh
+ * time configured for the account.
+ * </p>
+ * <p>
+ * Networks change, so a failure isn't remembered forever. After {@link #REPROBE_AFTER_REFRESHES} successful
+ * refreshes without learning anything new, the failed interval is forgotten and longer intervals are probed again.
+ * </p>
+ * <p>
+ * One instance is meant to be shared by all accounts, so that refreshes of different connections that are due at
+ * about the same time are done in a single wakeup. See {@link IdleRefreshScheduler}.
+ * </p>
+ */
+public class IdleKeepAliveController {
+    static final long MIN_IDLE_INTERVAL = 2 * 60 * 1000;
+    static final long PROBE_RESOLUTION = 60 * 1000;
+    static final int REPROBE_AFTER_REFRESHES = 20;
+    /**
+     * Refreshes run a little later than scheduled. A successful refresh has to exceed the safe interval by at least
+     * this much to count as a longer interval. Probes are always more than twice as far above the safe interval.
+     */
+    static final long MIN_INTERVAL_INCREASE = PROBE_RESOLUTION / 4;
+
+
+    private final IdleIntervalStore intervalStore;
+    private final IdleRefreshScheduler refreshScheduler;
+    private final Map<String, Intervals> intervalsByKey = new HashMap<>();
+
+
+    public IdleKeepAliveController(IdleIntervalStore intervalStore) {
+        this(intervalStore, new IdleRefreshScheduler(Executors.newSingleThreadScheduledExecutor()));
+    }
+
+    IdleKeepAliveController(IdleIntervalStore intervalStore, IdleRefreshScheduler refreshScheduler) {
+        this.intervalStore = intervalStore;
+        this.refreshScheduler = refreshScheduler;
+    }
+
+    /**
+     * Returns the time in milliseconds after which the IDLE command should be refreshed.
+     *
+     * @param maxInterval
+     *         The IDLE refresh time configured by the user.
+     */
+    public synchronized long getIdleInterval(String server, NetworkType networkType, long maxInterval) {
+        Intervals intervals = getIntervals(createKey(server, networkType));
+
+        long interval;
+        if (intervals.failed == 0) {
+            interval = intervals.safe * 2;
+        } else if (intervals.failed - intervals.safe > PROBE_RESOLUTION) {
+            interval = (intervals.safe + intervals.failed) / 2;
+        } else {
+            interval = intervals.safe;
+        }
+
+        return Math.max(MIN_IDLE_INTERVAL, Math.min(interval, maxInterval));
+    }
+
+    /**
+     * Records that the server answered after the connection was idle for {@code interval} milliseconds.
+     */
+    public synchronized void onIdleRefreshed(String server, NetworkType networkType, long interval) {
+        String key = createKey(server, networkType);
+        Intervals intervals = getIntervals(key);
+        if (interval < intervals.safe + MIN_INTERVAL_INCREASE) {
+            if (intervals.failed != 0 && ++intervals.refreshesSinceProbe >= REPROBE_AFTER_REFRESHES) {
+                Timber.i("Probing IDLE intervals longer than %d ms again for %s", intervals.safe, key);
+                saveIntervals(key, new Intervals(intervals.safe, 0));
+            }
+            return;
+        }
+
+        long failed = intervals.failed > interval ? intervals.failed : 0;
+        saveIntervals(key, new Intervals(interval, failed));
+    }
+
+    /**
+     * Records that the connection was lost when IDLE was refreshed after {@code interval} milliseconds.
+     */
+    public synchronized void onIdleRefreshFailed(String server, NetworkType networkType, long interval) {
+        String key = createKey(server, networkType);
+        Intervals intervals = getIntervals(key);
+
+        // An interval that used to work failed, so the network has changed. Start learning from a shorter interval.
+        long safe = intervals.safe < interval ? intervals.safe : Math.max(MIN_IDLE_INTERVAL, interval / 2);
+        saveIntervals(key, new Intervals(safe, interval));
+
+        Timber.i("IDLE refresh after %d ms failed for %s", interval, key);
+    }
+
+    IdleRefreshScheduler.ScheduledRefresh scheduleRefresh(long interval, Runnable refresh) {
+        return refreshScheduler.schedule(interval, refresh);
+    }
+
+    private Intervals getIntervals(String key) {
+        Intervals intervals = intervalsByKey.get(key);
+        if (intervals == null) {
+            long safe = Math.max(MIN_IDLE_INTERVAL, intervalStore.getSafeInterval(key));
+            long failed = intervalStore.getFailedInterval(key);
+            intervals = new Intervals(safe, failed);
+            intervalsByKey.put(key, intervals);
+        }
+
+        return intervals;
+    }
+
+    private void saveIntervals(String key, Intervals intervals) {
+        intervalsByKey.put(key, intervals);
+        intervalStore.saveIntervals(key, intervals.safe, intervals.failed);
+    }
+
+    private static String createKey(String server, NetworkType networkType) {
+        return server + "/" + networkType;
+    }
+
+
+    private static class Intervals {
+        final long safe;
+        final long failed;
+        int refreshesSinceProbe = 0;
+
+
+        Intervals(long safe, long failed) {
+            this.safe = safe;
+            this.failed = failed;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.fsck.k9.mail.store.imap;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import android.os.SystemClock;
+
+
+/**
+ * Schedules IDLE refreshes so that refreshes due at about the same time are run together.
+ *
+ * <p>
+ * A refresh may be moved forward by up to {@link #BATCH_WINDOW} of its interval to join a wakeup that has already
+ * been scheduled. It is never moved back, because the interval is the longest time the connection is expected to
+ * survive without traffic.
+ * </p>
+ * <p>
+ * Refreshes are run by a plain {@link ScheduledExecutorService}, which doesn't wake the device. So batching only
+ * works while the device is awake. A refresh due while the device sleeps runs once it wakes up, e.g. because data
+ * arrived on one of the connections.
+ * </p>
+ */
+class IdleRefreshScheduler {
+    static final float BATCH_WINDOW = 0.25f;
+
+
+    private final ScheduledExecutorService executor;
+    private final List<Wakeup> wakeups = new ArrayList<>();
+
+
+    IdleRefreshScheduler(ScheduledExecutorService executor) {
+        this.executor = executor;
+    }
+
+    synchronized ScheduledRefresh schedule(long interval, Runnable refresh) {
+        long now = elapsedRealtime();
+        long latest = now + interval;
+        long earliest = latest - (long) (interval * BATCH_WINDOW);
+
+        Wakeup wakeup = findWakeup(earliest, latest);
+        if (wakeup == null) {
+            wakeup = new Wakeup(latest);
+            wakeups.add(wakeup);
+
+            final Wakeup scheduledWakeup = wakeup;
+            wakeup.future = executor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    runWakeup(scheduledWakeup);
+                }
+            }, interval, TimeUnit.MILLISECONDS);
+        }
+
+        ScheduledRefresh scheduledRefresh = new ScheduledRefresh(wakeup, refresh);
+        wakeup.refreshes.add(scheduledRefresh);
+
+        return scheduledRefresh;
+    }
+
+    synchronized int getWakeupCount() {
+        return wakeups.size();
+    }
+
+    long elapsedRealtime() {
+        return SystemClock.elapsedRealtime();
+    }
+
+    private Wakeup findWakeup(long earliest, long latest) {
+        for (Wakeup wakeup : wakeups) {
+            if (wakeup.time >= earliest && wakeup.time <= latest) {
+                return wakeup;
+            }
+        }
+
+        return null;
+    }
+
+    private synchronized void cancel(ScheduledRefresh scheduledRefresh) {
+        Wakeup wakeup = scheduledRefresh.wakeup;
+        if (!wakeup.refreshes.remove(scheduledRefresh)) {
+            return;
+        }
+
+        if (wakeup.refreshes.isEmpty() && wakeups.remove(wakeup)) {
+            wakeup.future.cancel(false);
+        }
+    }
+
+    void runWakeup(Wakeup wakeup) {
+        List<ScheduledRefresh> refreshes;
+        synchronized (this) {
+            wakeups.remove(wakeup);
+            refreshes = new ArrayList<>(wakeup.refreshes);
+            wakeup.refreshes.clear();
+        }
+
+        for (ScheduledRefresh scheduledRefresh : refreshes) {
+            scheduledRefresh.refresh.run();
+        }
+    }
+
+
+    static class Wakeup {
+        final long time;
+        final List<ScheduledRefresh> refreshes = new ArrayList<>();
+        ScheduledFuture<?> future;
+
+
+        Wakeup(long time) {
+            this.time = time;
+        }
+    }
+
+    class ScheduledRefresh {
+        private final Wakeup wakeup;
+        private final Runnable refresh;
+
+
+        ScheduledRefresh(Wakeup wakeup, Runnable refresh) {
+            this.wakeup = wakeup;
+            this.refresh = refresh;
+        }
+
+        void cancel() {
+            IdleRefreshScheduler.this.cancel(this);
+        }
+
+        Wakeup getWakeup() {
+            return wakeup;
+        }
+    }
+}
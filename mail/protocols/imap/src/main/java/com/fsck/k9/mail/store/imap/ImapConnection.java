@@ -19,9 +19,11 @@ import java.security.Security;
 import java.security.cert.CertificateException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.regex.Pattern;
 import java.util.zip.Inflater;
@@ -74,6 +76,23 @@ class ImapConnection {
     private static final int LENGTH_LIMIT_WITHOUT_CONDSTORE = 980;
     private static final int LENGTH_LIMIT_WITH_CONDSTORE = 8172;
 
+    /**
+     * The maximum number of commands that are sent to the server before we start reading responses.
+     *
+     * <p>
+     * We don't read responses while sending commands. So we need to make sure the server isn't blocked writing
+     * responses to us while we are blocked writing commands to the server.
+     * </p>
+     */
+    private static final int MAX_PIPELINED_COMMANDS = 8;
+
+    /**
+     * The maximum size of pipelined commands that are sent to the server before we start reading responses, as a
+     * multiple of the line length limit. This keeps the data in flight well below common socket buffer sizes so
+     * writing never blocks, while still allowing more than one command of maximum length per batch.
+     */
+    private static final int MAX_PIPELINED_LINES = 4;
+
 
     private final ConnectivityManager connectivityManager;
     private final OAuth2TokenProvider oauthTokenProvider;
@@ -566,14 +585,8 @@ class ImapConnection {
     private boolean shouldEnableCompression() {
         boolean useCompression = true;
 
-        NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
-        if (networkInfo != null) {
-            int type = networkInfo.getType();
-            if (K9MailLib.isDebug()) {
-                Timber.d("On network type %s", type);
-            }
-
-            NetworkType networkType = NetworkType.fromConnectivityManagerType(type);
+        NetworkType networkType = getNetworkType();
+        if (networkType != null) {
             useCompression = settings.useCompression(networkType);
         }
 
@@ -584,6 +597,27 @@ class ImapConnection {
         return useCompression;
     }
 
+    /**
+     * Returns the type of the active network, or {@code null} if there is none.
+     */
+    NetworkType getNetworkType() {
+        NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
+        if (networkInfo == null) {
+            return null;
+        }
+
+        int type = networkInfo.getType();
+        if (K9MailLib.isDebug()) {
+            Timber.d("On network type %s", type);
+        }
+
+        return NetworkType.fromConnectivityManagerType(type);
+    }
+
+    String getServer() {
+        return settings.getHost() + ":" + settings.getPort();
+    }
+
     private void enableCompression() throws IOException, MessagingException {
         try {
             executeSimpleCommand(Commands.COMPRESS_DEFLATE);
@@ -710,6 +744,18 @@ class ImapConnection {
         return capabilities.contains(Capabilities.UID_PLUS);
     }
 
+    boolean isEsearchCapable() {
+        return capabilities.contains(Capabilities.ESEARCH);
+    }
+
+    boolean isNotifyCapable() {
+        return capabilities.contains(Capabilities.NOTIFY);
+    }
+
+    boolean isMoveCapable() {
+        return capabilities.contains(Capabilities.MOVE);
+    }
+
     public void close() {
         if (!open) {
             return;
@@ -764,14 +810,104 @@ class ImapConnection {
         List<String> splitCommands = ImapCommandSplitter.splitCommand(
                 commandPrefix, commandSuffix, groupedIds, getLineLengthLimit());
 
+        return executePipelinedCommands(splitCommands);
+    }
+
+    /**
+     * Sends the given commands without waiting for the completion result of the previous command.
+     *
+     * <p>
+     * Only use this for commands that don't depend on each other, e.g. the parts of a command that was split to
+     * stay below the line length limit.
+     * </p>
+     *
+     * @return The untagged and tagged responses to all commands.
+     *
+     * @throws NegativeImapResponseException
+     *         If at least one of the commands failed. This is only thrown after the responses to all commands that
+     *         were sent have been read. Once a command failed, no more commands are sent.
+     */
+    List<ImapResponse> executePipelinedCommands(List<String> commands) throws IOException, MessagingException {
+        if (commands.size() == 1) {
+            return executeSimpleCommand(commands.get(0));
+        }
+
         List<ImapResponse> responses = new ArrayList<>();
-        for (String splitCommand : splitCommands) {
-            responses.addAll(executeSimpleCommand(splitCommand));
+        String failedCommand = null;
+        ImapResponse failedResponse = null;
+
+        int maxBatchLength = MAX_PIPELINED_LINES * getLineLengthLimit();
+        int batchStart = 0;
+        while (batchStart < commands.size() && failedResponse == null) {
+            int batchEnd = findPipelineBatchEnd(commands, batchStart, maxBatchLength);
+            List<String> batch = commands.subList(batchStart, batchEnd);
+            batchStart = batchEnd;
+
+            Map<String, String> pendingCommands = new HashMap<>();
+            try {
+                open();
+
+                for (String command : batch) {
+                    String tag = writeCommand(command, false);
+                    pendingCommands.put(tag, command);
+                }
+                outputStream.flush();
+            } catch (IOException | MessagingException e) {
+                close();
+                throw e;
+            }
+
+            while (!pendingCommands.isEmpty()) {
+                ImapResponse response = readResponse();
+
+                String tag = response.getTag();
+                if (tag == null) {
+                    responses.add(response);
+                    continue;
+                }
+
+                String command = pendingCommands.remove(tag);
+                if (command == null) {
+                    Timber.w("Got tagged response %s for a command we didn't send for %s", response, getLogId());
+                    continue;
+                }
+
+                responses.add(response);
+
+                boolean commandFailed = response.size() < 1 || !equalsIgnoreCase(response.get(0), Responses.OK);
+                if (commandFailed && failedResponse == null) {
+                    failedCommand = command;
+                    failedResponse = response;
+                }
+            }
+        }
+
+        if (failedResponse != null) {
+            String message = "Command: " + failedCommand + "; response: " + failedResponse.toString();
+
+            // NegativeImapResponseException#getLastResponse() is expected to return the failed status response
+            responses.remove(failedResponse);
+            responses.add(failedResponse);
+            throw new NegativeImapResponseException(message, responses);
         }
 
         return responses;
     }
 
+    private static int findPipelineBatchEnd(List<String> commands, int batchStart, int maxBatchLength) {
+        int batchEnd = batchStart + 1;
+        int batchBytes = commands.get(batchStart).length();
+        while (batchEnd < commands.size() && batchEnd - batchStart < MAX_PIPELINED_COMMANDS) {
+            batchBytes += commands.get(batchEnd).length();
+            if (batchBytes > maxBatchLength) {
+                break;
+            }
+            batchEnd++;
+        }
+
+        return batchEnd;
+    }
+
     public List<ImapResponse> readStatusResponse(String tag, String commandToLog, UntaggedHandler untaggedHandler)
             throws IOException, NegativeImapResponseException {
         return responseParser.readStatusResponse(tag, commandToLog, getLogId(), untaggedHandler);
@@ -806,19 +942,9 @@ class ImapConnection {
         try {
             open();
 
-            String tag = Integer.toString(nextCommandTag++);
-            String commandToSend = tag + " " + command + "\r\n";
-            outputStream.write(commandToSend.getBytes());
+            String tag = writeCommand(command, sensitive);
             outputStream.flush();
 
-            if (K9MailLib.isDebug() && DEBUG_PROTOCOL_IMAP) {
-                if (sensitive && !K9MailLib.isDebugSensitive()) {
-                    Timber.v("%s>>> [Command Hidden, Enable Sensitive Debug Logging To Show]", getLogId());
-                } else {
-                    Timber.v("%s>>> %s %s", getLogId(), tag, command);
-                }
-            }
-
             return tag;
         } catch (IOException | MessagingException e) {
             close();
@@ -826,6 +952,22 @@ class ImapConnection {
         }
     }
 
+    private String writeCommand(String command, boolean sensitive) throws IOException {
+        String tag = Integer.toString(nextCommandTag++);
+        String commandToSend = tag + " " + command + "\r\n";
+        outputStream.write(commandToSend.getBytes());
+
+        if (K9MailLib.isDebug() && DEBUG_PROTOCOL_IMAP) {
+            if (sensitive && !K9MailLib.isDebugSensitive()) {
+                Timber.v("%s>>> [Command Hidden, Enable Sensitive Debug Logging To Show]", getLogId());
+            } else {
+                Timber.v("%s>>> %s %s", getLogId(), tag, command);
+            }
+        }
+
+        return tag;
+    }
+
     public void sendContinuation(String continuation) throws IOException {
         outputStream.write(continuation.getBytes());
         outputStream.write('\r');
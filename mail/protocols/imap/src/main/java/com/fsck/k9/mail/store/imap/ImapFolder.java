@@ -4,6 +4,7 @@ package com.fsck.k9.mail.store.imap;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -50,10 +51,13 @@ public class ImapFolder extends Folder<ImapMessage> {
     };
     private static final int MORE_MESSAGES_WINDOW_SIZE = 500;
     private static final int FETCH_WINDOW_SIZE = 100;
+    static final int CHUNKED_FETCH_THRESHOLD = 1024 * 1024;
+    static final int PART_CHUNK_SIZE = 256 * 1024;
 
 
     protected volatile int messageCount = -1;
     protected volatile long uidNext = -1L;
+    protected volatile long highestModSeq = -1L;
     protected volatile ImapConnection connection;
     protected ImapStore store = null;
     protected Map<Long, String> msgSeqUidMap = new ConcurrentHashMap<>();
@@ -76,6 +80,13 @@ public class ImapFolder extends Folder<ImapMessage> {
         this.folderNameCodec = folderNameCodec;
     }
 
+    /**
+     * Returns the folder name as it is used in IMAP commands, before quoting.
+     */
+    String getEncodedName() throws MessagingException {
+        return folderNameCodec.encode(getPrefixedName());
+    }
+
     private String getPrefixedName() throws MessagingException {
         String prefixedName = "";
 
@@ -139,6 +150,7 @@ public class ImapFolder extends Folder<ImapMessage> {
 
         try {
             msgSeqUidMap.clear();
+            highestModSeq = -1L;
 
             String openCommand = mode == OPEN_MODE_RW ? "SELECT" : "EXAMINE";
             String encodedFolderName = folderNameCodec.encode(getPrefixedName());
@@ -345,9 +357,46 @@ public class ImapFolder extends Folder<ImapMessage> {
             return null;
         }
 
-        ImapFolder imapFolder = (ImapFolder) folder;
         checkOpen(); //only need READ access
 
+        return copyOrMoveMessages(Commands.UID_COPY, messages, (ImapFolder) folder);
+    }
+
+    /**
+     * Moves the messages to another folder on the same server.
+     *
+     * <p>
+     * If the server supports the MOVE extension (RFC 6851) all messages are moved with {@code UID MOVE} commands
+     * covering ranges of UIDs. Otherwise the messages are copied and then marked as deleted.
+     * </p>
+     *
+     * @return The mapping of original message UIDs to the new server UIDs.
+     */
+    @Override
+    public Map<String, String> moveMessages(List<? extends Message> messages, Folder folder) throws MessagingException {
+        if (messages.isEmpty()) {
+            return null;
+        }
+
+        if (!(folder instanceof ImapFolder)) {
+            throw new MessagingException("ImapFolder.moveMessages passed non-ImapFolder");
+        }
+
+        checkOpen();
+
+        if (connection.isMoveCapable()) {
+            return copyOrMoveMessages(Commands.UID_MOVE, messages, (ImapFolder) folder);
+        }
+
+        Map<String, String> uidMapping = copyMessages(messages, folder);
+
+        setFlags(messages, Collections.singleton(Flag.DELETED), true);
+
+        return uidMapping;
+    }
+
+    private Map<String, String> copyOrMoveMessages(String command, List<? extends Message> messages,
+            ImapFolder imapFolder) throws MessagingException {
         Set<Long> uids = new HashSet<>(messages.size());
         for (int i = 0, count = messages.size(); i < count; i++) {
             uids.add(Long.parseLong(messages.get(i).getUid()));
@@ -359,7 +408,7 @@ public class ImapFolder extends Folder<ImapMessage> {
         //TODO: Just perform the operation and only check for existence of the folder if the operation fails.
         if (!exists(escapedDestinationFolderName)) {
             if (K9MailLib.isDebug()) {
-                Timber.i("ImapFolder.copyMessages: couldn't find remote folder '%s' for %s",
+                Timber.i("ImapFolder.copyOrMoveMessages: couldn't find remote folder '%s' for %s",
                         escapedDestinationFolderName, getLogId());
             }
 
@@ -367,10 +416,14 @@ public class ImapFolder extends Folder<ImapMessage> {
         }
 
         try {
-            List<ImapResponse> imapResponses = connection.executeCommandWithIdSet(Commands.UID_COPY,
+            List<ImapResponse> imapResponses = connection.executeCommandWithIdSet(command,
                     escapedDestinationFolderName, uids);
 
-            UidCopyResponse response = UidCopyResponse.parse(imapResponses);
+            // UID MOVE reports the moved messages with untagged EXPUNGE responses
+            handleUntaggedResponses(imapResponses);
+
+            boolean isMove = Commands.UID_MOVE.equals(command);
+            UidCopyResponse response = UidCopyResponse.parse(imapResponses, isMove);
             return response == null ? null : response.getUidMapping();
         } catch (IOException ioe) {
             throw ioExceptionHandler(connection, ioe);
@@ -378,21 +431,24 @@ public class ImapFolder extends Folder<ImapMessage> {
     }
 
     @Override
-    public Map<String, String> moveMessages(List<? extends Message> messages, Folder folder) throws MessagingException {
-        if (messages.isEmpty()) {
-            return null;
-        }
-
-        Map<String, String> uidMapping = copyMessages(messages, folder);
-
-        setFlags(messages, Collections.singleton(Flag.DELETED), true);
+    public int getMessageCount() {
+        return messageCount;
+    }
 
-        return uidMapping;
+    /**
+     * Returns the {@code UIDNEXT} value reported when the folder was opened, or {@code -1} if the server didn't send
+     * one.
+     */
+    public long getUidNext() {
+        return uidNext;
     }
 
-    @Override
-    public int getMessageCount() {
-        return messageCount;
+    /**
+     * Returns the {@code HIGHESTMODSEQ} value reported when the folder was opened, or {@code -1} if the server doesn't
+     * support CONDSTORE (RFC 7162) for this folder.
+     */
+    public long getHighestModSeq() {
+        return highestModSeq;
     }
 
     private int getRemoteMessageCount(String criteria) throws MessagingException {
@@ -735,6 +791,11 @@ public class ImapFolder extends Folder<ImapMessage> {
 
         String partId = part.getServerExtra();
 
+        if (!"TEXT".equalsIgnoreCase(partId) && getPartSize(part) > CHUNKED_FETCH_THRESHOLD) {
+            fetchPartInChunks((ImapMessage) message, part, partId, listener, bodyFactory);
+            return;
+        }
+
         String fetch;
         if ("TEXT".equalsIgnoreCase(partId)) {
             int maximumAutoDownloadMessageSize = store.getStoreConfig().getMaximumAutoDownloadMessageSize();
@@ -808,6 +869,116 @@ public class ImapFolder extends Folder<ImapMessage> {
         }
     }
 
+    private static long getPartSize(Part part) {
+        String[] contentDisposition = part.getHeader(MimeHeader.HEADER_CONTENT_DISPOSITION);
+        if (contentDisposition.length == 0) {
+            return -1;
+        }
+
+        String size = MimeUtility.getHeaderParameter(contentDisposition[0], "size");
+        if (size == null) {
+            return -1;
+        }
+
+        try {
+            return Long.parseLong(size);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Download a large body part using partial fetches, so a connection loss doesn't require starting over.
+     */
+    private void fetchPartInChunks(final ImapMessage message, Part part, final String partId,
+            MessageRetrievalListener<Message> listener, BodyFactory bodyFactory) throws MessagingException {
+        if (listener != null) {
+            listener.messageStarted(message.getUid(), 0, 1);
+        }
+
+        ChunkedPartInputStream partInputStream = new ChunkedPartInputStream(new ChunkedPartInputStream.ChunkFetcher() {
+            @Override
+            public byte[] fetchChunk(long offset, int length) throws IOException, MessagingException {
+                return fetchPartChunk(message, partId, offset, length);
+            }
+
+            @Override
+            public void reconnect() throws MessagingException {
+                reopen();
+            }
+        }, PART_CHUNK_SIZE);
+
+        try {
+            String contentTransferEncoding = part.getHeader(MimeHeader.HEADER_CONTENT_TRANSFER_ENCODING)[0];
+            String contentType = part.getHeader(MimeHeader.HEADER_CONTENT_TYPE)[0];
+            Body body = bodyFactory.createBody(contentTransferEncoding, contentType, partInputStream);
+            MimeMessageHelper.setBody(part, body);
+        } catch (ChunkedPartInputStream.ChunkFetchException e) {
+            throw e.getMessagingException();
+        } catch (IOException ioe) {
+            throw ioExceptionHandler(connection, ioe);
+        }
+
+        if (listener != null) {
+            listener.messageFinished(message, 1, 1);
+        }
+    }
+
+    private byte[] fetchPartChunk(ImapMessage message, String partId, long offset, int length)
+            throws IOException, MessagingException {
+        checkOpen();
+
+        String command = String.format(Locale.US, "UID FETCH %s (UID BODY.PEEK[%s]<%d.%d>)",
+                message.getUid(), partId, offset, length);
+        connection.sendCommand(command, false);
+
+        byte[] chunk = new byte[0];
+        ImapResponseCallback callback = new FetchPartChunkCallback();
+
+        ImapResponse response;
+        do {
+            response = connection.readResponse(callback);
+
+            if (response.getTag() == null && ImapResponseParser.equalsIgnoreCase(response.get(1), "FETCH")) {
+                ImapList fetchList = (ImapList) response.getKeyedValue("FETCH");
+                String uid = fetchList.getKeyedString("UID");
+
+                if (!message.getUid().equals(uid)) {
+                    handleUntaggedResponse(response);
+                    continue;
+                }
+
+                Object literal = handleFetchResponse(message, fetchList);
+                if (literal instanceof byte[]) {
+                    chunk = (byte[]) literal;
+                } else if (literal instanceof String && !"NIL".equalsIgnoreCase((String) literal)) {
+                    chunk = ((String) literal).getBytes(StandardCharsets.US_ASCII);
+                }
+            } else {
+                handleUntaggedResponse(response);
+            }
+        } while (response.getTag() == null);
+
+        // An empty chunk marks the end of the part, so a failed fetch must not be mistaken for one
+        if (response.size() < 1 || !ImapResponseParser.equalsIgnoreCase(response.get(0), Responses.OK)) {
+            String errorMessage = "Command: " + command + "; response: " + response;
+            throw new NegativeImapResponseException(errorMessage, Collections.singletonList(response));
+        }
+
+        return chunk;
+    }
+
+    private void reopen() throws MessagingException {
+        int openMode = mode;
+
+        if (connection != null) {
+            connection.close();
+        }
+        close();
+
+        open(openMode);
+    }
+
     // Returns value of body field
     private Object handleFetchResponse(ImapMessage message, ImapList fetchList) throws MessagingException {
         Object result = null;
@@ -878,6 +1049,46 @@ public class ImapFolder extends Folder<ImapMessage> {
         return result;
     }
 
+    /**
+     * Fetches the flags of all messages whose mod-sequence is higher than {@code modSeq}.
+     *
+     * <p>
+     * This uses the {@code CHANGEDSINCE} FETCH modifier of the CONDSTORE extension (RFC 7162). Only call it if
+     * {@link #getHighestModSeq()} returned a positive value.
+     * </p>
+     *
+     * @return The messages with changed flags. Only the UID and the flags of the returned messages are populated.
+     */
+    public List<ImapMessage> fetchChangedFlags(long modSeq) throws MessagingException {
+        checkOpen();
+
+        String command = String.format(Locale.US, "UID FETCH 1:* (UID FLAGS) (CHANGEDSINCE %d)", modSeq);
+        try {
+            List<ImapResponse> imapResponses = executeSimpleCommand(command);
+
+            List<ImapMessage> messages = new ArrayList<>();
+            for (ImapResponse response : imapResponses) {
+                if (response.getTag() != null || !ImapResponseParser.equalsIgnoreCase(response.get(1), "FETCH")) {
+                    continue;
+                }
+
+                ImapList fetchList = (ImapList) response.getKeyedValue("FETCH");
+                String uid = fetchList.getKeyedString("UID");
+                if (uid == null) {
+                    continue;
+                }
+
+                ImapMessage message = new ImapMessage(uid, this);
+                handleFetchResponse(message, fetchList);
+                messages.add(message);
+            }
+
+            return messages;
+        } catch (IOException ioe) {
+            throw ioExceptionHandler(connection, ioe);
+        }
+    }
+
     protected List<ImapResponse> handleUntaggedResponses(List<ImapResponse> responses) {
         for (ImapResponse response : responses) {
             handleUntaggedResponse(response);
@@ -908,6 +1119,20 @@ public class ImapFolder extends Folder<ImapMessage> {
         }
     }
 
+    private void handlePossibleHighestModSeq(ImapResponse response) {
+        if (!ImapResponseParser.equalsIgnoreCase(response.get(0), "OK") || !response.isList(1)) {
+            return;
+        }
+
+        ImapList bracketed = response.getList(1);
+        if (bracketed.size() > 1 && ImapResponseParser.equalsIgnoreCase(bracketed.get(0), "HIGHESTMODSEQ")) {
+            highestModSeq = bracketed.getLong(1);
+            if (K9MailLib.isDebug()) {
+                Timber.d("Got HighestModSeq = %s for %s", highestModSeq, getLogId());
+            }
+        }
+    }
+
     /**
      * Handle an untagged response that the caller doesn't care to handle themselves.
      */
@@ -921,6 +1146,7 @@ public class ImapFolder extends Folder<ImapMessage> {
             }
 
             handlePossibleUidNext(response);
+            handlePossibleHighestModSeq(response);
 
             if (ImapResponseParser.equalsIgnoreCase(response.get(1), "EXPUNGE") && messageCount > 0) {
                 messageCount--;
@@ -1233,7 +1459,9 @@ public class ImapFolder extends Folder<ImapMessage> {
                 for (String uid : uids) {
                     longUids.add(Long.parseLong(uid));
                 }
-                connection.executeCommandWithIdSet(Commands.UID_EXPUNGE, "", longUids);
+                List<ImapResponse> imapResponses = connection.executeCommandWithIdSet(Commands.UID_EXPUNGE, "",
+                        longUids);
+                handleUntaggedResponses(imapResponses);
             } else {
                 executeSimpleCommand("EXPUNGE");
             }
@@ -1379,6 +1607,7 @@ public class ImapFolder extends Folder<ImapMessage> {
                     .performFullTextSearch(store.getStoreConfig().isRemoteSearchFullText())
                     .requiredFlags(requiredFlags)
                     .forbiddenFlags(forbiddenFlags)
+                    .useEsearch(connection.isEsearchCapable())
                     .build();
 
             try {
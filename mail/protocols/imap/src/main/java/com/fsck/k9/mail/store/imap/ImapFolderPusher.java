@@ -5,18 +5,24 @@ import java.io.IOException;
 import java.net.SocketException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import android.os.SystemClock;
+
 import com.fsck.k9.mail.AuthenticationFailedException;
 import com.fsck.k9.mail.CertificateValidationException;
 import com.fsck.k9.mail.Flag;
 import com.fsck.k9.mail.K9MailLib;
 import com.fsck.k9.mail.Message;
 import com.fsck.k9.mail.MessagingException;
+import com.fsck.k9.mail.NetworkType;
 import com.fsck.k9.mail.PushReceiver;
 import com.fsck.k9.mail.power.PowerManager;
 import com.fsck.k9.mail.power.WakeLock;
@@ -28,7 +34,8 @@ import static com.fsck.k9.mail.store.imap.ImapResponseParser.equalsIgnoreCase;
 
 
 class ImapFolderPusher extends ImapFolder {
-    private static final int IDLE_READ_TIMEOUT_INCREMENT = 5 * 60 * 1000;
+    private static final int IDLE_REFRESH_RESPONSE_TIMEOUT = 60 * 1000;
+    private static final int MAX_IDLE_REFRESH_DELAY = 10 * 1000;
     private static final int IDLE_FAILURE_COUNT_LIMIT = 10;
     private static final int MAX_DELAY_TIME = 5 * 60 * 1000; // 5 minutes
     private static final int NORMAL_DELAY_TIME = 5000;
@@ -39,14 +46,44 @@ class ImapFolderPusher extends ImapFolder {
     private final IdleStopper idleStopper = new IdleStopper();
     private final WakeLock wakeLock;
     private final List<ImapResponse> storedUntaggedResponses = new ArrayList<>();
+    private final List<String> notifyFolderServerIds;
+    private final NotifyFallback notifyFallback;
+    private final Map<String, String> notifyFolderServerIdsByEncodedName = new HashMap<>();
+    private final Set<String> changedNotifyFolderServerIds = new LinkedHashSet<>();
+    private final IdleKeepAliveController keepAliveController;
+    private boolean notifyFallbackStarted = false;
+    private boolean notifyEnabled = false;
     private Thread listeningThread;
     private volatile boolean stop = false;
     private volatile boolean idling = false;
+    private volatile long idleRefreshRequestedAfter = -1;
+
 
+    public ImapFolderPusher(ImapStore store, String serverId, IdleKeepAliveController keepAliveController,
+            PushReceiver pushReceiver, PowerManager powerManager) {
+        this(store, serverId, Collections.<String>emptyList(), null, keepAliveController, pushReceiver, powerManager);
+    }
 
-    public ImapFolderPusher(ImapStore store, String serverId, PushReceiver pushReceiver, PowerManager powerManager) {
+    /**
+     * Create a pusher that uses its connection to also watch other folders if the server supports the NOTIFY
+     * extension (RFC 5465).
+     *
+     * @param notifyFolderServerIds
+     *         The other folders to watch. For these only {@link PushReceiver#syncFolder(String)} is called when
+     *         something changed.
+     * @param notifyFallback
+     *         Called when the server doesn't support NOTIFY, so the other folders need to be watched separately.
+     * @param keepAliveController
+     *         Decides when the IDLE command is refreshed.
+     */
+    public ImapFolderPusher(ImapStore store, String serverId, List<String> notifyFolderServerIds,
+            NotifyFallback notifyFallback, IdleKeepAliveController keepAliveController, PushReceiver pushReceiver,
+            PowerManager powerManager) {
         super(store, serverId);
         this.pushReceiver = pushReceiver;
+        this.notifyFolderServerIds = notifyFolderServerIds;
+        this.notifyFallback = notifyFallback;
+        this.keepAliveController = keepAliveController;
 
         String tag = "ImapFolderPusher " + store.getStoreConfig().toString() + ":" + getServerId();
         wakeLock = powerManager.newWakeLock(tag);
@@ -113,6 +150,33 @@ class ImapFolderPusher extends ImapFolder {
 
             handlePossibleUidNext(response);
         }
+
+        handlePossibleNotifyStatus(response);
+    }
+
+    /**
+     * Remember the folder of a {@code STATUS} response sent because of NOTIFY, so it can be synchronized.
+     *
+     * @return {@code true} if the response was a {@code STATUS} response for one of the watched folders.
+     */
+    private boolean handlePossibleNotifyStatus(ImapResponse response) {
+        if (response.getTag() != null || response.size() < 2 || !equalsIgnoreCase(response.get(0), "STATUS") ||
+                !response.isString(1)) {
+            return false;
+        }
+
+        String folderServerId;
+        synchronized (notifyFolderServerIdsByEncodedName) {
+            folderServerId = notifyFolderServerIdsByEncodedName.get(response.getString(1));
+        }
+        if (folderServerId == null) {
+            return false;
+        }
+
+        synchronized (changedNotifyFolderServerIds) {
+            changedNotifyFolderServerIds.add(folderServerId);
+        }
+        return true;
     }
 
     private void superHandleUntaggedResponse(ImapResponse response) {
@@ -155,12 +219,21 @@ class ImapFolderPusher extends ImapFolder {
                         break;
                     }
 
+                    boolean notifyJustEnabled = false;
+                    if (openedNewConnection) {
+                        notifyJustEnabled = enableNotifyIfSupported();
+                    }
+
                     boolean pushPollOnConnect = store.getStoreConfig().isPushPollOnConnect();
                     if (pushPollOnConnect && (openedNewConnection || needsPoll)) {
                         needsPoll = false;
                         syncFolderOnConnect();
                     }
 
+                    if (pushPollOnConnect && notifyJustEnabled) {
+                        syncNotifyFolders(notifyFolderServerIds);
+                    }
+
                     if (stop) {
                         break;
                     }
@@ -173,6 +246,7 @@ class ImapFolderPusher extends ImapFolder {
                         notifyMessagesArrived(startUid, newUidNext);
                     } else {
                         processStoredUntaggedResponses();
+                        processChangedNotifyFolders();
 
                         if (K9MailLib.isDebug()) {
                             Timber.i("About to IDLE for %s", getLogId());
@@ -181,8 +255,7 @@ class ImapFolderPusher extends ImapFolder {
                         prepareForIdle();
 
                         ImapConnection conn = connection;
-                        setReadTimeoutForIdle(conn);
-                        sendIdle(conn);
+                        idleWithKeepAlive(conn);
 
                         returnFromIdle();
                     }
@@ -229,6 +302,7 @@ class ImapFolderPusher extends ImapFolder {
             }
 
             pushReceiver.setPushActive(getServerId(), false);
+            disableNotifyPushActive();
 
             try {
                 if (K9MailLib.isDebug()) {
@@ -249,6 +323,7 @@ class ImapFolderPusher extends ImapFolder {
             clearStoredUntaggedResponses();
             idling = false;
             pushReceiver.setPushActive(getServerId(), false);
+            disableNotifyPushActive();
 
             try {
                 connection.close();
@@ -300,9 +375,25 @@ class ImapFolderPusher extends ImapFolder {
 
         private void prepareForIdle() {
             pushReceiver.setPushActive(getServerId(), true);
+            if (notifyEnabled) {
+                setNotifyFoldersPushActive(true);
+            }
             idling = true;
         }
 
+        private void disableNotifyPushActive() {
+            if (notifyEnabled) {
+                notifyEnabled = false;
+                setNotifyFoldersPushActive(false);
+            }
+        }
+
+        private void setNotifyFoldersPushActive(boolean enabled) {
+            for (String folderServerId : notifyFolderServerIds) {
+                pushReceiver.setPushActive(folderServerId, enabled);
+            }
+        }
+
         private void sendIdle(ImapConnection conn) throws MessagingException, IOException {
             String tag = conn.sendCommand(Commands.IDLE, false);
 
@@ -359,9 +450,66 @@ class ImapFolderPusher extends ImapFolder {
             }
         }
 
-        private void setReadTimeoutForIdle(ImapConnection conn) throws SocketException {
-            int idleRefreshTimeout = store.getStoreConfig().getIdleRefreshMinutes() * 60 * 1000;
-            conn.setReadTimeout(idleRefreshTimeout + IDLE_READ_TIMEOUT_INCREMENT);
+        /**
+         * Send IDLE and refresh it after the interval the keep-alive controller considers safe for this network.
+         *
+         * <p>
+         * If the server doesn't answer the refresh within {@link #IDLE_REFRESH_RESPONSE_TIMEOUT} the connection is
+         * considered dead and the interval is remembered as too long.
+         * </p>
+         * <p>
+         * The scheduled refresh doesn't wake the device from deep sleep. A refresh that ran much later than requested
+         * says nothing about the interval that was requested, so it is not reported to the keep-alive controller.
+         * </p>
+         */
+        private void idleWithKeepAlive(ImapConnection conn) throws MessagingException, IOException {
+            String server = conn.getServer();
+            NetworkType networkType = conn.getNetworkType();
+            long maxInterval = store.getStoreConfig().getIdleRefreshMinutes() * 60 * 1000L;
+            final long idleInterval = keepAliveController.getIdleInterval(server, networkType, maxInterval);
+
+            setReadTimeoutForIdle(conn, idleInterval);
+
+            // The refresh may be run a bit early to share a wakeup with other connections. So the time the
+            // connection was actually idle is recorded.
+            final long idleStartTime = SystemClock.elapsedRealtime();
+            final long latestRefreshTime = idleInterval + MAX_IDLE_REFRESH_DELAY;
+            idleRefreshRequestedAfter = -1;
+            IdleRefreshScheduler.ScheduledRefresh scheduledRefresh = keepAliveController.scheduleRefresh(idleInterval,
+                    new Runnable() {
+                        @Override
+                        public void run() {
+                            long idleTime = SystemClock.elapsedRealtime() - idleStartTime;
+                            if (idleTime <= latestRefreshTime) {
+                                // A refresh that ran a few ms late still only tells us the requested interval works
+                                idleRefreshRequestedAfter = Math.min(idleTime, idleInterval);
+                            } else if (K9MailLib.isDebug()) {
+                                Timber.d("IDLE refresh delayed to %d ms, not using it to learn interval for %s",
+                                        idleTime, getLogId());
+                            }
+                            refresh();
+                        }
+                    });
+            try {
+                sendIdle(conn);
+            } catch (IOException e) {
+                long idleTime = idleRefreshRequestedAfter;
+                if (idleTime != -1 && !stop) {
+                    keepAliveController.onIdleRefreshFailed(server, networkType, idleTime);
+                }
+                throw e;
+            } finally {
+                scheduledRefresh.cancel();
+            }
+
+            long idleTime = idleRefreshRequestedAfter;
+            if (idleTime != -1) {
+                keepAliveController.onIdleRefreshed(server, networkType, idleTime);
+            }
+        }
+
+        private void setReadTimeoutForIdle(ImapConnection conn, long idleInterval) throws SocketException {
+            conn.setReadTimeout((int) idleInterval + IDLE_REFRESH_RESPONSE_TIMEOUT);
         }
 
         @Override
@@ -375,6 +523,14 @@ class ImapFolderPusher extends ImapFolder {
                     Timber.d("Got async untagged response: %s, but stop is set for %s", response, getLogId());
                 }
 
+                idleStopper.stopIdle();
+            } else if (handlePossibleNotifyStatus(response)) {
+                wakeLock.acquire(PUSH_WAKE_LOCK_TIMEOUT);
+
+                if (K9MailLib.isDebug()) {
+                    Timber.d("Got STATUS response for watched folder: %s for %s", response, getLogId());
+                }
+
                 idleStopper.stopIdle();
             } else {
                 if (response.getTag() == null) {
@@ -643,6 +799,79 @@ class ImapFolderPusher extends ImapFolder {
             }
         }
 
+        /**
+         * Ask the server to report changes to the other watched folders on this connection.
+         *
+         * @return {@code true} if NOTIFY was enabled.
+         */
+        private boolean enableNotifyIfSupported() throws MessagingException, IOException {
+            if (notifyFolderServerIds.isEmpty() || notifyFallbackStarted) {
+                return false;
+            }
+
+            ImapConnection conn = connection;
+            if (!conn.isNotifyCapable()) {
+                startNotifyFallback();
+                return false;
+            }
+
+            StringBuilder mailboxes = new StringBuilder();
+            synchronized (notifyFolderServerIdsByEncodedName) {
+                notifyFolderServerIdsByEncodedName.clear();
+                for (String folderServerId : notifyFolderServerIds) {
+                    String encodedName = store.getFolder(folderServerId).getEncodedName();
+                    notifyFolderServerIdsByEncodedName.put(encodedName, folderServerId);
+
+                    mailboxes.append(' ').append(ImapUtility.encodeString(encodedName));
+                }
+            }
+
+            String command = "NOTIFY SET (selected (MessageNew MessageExpunge FlagChange)) " +
+                    "(mailboxes" + mailboxes + " (MessageNew MessageExpunge FlagChange))";
+            try {
+                handleUntaggedResponses(conn.executeSimpleCommand(command));
+            } catch (NegativeImapResponseException e) {
+                Timber.w(e, "NOTIFY command failed for %s", getLogId());
+                startNotifyFallback();
+                return false;
+            }
+
+            Timber.i("Watching %d other folders using NOTIFY for %s", notifyFolderServerIds.size(), getLogId());
+            notifyEnabled = true;
+            return true;
+        }
+
+        private void startNotifyFallback() {
+            notifyFallbackStarted = true;
+            if (notifyFallback != null) {
+                notifyFallback.watchFoldersSeparately(ImapFolderPusher.this, notifyFolderServerIds);
+            }
+        }
+
+        private void processChangedNotifyFolders() {
+            List<String> folderServerIds;
+            synchronized (changedNotifyFolderServerIds) {
+                if (changedNotifyFolderServerIds.isEmpty()) {
+                    return;
+                }
+
+                folderServerIds = new ArrayList<>(changedNotifyFolderServerIds);
+                changedNotifyFolderServerIds.clear();
+            }
+
+            syncNotifyFolders(folderServerIds);
+        }
+
+        /**
+         * Queue a regular synchronization of the watched folders. The folders are synchronized using their own
+         * connections, so the pusher can go back to IDLE right away.
+         */
+        private void syncNotifyFolders(List<String> folderServerIds) {
+            for (String folderServerId : folderServerIds) {
+                pushReceiver.syncFolder(folderServerId);
+            }
+        }
+
         private void syncFolderOnConnect() throws MessagingException {
             processStoredUntaggedResponses();
 
@@ -687,6 +916,10 @@ class ImapFolderPusher extends ImapFolder {
         }
     }
 
+    interface NotifyFallback {
+        void watchFoldersSeparately(ImapFolderPusher pusher, List<String> folderServerIds);
+    }
+
     /**
      * Ensure the DONE continuation is only sent when the IDLE command was sent and hasn't completed yet.
      */
@@ -2,6 +2,7 @@ package com.fsck.k9.mail.store.imap;
 
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import com.fsck.k9.mail.K9MailLib;
@@ -15,16 +16,26 @@ public class ImapPusher implements Pusher {
     private final ImapStore store;
     private final PushReceiver pushReceiver;
     private final PowerManager powerManager;
+    private final IdleKeepAliveController keepAliveController;
 
     private final List<ImapFolderPusher> folderPushers = new ArrayList<>();
 
+    private final ImapFolderPusher.NotifyFallback notifyFallback = new ImapFolderPusher.NotifyFallback() {
+        @Override
+        public void watchFoldersSeparately(ImapFolderPusher pusher, List<String> folderServerIds) {
+            startSeparatePushers(pusher, folderServerIds);
+        }
+    };
+
     private long lastRefresh = -1;
 
 
-    public ImapPusher(ImapStore store, PushReceiver pushReceiver, PowerManager powerManager) {
+    public ImapPusher(ImapStore store, PushReceiver pushReceiver, PowerManager powerManager,
+            IdleKeepAliveController keepAliveController) {
         this.store = store;
         this.pushReceiver = pushReceiver;
         this.powerManager = powerManager;
+        this.keepAliveController = keepAliveController;
     }
 
     @Override
@@ -34,8 +45,31 @@ public class ImapPusher implements Pusher {
 
             setLastRefresh(currentTimeMillis());
 
+            if (folderServerIds.isEmpty()) {
+                return;
+            }
+
+            // The connection of the first folder is also used to watch the other folders if the server supports
+            // NOTIFY. Otherwise the pusher calls back and each of the other folders gets its own connection.
+            String firstFolderServerId = folderServerIds.get(0);
+            List<String> otherFolderServerIds = new ArrayList<>(folderServerIds.subList(1, folderServerIds.size()));
+
+            ImapFolderPusher pusher = createImapFolderPusher(firstFolderServerId, otherFolderServerIds);
+            folderPushers.add(pusher);
+
+            pusher.start();
+        }
+    }
+
+    void startSeparatePushers(ImapFolderPusher notifyPusher, List<String> folderServerIds) {
+        synchronized (folderPushers) {
+            // Ignore callbacks from a pusher that has been stopped in the meantime
+            if (!folderPushers.contains(notifyPusher)) {
+                return;
+            }
+
             for (String folderName : folderServerIds) {
-                ImapFolderPusher pusher = createImapFolderPusher(folderName);
+                ImapFolderPusher pusher = createImapFolderPusher(folderName, Collections.<String>emptyList());
                 folderPushers.add(pusher);
 
                 pusher.start();
@@ -94,8 +128,9 @@ public class ImapPusher implements Pusher {
         this.lastRefresh = lastRefresh;
     }
 
-    ImapFolderPusher createImapFolderPusher(String folderName) {
-        return new ImapFolderPusher(store, folderName, pushReceiver, powerManager);
+    ImapFolderPusher createImapFolderPusher(String folderName, List<String> notifyFolderServerIds) {
+        return new ImapFolderPusher(store, folderName, notifyFolderServerIds, notifyFallback, keepAliveController,
+                pushReceiver, powerManager);
     }
 
     long currentTimeMillis() {
@@ -2,6 +2,7 @@ package com.fsck.k9.mail.store.imap;
 
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -15,7 +16,16 @@ import static com.fsck.k9.mail.K9MailLib.DEBUG_PROTOCOL_IMAP;
 
 
 class ImapResponseParser {
+    /**
+     * Literals up to this size are read into {@link #literalBuffer}, which is kept around and reused for subsequent
+     * literals. Bigger literals use a temporary buffer so we don't hold on to large chunks of memory.
+     */
+    private static final int MAX_RETAINED_LITERAL_BUFFER_SIZE = 64 * 1024;
+    private static final int INITIAL_LITERAL_BUFFER_SIZE = 1024;
+
+
     private PeekableInputStream inputStream;
+    private byte[] literalBuffer = new byte[INITIAL_LITERAL_BUFFER_SIZE];
     private ImapResponse response;
     private Exception exception;
 
@@ -380,7 +390,7 @@ class ImapResponseParser {
             }
         }
 
-        byte[] data = new byte[size];
+        byte[] data = getLiteralBuffer(size);
         int read = 0;
         while (read != size) {
             int count = inputStream.read(data, read, size - read);
@@ -390,7 +400,21 @@ class ImapResponseParser {
             read += count;
         }
 
-        return new String(data, "US-ASCII");
+        return new String(data, 0, size, StandardCharsets.US_ASCII);
+    }
+
+    private byte[] getLiteralBuffer(int size) {
+        if (size <= literalBuffer.length) {
+            return literalBuffer;
+        }
+
+        if (size > MAX_RETAINED_LITERAL_BUFFER_SIZE) {
+            return new byte[size];
+        }
+
+        int newSize = Math.min(Math.max(size, literalBuffer.length * 2), MAX_RETAINED_LITERAL_BUFFER_SIZE);
+        literalBuffer = new byte[newSize];
+        return literalBuffer;
     }
 
     private String parseQuoted() throws IOException {
@@ -20,6 +20,7 @@ import com.fsck.k9.mail.AuthType;
 import com.fsck.k9.mail.ConnectionSecurity;
 import com.fsck.k9.mail.Flag;
 import com.fsck.k9.mail.Folder.FolderType;
+import com.fsck.k9.mail.K9MailLib;
 import com.fsck.k9.mail.MessagingException;
 import com.fsck.k9.mail.NetworkType;
 import com.fsck.k9.mail.oauth.OAuth2TokenProvider;
@@ -36,6 +37,28 @@ import timber.log.Timber;
  * </pre>
  */
 public class ImapStore extends RemoteStore {
+    /**
+     * The maximum number of idle connections we keep around. Additional connections are closed when released.
+     *
+     * <p>
+     * This does not limit the number of connections that are open at the same time. Pushers hold on to their
+     * connection for as long as they run, and not every code path releases its connection. Blocking in
+     * {@link #getConnection()} could therefore wait forever. Callers that open connections in parallel, like
+     * concurrent folder syncs, use this value to bound themselves instead.
+     * </p>
+     */
+    public static final int MAX_IDLE_CONNECTIONS = 3;
+
+    /**
+     * Idle connections older than this are closed instead of being reused.
+     *
+     * <p>
+     * Mobile networks often silently drop idle TCP connections after a couple of minutes. Trying to reuse such a
+     * connection means waiting for the NOOP to run into the read timeout before we can create a new connection.
+     * </p>
+     */
+    private static final long MAX_CONNECTION_IDLE_TIME = 5 * 60 * 1000L;
+
     private Set<Flag> permanentFlagsIndex = EnumSet.noneOf(Flag.class);
     private ConnectivityManager connectivityManager;
     private OAuth2TokenProvider oauthTokenProvider;
@@ -50,7 +73,7 @@ public class ImapStore extends RemoteStore {
     private String pathPrefix;
     private String combinedPrefix = null;
     private String pathDelimiter = null;
-    private final Deque<ImapConnection> connections = new LinkedList<>();
+    private final Deque<IdleConnection> connections = new LinkedList<>();
     private FolderNameCodec folderNameCodec;
 
     /**
@@ -296,19 +319,69 @@ public class ImapStore extends RemoteStore {
     }
 
     private ImapConnection pollConnection() {
+        List<IdleConnection> expiredConnections;
+        IdleConnection idleConnection;
         synchronized (connections) {
-            return connections.poll();
+            expiredConnections = removeExpiredConnections();
+
+            // Use the most recently released connection. It's the one most likely to still be alive.
+            idleConnection = connections.pollFirst();
         }
+
+        closeExpiredConnections(expiredConnections);
+
+        return idleConnection != null ? idleConnection.connection : null;
     }
 
     void releaseConnection(ImapConnection connection) {
         if (connection != null && connection.isConnected()) {
+            List<ImapConnection> surplusConnections = new ArrayList<>();
             synchronized (connections) {
-                connections.offer(connection);
+                connections.offerFirst(new IdleConnection(connection, currentTimeMillis()));
+
+                while (connections.size() > MAX_IDLE_CONNECTIONS) {
+                    surplusConnections.add(connections.pollLast().connection);
+                }
+            }
+
+            // Closing a connection can block on network I/O. Don't hold the lock while doing so.
+            for (ImapConnection surplusConnection : surplusConnections) {
+                surplusConnection.close();
+            }
+        }
+    }
+
+    private List<IdleConnection> removeExpiredConnections() {
+        long now = currentTimeMillis();
+
+        List<IdleConnection> expiredConnections = new ArrayList<>();
+        IdleConnection idleConnection;
+        while ((idleConnection = connections.peekLast()) != null &&
+                now - idleConnection.releaseTime > MAX_CONNECTION_IDLE_TIME) {
+            connections.pollLast();
+            expiredConnections.add(idleConnection);
+        }
+
+        return expiredConnections;
+    }
+
+    private void closeExpiredConnections(List<IdleConnection> expiredConnections) {
+        long now = currentTimeMillis();
+
+        for (IdleConnection idleConnection : expiredConnections) {
+            idleConnection.connection.close();
+
+            if (K9MailLib.isDebug()) {
+                Timber.d("Closed connection %s after being idle for %d ms", idleConnection.connection.getLogId(),
+                        now - idleConnection.releaseTime);
             }
         }
     }
 
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
     ImapConnection createImapConnection() {
         return new ImapConnection(
                 new StoreImapSettings(),
@@ -362,6 +435,16 @@ public class ImapStore extends RemoteStore {
     }
 
 
+    private static class IdleConnection {
+        final ImapConnection connection;
+        final long releaseTime;
+
+        IdleConnection(ImapConnection connection, long releaseTime) {
+            this.connection = connection;
+            this.releaseTime = releaseTime;
+        }
+    }
+
     private class StoreImapSettings implements ImapSettings {
         @Override
         public String getHost() {
@@ -26,7 +26,14 @@ class SearchResponse {
     }
 
     private static void parseSingleLine(ImapResponse response, List<Long> numbers) {
-        if (response.isTagged() || response.size() < 2 || !equalsIgnoreCase(response.get(0), Responses.SEARCH)) {
+        if (response.isTagged() || response.size() < 2) {
+            return;
+        }
+
+        if (equalsIgnoreCase(response.get(0), Responses.ESEARCH)) {
+            parseEsearchResponse(response, numbers);
+            return;
+        } else if (!equalsIgnoreCase(response.get(0), Responses.SEARCH)) {
             return;
         }
 
@@ -41,6 +48,19 @@ class SearchResponse {
         }
     }
 
+    private static void parseEsearchResponse(ImapResponse response, List<Long> numbers) {
+        // * ESEARCH (TAG "A1") UID ALL 4:6,10
+        // The ALL result is omitted when there are no matches.
+        for (int i = 1, end = response.size() - 1; i < end; i++) {
+            if (equalsIgnoreCase(response.get(i), "ALL") && response.isString(i + 1)) {
+                for (String number : ImapUtility.getImapSequenceValues(response.getString(i + 1))) {
+                    numbers.add(Long.parseLong(number));
+                }
+                return;
+            }
+        }
+    }
+
     /**
      * @return A mutable list of numbers from the SEARCH response(s).
      */
@@ -18,17 +18,27 @@ class UidCopyResponse {
     }
 
     public static UidCopyResponse parse(List<ImapResponse> imapResponses) {
+        return parse(imapResponses, false);
+    }
+
+    /**
+     * @param allowUntaggedResponse
+     *         {@code true} to also look for {@code COPYUID} in untagged {@code OK} responses. Servers send it that
+     *         way in response to {@code UID MOVE} (RFC 6851).
+     */
+    public static UidCopyResponse parse(List<ImapResponse> imapResponses, boolean allowUntaggedResponse) {
         Map<String, String> uidMapping = new LinkedHashMap<>();
         for (ImapResponse imapResponse : imapResponses) {
-            parseUidCopyResponse(imapResponse, uidMapping);
+            parseUidCopyResponse(imapResponse, allowUntaggedResponse, uidMapping);
         }
 
         return uidMapping.isEmpty() ? null : new UidCopyResponse(uidMapping);
     }
 
-    private static void parseUidCopyResponse(ImapResponse response, Map<String, String> uidMappingOutput) {
-        if (!response.isTagged() || response.size() < 2 || !equalsIgnoreCase(response.get(0), Responses.OK) ||
-                !response.isList(1)) {
+    private static void parseUidCopyResponse(ImapResponse response, boolean allowUntaggedResponse,
+            Map<String, String> uidMappingOutput) {
+        if ((!response.isTagged() && !allowUntaggedResponse) || response.size() < 2 ||
+                !equalsIgnoreCase(response.get(0), Responses.OK) || !response.isList(1)) {
             return;
         }
 
@@ -11,6 +11,7 @@ class UidSearchCommandBuilder {
     private boolean performFullTextSearch;
     private Set<Flag> requiredFlags;
     private Set<Flag> forbiddenFlags;
+    private boolean useEsearch;
 
 
     public UidSearchCommandBuilder queryString(String queryString) {
@@ -33,8 +34,20 @@ class UidSearchCommandBuilder {
         return this;
     }
 
+    /**
+     * Request an ESEARCH response (RFC 4731). It contains the matching UIDs as a compact sequence set instead of
+     * listing every single UID.
+     */
+    public UidSearchCommandBuilder useEsearch(boolean useEsearch) {
+        this.useEsearch = useEsearch;
+        return this;
+    }
+
     public String build() {
         StringBuilder builder = new StringBuilder(Commands.UID_SEARCH);
+        if (useEsearch) {
+            builder.append(" RETURN (ALL)");
+        }
         addQueryString(builder);
         addFlags(builder, requiredFlags, false);
         addFlags(builder, forbiddenFlags, true);
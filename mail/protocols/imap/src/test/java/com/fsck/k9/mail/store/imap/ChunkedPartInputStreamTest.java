@@ -0,0 +1,146 @@
+package com.fsck.k9.mail.store.imap;
+
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.fsck.k9.mail.MessagingException;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+
+public class ChunkedPartInputStreamTest {
+    private static final byte[] DATA = "0123456789abcdefghij".getBytes();
+    private static final int CHUNK_SIZE = 8;
+
+
+    @Test
+    public void read_shouldReturnAllChunks() throws Exception {
+        TestChunkFetcher chunkFetcher = new TestChunkFetcher(0);
+
+        byte[] result = IOUtils.toByteArray(createInputStream(chunkFetcher));
+
+        assertArrayEquals(DATA, result);
+        assertEquals(3, chunkFetcher.fetchCount);
+    }
+
+    @Test
+    public void read_withConnectionLoss_shouldResumeAtFailedChunk() throws Exception {
+        TestChunkFetcher chunkFetcher = new TestChunkFetcher(1);
+        chunkFetcher.failAtOffset = 8;
+
+        byte[] result = IOUtils.toByteArray(createInputStream(chunkFetcher));
+
+        assertArrayEquals(DATA, result);
+        assertEquals(1, chunkFetcher.reconnectCount);
+    }
+
+    @Test
+    public void read_withRepeatedConnectionLoss_shouldGiveUp() throws Exception {
+        TestChunkFetcher chunkFetcher = new TestChunkFetcher(ChunkedPartInputStream.MAX_RETRIES + 1);
+        chunkFetcher.failAtOffset = 0;
+
+        try {
+            IOUtils.toByteArray(createInputStream(chunkFetcher));
+            fail("Expected exception");
+        } catch (IOException e) {
+            assertEquals(ChunkedPartInputStream.MAX_RETRIES, chunkFetcher.reconnectCount);
+        }
+    }
+
+    @Test
+    public void read_withFailingReconnects_shouldRetryUntilReconnected() throws Exception {
+        TestChunkFetcher chunkFetcher = new TestChunkFetcher(1);
+        chunkFetcher.failAtOffset = 8;
+        chunkFetcher.remainingReconnectFailures = 2;
+
+        byte[] result = IOUtils.toByteArray(createInputStream(chunkFetcher));
+
+        assertArrayEquals(DATA, result);
+        assertEquals(3, chunkFetcher.reconnectCount);
+    }
+
+    @Test
+    public void read_withReconnectsFailingUntilRetriesAreExhausted_shouldGiveUp() throws Exception {
+        TestChunkFetcher chunkFetcher = new TestChunkFetcher(1);
+        chunkFetcher.failAtOffset = 0;
+        chunkFetcher.remainingReconnectFailures = ChunkedPartInputStream.MAX_RETRIES;
+
+        try {
+            IOUtils.toByteArray(createInputStream(chunkFetcher));
+            fail("Expected exception");
+        } catch (ChunkedPartInputStream.ChunkFetchException e) {
+            assertEquals(ChunkedPartInputStream.MAX_RETRIES, chunkFetcher.reconnectCount);
+        }
+    }
+
+    @Test
+    public void read_withMessagingException_shouldNotRetry() throws Exception {
+        final MessagingException exception = new MessagingException("Part not found");
+        ChunkedPartInputStream.ChunkFetcher chunkFetcher = new ChunkedPartInputStream.ChunkFetcher() {
+            @Override
+            public byte[] fetchChunk(long offset, int length) throws MessagingException {
+                throw exception;
+            }
+
+            @Override
+            public void reconnect() {
+                fail("Unexpected reconnect");
+            }
+        };
+
+        try {
+            IOUtils.toByteArray(createInputStream(chunkFetcher));
+            fail("Expected exception");
+        } catch (ChunkedPartInputStream.ChunkFetchException e) {
+            assertSame(exception, e.getMessagingException());
+        }
+    }
+
+
+    private static ChunkedPartInputStream createInputStream(ChunkedPartInputStream.ChunkFetcher chunkFetcher) {
+        return new ChunkedPartInputStream(chunkFetcher, CHUNK_SIZE, 0);
+    }
+
+
+    private static class TestChunkFetcher implements ChunkedPartInputStream.ChunkFetcher {
+        private int remainingFailures;
+        long failAtOffset = -1;
+        int remainingReconnectFailures;
+        int fetchCount;
+        int reconnectCount;
+
+
+        TestChunkFetcher(int failures) {
+            remainingFailures = failures;
+        }
+
+        @Override
+        public byte[] fetchChunk(long offset, int length) throws IOException {
+            if (offset == failAtOffset && remainingFailures > 0) {
+                remainingFailures--;
+                throw new IOException("Connection lost");
+            }
+
+            fetchCount++;
+            int start = (int) Math.min(offset, DATA.length);
+            int end = Math.min(start + length, DATA.length);
+            return Arrays.copyOfRange(DATA, start, end);
+        }
+
+        @Override
+        public void reconnect() throws MessagingException {
+            reconnectCount++;
+
+            if (remainingReconnectFailures > 0) {
+                remainingReconnectFailures--;
+                throw new MessagingException("Network unreachable");
+            }
+        }
+    }
+}
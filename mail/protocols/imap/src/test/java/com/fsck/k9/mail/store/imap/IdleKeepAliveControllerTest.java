@@ -0,0 +1,157 @@
+package com.fsck.k9.mail.store.imap;
+
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fsck.k9.mail.NetworkType;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+
+public class IdleKeepAliveControllerTest {
+    private static final String SERVER = "imap.example.org:993";
+    private static final long MINUTE = 60 * 1000;
+    private static final long MAX_INTERVAL = 24 * MINUTE;
+
+
+    private InMemoryIdleIntervalStore intervalStore;
+    private IdleKeepAliveController controller;
+
+
+    @Before
+    public void setUp() throws Exception {
+        intervalStore = new InMemoryIdleIntervalStore();
+        controller = new IdleKeepAliveController(intervalStore, mock(IdleRefreshScheduler.class));
+    }
+
+    @Test
+    public void getIdleInterval_withoutHistory_shouldProbeTwiceTheMinimum() throws Exception {
+        long interval = controller.getIdleInterval(SERVER, NetworkType.MOBILE, MAX_INTERVAL);
+
+        assertEquals(2 * IdleKeepAliveController.MIN_IDLE_INTERVAL, interval);
+    }
+
+    @Test
+    public void getIdleInterval_afterSuccessfulRefreshes_shouldNotExceedMaxInterval() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            long interval = controller.getIdleInterval(SERVER, NetworkType.MOBILE, MAX_INTERVAL);
+            controller.onIdleRefreshed(SERVER, NetworkType.MOBILE, interval);
+        }
+
+        assertEquals(MAX_INTERVAL, controller.getIdleInterval(SERVER, NetworkType.MOBILE, MAX_INTERVAL));
+    }
+
+    @Test
+    public void getIdleInterval_afterFailedRefresh_shouldProbeBetweenSafeAndFailedInterval() throws Exception {
+        controller.onIdleRefreshed(SERVER, NetworkType.MOBILE, 8 * MINUTE);
+        controller.onIdleRefreshFailed(SERVER, NetworkType.MOBILE, 16 * MINUTE);
+
+        long interval = controller.getIdleInterval(SERVER, NetworkType.MOBILE, MAX_INTERVAL);
+
+        assertEquals(12 * MINUTE, interval);
+    }
+
+    @Test
+    public void getIdleInterval_withSafeAndFailedIntervalClose_shouldUseSafeInterval() throws Exception {
+        controller.onIdleRefreshed(SERVER, NetworkType.MOBILE, 8 * MINUTE);
+        controller.onIdleRefreshFailed(SERVER, NetworkType.MOBILE, 9 * MINUTE);
+
+        long interval = controller.getIdleInterval(SERVER, NetworkType.MOBILE, MAX_INTERVAL);
+
+        assertEquals(8 * MINUTE, interval);
+    }
+
+    @Test
+    public void onIdleRefreshFailed_withPreviouslySafeInterval_shouldHalveInterval() throws Exception {
+        controller.onIdleRefreshed(SERVER, NetworkType.MOBILE, 16 * MINUTE);
+        controller.onIdleRefreshFailed(SERVER, NetworkType.MOBILE, 16 * MINUTE);
+
+        long interval = controller.getIdleInterval(SERVER, NetworkType.MOBILE, MAX_INTERVAL);
+
+        assertEquals(12 * MINUTE, interval);
+    }
+
+    @Test
+    public void getIdleInterval_afterManyRefreshesAtSafeInterval_shouldProbeLongerInterval() throws Exception {
+        controller.onIdleRefreshed(SERVER, NetworkType.MOBILE, 8 * MINUTE);
+        controller.onIdleRefreshFailed(SERVER, NetworkType.MOBILE, 9 * MINUTE);
+
+        for (int i = 0; i < IdleKeepAliveController.REPROBE_AFTER_REFRESHES; i++) {
+            long interval = controller.getIdleInterval(SERVER, NetworkType.MOBILE, MAX_INTERVAL);
+            controller.onIdleRefreshed(SERVER, NetworkType.MOBILE, interval);
+        }
+
+        long interval = controller.getIdleInterval(SERVER, NetworkType.MOBILE, MAX_INTERVAL);
+
+        assertEquals(16 * MINUTE, interval);
+    }
+
+    @Test
+    public void onIdleRefreshed_withSlightlyLateRefreshes_shouldNotChangeSafeIntervalAndStillProbeAgain()
+            throws Exception {
+        controller.onIdleRefreshed(SERVER, NetworkType.MOBILE, 8 * MINUTE);
+        controller.onIdleRefreshFailed(SERVER, NetworkType.MOBILE, 9 * MINUTE);
+        int saveCount = intervalStore.saveCount;
+
+        for (int i = 0; i < IdleKeepAliveController.REPROBE_AFTER_REFRESHES - 1; i++) {
+            long interval = controller.getIdleInterval(SERVER, NetworkType.MOBILE, MAX_INTERVAL);
+            controller.onIdleRefreshed(SERVER, NetworkType.MOBILE, interval + 5);
+        }
+
+        assertEquals(saveCount, intervalStore.saveCount);
+        assertEquals(8 * MINUTE, controller.getIdleInterval(SERVER, NetworkType.MOBILE, MAX_INTERVAL));
+
+        controller.onIdleRefreshed(SERVER, NetworkType.MOBILE, 8 * MINUTE + 5);
+
+        assertEquals(16 * MINUTE, controller.getIdleInterval(SERVER, NetworkType.MOBILE, MAX_INTERVAL));
+    }
+
+    @Test
+    public void getIdleInterval_shouldKeepNetworkTypesApart() throws Exception {
+        controller.onIdleRefreshed(SERVER, NetworkType.WIFI, 20 * MINUTE);
+
+        long interval = controller.getIdleInterval(SERVER, NetworkType.MOBILE, MAX_INTERVAL);
+
+        assertEquals(2 * IdleKeepAliveController.MIN_IDLE_INTERVAL, interval);
+    }
+
+    @Test
+    public void getIdleInterval_shouldUsePersistedIntervals() throws Exception {
+        controller.onIdleRefreshed(SERVER, NetworkType.MOBILE, 8 * MINUTE);
+        controller.onIdleRefreshFailed(SERVER, NetworkType.MOBILE, 16 * MINUTE);
+
+        IdleKeepAliveController newController =
+                new IdleKeepAliveController(intervalStore, mock(IdleRefreshScheduler.class));
+        long interval = newController.getIdleInterval(SERVER, NetworkType.MOBILE, MAX_INTERVAL);
+
+        assertEquals(12 * MINUTE, interval);
+    }
+
+
+    static class InMemoryIdleIntervalStore implements IdleIntervalStore {
+        private final Map<String, long[]> intervals = new HashMap<>();
+        int saveCount = 0;
+
+        @Override
+        public long getSafeInterval(String key) {
+            long[] values = intervals.get(key);
+            return values != null ? values[0] : 0;
+        }
+
+        @Override
+        public long getFailedInterval(String key) {
+            long[] values = intervals.get(key);
+            return values != null ? values[1] : 0;
+        }
+
+        @Override
+        public void saveIntervals(String key, long safeInterval, long failedInterval) {
+            intervals.put(key, new long[] { safeInterval, failedInterval });
+            saveCount++;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.fsck.k9.mail.store.imap;
+
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+
+public class IdleRefreshSchedulerTest {
+    private static final long MINUTE = 60 * 1000;
+
+
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> future;
+    private TestIdleRefreshScheduler scheduler;
+
+
+    @Before
+    public void setUp() throws Exception {
+        executor = mock(ScheduledExecutorService.class);
+        future = mock(ScheduledFuture.class);
+        doReturn(future).when(executor).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+        scheduler = new TestIdleRefreshScheduler(executor);
+    }
+
+    @Test
+    public void schedule_withRefreshDueShortlyAfterExistingWakeup_shouldJoinWakeup() throws Exception {
+        scheduler.now = 0;
+        scheduler.schedule(10 * MINUTE, mock(Runnable.class));
+        scheduler.now = 1 * MINUTE;
+
+        scheduler.schedule(10 * MINUTE, mock(Runnable.class));
+
+        assertEquals(1, scheduler.getWakeupCount());
+        verify(executor, times(1)).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+    }
+
+    @Test
+    public void schedule_withRefreshDueBeforeExistingWakeup_shouldCreateNewWakeup() throws Exception {
+        scheduler.now = 0;
+        scheduler.schedule(10 * MINUTE, mock(Runnable.class));
+
+        scheduler.schedule(5 * MINUTE, mock(Runnable.class));
+
+        assertEquals(2, scheduler.getWakeupCount());
+        verify(executor).schedule(any(Runnable.class), eq(5 * MINUTE), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void schedule_withRefreshDueLongAfterExistingWakeup_shouldCreateNewWakeup() throws Exception {
+        scheduler.now = 0;
+        scheduler.schedule(10 * MINUTE, mock(Runnable.class));
+        scheduler.now = 5 * MINUTE;
+
+        scheduler.schedule(10 * MINUTE, mock(Runnable.class));
+
+        assertEquals(2, scheduler.getWakeupCount());
+    }
+
+    @Test
+    public void runWakeup_shouldRunAllJoinedRefreshes() throws Exception {
+        Runnable refreshOne = mock(Runnable.class);
+        Runnable refreshTwo = mock(Runnable.class);
+        IdleRefreshScheduler.ScheduledRefresh scheduledRefresh = scheduler.schedule(10 * MINUTE, refreshOne);
+        scheduler.schedule(10 * MINUTE, refreshTwo);
+
+        scheduler.runWakeup(getWakeup(scheduledRefresh));
+
+        verify(refreshOne).run();
+        verify(refreshTwo).run();
+        assertEquals(0, scheduler.getWakeupCount());
+    }
+
+    @Test
+    public void cancel_withOtherRefreshInWakeup_shouldKeepWakeup() throws Exception {
+        Runnable refresh = mock(Runnable.class);
+        IdleRefreshScheduler.ScheduledRefresh scheduledRefresh = scheduler.schedule(10 * MINUTE, mock(Runnable.class));
+        scheduler.schedule(10 * MINUTE, refresh);
+
+        scheduledRefresh.cancel();
+        scheduler.runWakeup(getWakeup(scheduledRefresh));
+
+        verify(future, never()).cancel(false);
+        verify(refresh).run();
+    }
+
+    @Test
+    public void cancel_withLastRefreshInWakeup_shouldCancelWakeup() throws Exception {
+        Runnable refresh = mock(Runnable.class);
+        IdleRefreshScheduler.ScheduledRefresh scheduledRefresh = scheduler.schedule(10 * MINUTE, refresh);
+
+        scheduledRefresh.cancel();
+
+        verify(future).cancel(false);
+        assertEquals(0, scheduler.getWakeupCount());
+    }
+
+    private IdleRefreshScheduler.Wakeup getWakeup(IdleRefreshScheduler.ScheduledRefresh scheduledRefresh) {
+        return scheduledRefresh.getWakeup();
+    }
+
+
+    static class TestIdleRefreshScheduler extends IdleRefreshScheduler {
+        long now = 0;
+
+
+        TestIdleRefreshScheduler(ScheduledExecutorService executor) {
+            super(executor);
+        }
+
+        @Override
+        long elapsedRealtime() {
+            return now;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.fsck.k9.mail.store.imap;
 
 import java.io.IOException;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.List;
 
 import android.app.Activity;
@@ -27,6 +28,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.shadows.ShadowLog;
 
+import static java.util.Arrays.asList;
 import static org.hamcrest.core.StringContains.containsString;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -959,6 +961,102 @@ public class ImapConnectionTest {
         server.verifyInteractionCompleted();
     }
 
+    @Test
+    public void executePipelinedCommands_shouldSendAllCommandsBeforeReadingResponses() throws Exception {
+        MockImapServer server = new MockImapServer();
+        simpleOpenDialog(server, "");
+        server.expect("4 UID STORE 1:5 +FLAGS.SILENT (\\Seen)");
+        server.expect("5 UID STORE 7:9 +FLAGS.SILENT (\\Seen)");
+        server.output("4 OK Store completed");
+        server.output("* 8 EXISTS");
+        server.output("5 OK Store completed");
+        ImapConnection imapConnection = startServerAndCreateImapConnection(server);
+        imapConnection.open();
+
+        List<ImapResponse> result = imapConnection.executePipelinedCommands(asList(
+                "UID STORE 1:5 +FLAGS.SILENT (\\Seen)",
+                "UID STORE 7:9 +FLAGS.SILENT (\\Seen)"));
+
+        assertEquals(3, result.size());
+        assertEquals("4", result.get(0).getTag());
+        assertEquals("EXISTS", result.get(1).getString(1));
+        assertEquals("5", result.get(2).getTag());
+        server.verifyConnectionStillOpen();
+        server.verifyInteractionCompleted();
+    }
+
+    @Test
+    public void executePipelinedCommands_withNoResponse_shouldReadAllResponsesAndThrow() throws Exception {
+        MockImapServer server = new MockImapServer();
+        simpleOpenDialog(server, "");
+        server.expect("4 UID COPY 1:5 Folder");
+        server.expect("5 UID COPY 7:9 Folder");
+        server.output("4 NO Copy failed");
+        server.output("5 OK Copy completed");
+        ImapConnection imapConnection = startServerAndCreateImapConnection(server);
+        imapConnection.open();
+
+        try {
+            imapConnection.executePipelinedCommands(asList("UID COPY 1:5 Folder", "UID COPY 7:9 Folder"));
+
+            fail("Expected exception");
+        } catch (NegativeImapResponseException e) {
+            assertEquals("Copy failed", e.getLastResponse().getString(1));
+        }
+        server.verifyConnectionStillOpen();
+        server.verifyInteractionCompleted();
+    }
+
+    @Test
+    public void executePipelinedCommands_withCondstoreLengthCommands_shouldSendCommandsBeforeReadingResponses()
+            throws Exception {
+        MockImapServer server = new MockImapServer();
+        simpleOpenDialog(server, "CONDSTORE");
+        String firstCommand = createLongUidStoreCommand(1);
+        String secondCommand = createLongUidStoreCommand(100000);
+        server.expect("4 " + firstCommand);
+        server.expect("5 " + secondCommand);
+        server.output("4 OK Store completed");
+        server.output("5 OK Store completed");
+        ImapConnection imapConnection = startServerAndCreateImapConnection(server);
+        imapConnection.open();
+
+        List<ImapResponse> result = imapConnection.executePipelinedCommands(asList(firstCommand, secondCommand));
+
+        assertEquals(2, result.size());
+        server.verifyConnectionStillOpen();
+        server.verifyInteractionCompleted();
+    }
+
+    @Test
+    public void executePipelinedCommands_withNoResponse_shouldNotSendFurtherBatches() throws Exception {
+        MockImapServer server = new MockImapServer();
+        simpleOpenDialog(server, "");
+        List<String> commands = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            commands.add("UID COPY " + i + " Folder");
+        }
+        for (int i = 0; i < 8; i++) {
+            server.expect((i + 4) + " UID COPY " + i + " Folder");
+        }
+        server.output("4 NO Copy failed");
+        for (int i = 1; i < 8; i++) {
+            server.output((i + 4) + " OK Copy completed");
+        }
+        ImapConnection imapConnection = startServerAndCreateImapConnection(server);
+        imapConnection.open();
+
+        try {
+            imapConnection.executePipelinedCommands(commands);
+
+            fail("Expected exception");
+        } catch (NegativeImapResponseException e) {
+            assertEquals("Copy failed", e.getLastResponse().getString(1));
+        }
+        server.verifyConnectionStillOpen();
+        server.verifyInteractionCompleted();
+    }
+
     @Test
     public void hasCapability_withNotYetOpenedConnection_shouldConnectAndFetchCapabilities() throws Exception {
         MockImapServer server = new MockImapServer();
@@ -1031,6 +1129,14 @@ public class ImapConnectionTest {
         server.output(tag + " OK");
     }
 
+    private String createLongUidStoreCommand(int firstUid) {
+        StringBuilder command = new StringBuilder("UID STORE ").append(firstUid);
+        for (int uid = firstUid + 2; command.length() < 8000; uid += 2) {
+            command.append(',').append(uid);
+        }
+        return command.append(" +FLAGS.SILENT (\\Seen)").toString();
+    }
+
     private void simpleOpenDialog(MockImapServer server, String postAuthCapabilities) {
         simplePreAuthAndLoginDialog(server, postAuthCapabilities);
         simplePostAuthenticationDialog(server, 3);
@@ -0,0 +1,143 @@
+package com.fsck.k9.mail.store.imap;
+
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import com.fsck.k9.mail.Folder;
+import com.fsck.k9.mail.K9LibRobolectricTestRunner;
+import com.fsck.k9.mail.NetworkType;
+import com.fsck.k9.mail.PushReceiver;
+import com.fsck.k9.mail.power.PowerManager;
+import com.fsck.k9.mail.power.WakeLock;
+import com.fsck.k9.mail.store.StoreConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static com.fsck.k9.mail.store.imap.ImapResponseHelper.createImapResponse;
+import static com.fsck.k9.mail.store.imap.ImapResponseHelper.createImapResponseList;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+@RunWith(K9LibRobolectricTestRunner.class)
+public class ImapFolderPusherTest {
+    private static final long VERIFY_TIMEOUT = 5000;
+
+
+    private ImapStore imapStore;
+    private ImapConnection imapConnection;
+    private PushReceiver pushReceiver;
+    private ImapFolderPusher folderPusher;
+
+
+    @Before
+    public void setUp() throws Exception {
+        StoreConfig storeConfig = mock(StoreConfig.class);
+        when(storeConfig.getInboxFolder()).thenReturn("INBOX");
+        when(storeConfig.getDisplayCount()).thenReturn(25);
+
+        imapConnection = mock(ImapConnection.class);
+        when(imapConnection.isIdleCapable()).thenReturn(true);
+        when(imapConnection.isNotifyCapable()).thenReturn(true);
+        when(imapConnection.getServer()).thenReturn("imap.example.org");
+        when(imapConnection.getNetworkType()).thenReturn(NetworkType.WIFI);
+
+        imapStore = mock(ImapStore.class);
+        when(imapStore.getStoreConfig()).thenReturn(storeConfig);
+        when(imapStore.getCombinedPrefix()).thenReturn("");
+        when(imapStore.getConnection()).thenReturn(imapConnection);
+        ImapFolder draftsFolder = new ImapFolder(imapStore, "Drafts", FolderNameCodec.newInstance());
+        when(imapStore.getFolder("Drafts")).thenReturn(draftsFolder);
+
+        pushReceiver = mock(PushReceiver.class);
+        when(pushReceiver.getPushState("INBOX")).thenReturn("uidNext=57576");
+
+        PowerManager powerManager = mock(PowerManager.class);
+        when(powerManager.newWakeLock(anyString())).thenReturn(mock(WakeLock.class));
+
+        IdleKeepAliveController keepAliveController = mock(IdleKeepAliveController.class);
+        when(keepAliveController.getIdleInterval(anyString(), any(NetworkType.class), anyLong())).thenReturn(60000L);
+        when(keepAliveController.scheduleRefresh(anyLong(), any(Runnable.class)))
+                .thenReturn(mock(IdleRefreshScheduler.ScheduledRefresh.class));
+
+        folderPusher = new ImapFolderPusher(imapStore, "INBOX", Collections.singletonList("Drafts"), null,
+                keepAliveController, pushReceiver, powerManager);
+    }
+
+    @After
+    public void tearDown() {
+        folderPusher.stop();
+    }
+
+    @Test
+    public void notifyStatusResponse_shouldSyncWatchedFolderByServerId() throws Exception {
+        prepareImapConnectionForExamine();
+        when(imapConnection.executeSimpleCommand(startsWith("NOTIFY SET")))
+                .thenReturn(createImapResponseList("4 OK NOTIFY completed"));
+        when(imapConnection.sendCommand(Commands.IDLE, false)).thenReturn("5");
+        when(imapConnection.readStatusResponse(eq("5"), eq(Commands.IDLE), any(UntaggedHandler.class)))
+                .thenAnswer(new IdleAnswer("* STATUS Drafts (MESSAGES 3 UIDNEXT 5)"))
+                .thenAnswer(new IdleAnswer(null));
+
+        folderPusher.start();
+
+        verify(pushReceiver, timeout(VERIFY_TIMEOUT)).syncFolder("Drafts");
+        verify(pushReceiver, timeout(VERIFY_TIMEOUT)).setPushActive("Drafts", true);
+        verify(imapConnection).sendContinuation("DONE");
+        verify(pushReceiver, never()).syncFolder(any(Folder.class));
+    }
+
+    private void prepareImapConnectionForExamine() throws Exception {
+        List<ImapResponse> imapResponses = createImapResponseList(
+                "* 23 EXISTS",
+                "* OK [UIDVALIDITY 1125022061] UIDs valid",
+                "* OK [UIDNEXT 57576] Predicted next UID",
+                "2 OK [READ-ONLY] Examine completed."
+        );
+        when(imapConnection.executeSimpleCommand("EXAMINE \"INBOX\"")).thenReturn(imapResponses);
+    }
+
+
+    /**
+     * Accepts the IDLE command and then either sends the given untagged response or waits until the pusher is stopped.
+     */
+    private static class IdleAnswer implements Answer<List<ImapResponse>> {
+        private final String untaggedResponse;
+
+
+        IdleAnswer(String untaggedResponse) {
+            this.untaggedResponse = untaggedResponse;
+        }
+
+        @Override
+        public List<ImapResponse> answer(InvocationOnMock invocation) throws Throwable {
+            UntaggedHandler untaggedHandler = invocation.getArgument(2);
+            untaggedHandler.handleAsyncUntaggedResponse(createImapResponse("+ idling"));
+
+            if (untaggedResponse == null) {
+                try {
+                    Thread.sleep(Long.MAX_VALUE);
+                } catch (InterruptedException e) {
+                    throw new IOException("Connection closed");
+                }
+            }
+
+            untaggedHandler.handleAsyncUntaggedResponse(createImapResponse(untaggedResponse));
+            return createImapResponseList("5 OK IDLE terminated");
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.fsck.k9.mail.store.imap;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
@@ -55,6 +56,7 @@ import static org.mockito.Matchers.startsWith;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -368,6 +370,54 @@ public class ImapFolderTest {
         assertCommandWithIdsIssued("UID STORE 1 +FLAGS.SILENT (\\Deleted)");
     }
 
+    @Test
+    public void moveMessages_withMoveCapability_shouldUseUidMove() throws Exception {
+        ImapFolder sourceFolder = createFolder("Folder");
+        prepareImapFolderForOpen(OPEN_MODE_RW);
+        when(imapConnection.isMoveCapable()).thenReturn(true);
+        ImapFolder destinationFolder = createFolder("Destination");
+        List<ImapMessage> messages = asList(createImapMessage("1"), createImapMessage("2"), createImapMessage("3"));
+        List<ImapResponse> imapResponses = asList(
+                createImapResponse("* OK [COPYUID 23 1:3 101:103] Moved"),
+                createImapResponse("* 1 EXPUNGE"),
+                createImapResponse("* 1 EXPUNGE"),
+                createImapResponse("* 1 EXPUNGE"),
+                createImapResponse("x OK Done"));
+        when(imapConnection.executeCommandWithIdSet(eq(Commands.UID_MOVE), anyString(), anySetOf(Long.class)))
+                .thenReturn(imapResponses);
+        sourceFolder.open(OPEN_MODE_RW);
+
+        Map<String, String> uidMapping = sourceFolder.moveMessages(messages, destinationFolder);
+
+        assertCommandWithIdsIssued("UID MOVE 1,2,3 \"Destination\"");
+        assertNotNull(uidMapping);
+        assertEquals("101", uidMapping.get("1"));
+        assertEquals("103", uidMapping.get("3"));
+        verify(imapConnection, never()).executeCommandWithIdSet(eq(Commands.UID_STORE), anyString(),
+                anySetOf(Long.class));
+    }
+
+    @Test
+    public void moveMessages_withMoveCapability_shouldUpdateMessageCount() throws Exception {
+        ImapFolder sourceFolder = createFolder("Folder");
+        prepareImapFolderForOpen(OPEN_MODE_RW);
+        when(imapConnection.isMoveCapable()).thenReturn(true);
+        ImapFolder destinationFolder = createFolder("Destination");
+        List<ImapMessage> messages = asList(createImapMessage("1"), createImapMessage("2"));
+        List<ImapResponse> imapResponses = asList(
+                createImapResponse("* OK [COPYUID 23 1:2 101:102] Moved"),
+                createImapResponse("* 1 EXPUNGE"),
+                createImapResponse("* 1 EXPUNGE"),
+                createImapResponse("x OK Done"));
+        when(imapConnection.executeCommandWithIdSet(eq(Commands.UID_MOVE), anyString(), anySetOf(Long.class)))
+                .thenReturn(imapResponses);
+        sourceFolder.open(OPEN_MODE_RW);
+
+        sourceFolder.moveMessages(messages, destinationFolder);
+
+        assertEquals(21, sourceFolder.getMessageCount());
+    }
+
     @Test
     public void moveMessages_withEmptyMessageList_shouldReturnNull() throws Exception {
         ImapFolder sourceFolder = createFolder("Source");
@@ -854,6 +904,65 @@ public class ImapFolderTest {
         verify(imapMessage).setFlagInternal(Flag.SEEN, true);
     }
 
+    @Test
+    public void open_withoutHighestModSeq_shouldReturnMinusOne() throws Exception {
+        ImapFolder folder = createFolder("Folder");
+        prepareImapFolderForOpen(OPEN_MODE_RO);
+
+        folder.open(OPEN_MODE_RO);
+
+        assertEquals(-1L, folder.getHighestModSeq());
+        assertEquals(57576L, folder.getUidNext());
+    }
+
+    @Test
+    public void open_withHighestModSeq_shouldReturnHighestModSeq() throws Exception {
+        ImapFolder folder = createFolder("Folder");
+        when(imapStore.getConnection()).thenReturn(imapConnection);
+        when(imapConnection.executeSimpleCommand("EXAMINE \"Folder\"")).thenReturn(asList(
+                createImapResponse("* 23 EXISTS"),
+                createImapResponse("* OK [UIDNEXT 57576] Predicted next UID"),
+                createImapResponse("* OK [HIGHESTMODSEQ 715194045007] Highest"),
+                createImapResponse("2 OK [READ-ONLY] Examine completed.")
+        ));
+
+        folder.open(OPEN_MODE_RO);
+
+        assertEquals(715194045007L, folder.getHighestModSeq());
+    }
+
+    @Test
+    public void fetchChangedFlags_shouldIssueRespectiveCommand() throws Exception {
+        ImapFolder folder = createFolder("Folder");
+        prepareImapFolderForOpen(OPEN_MODE_RO);
+        folder.open(OPEN_MODE_RO);
+
+        folder.fetchChangedFlags(12345L);
+
+        assertCommandIssued("UID FETCH 1:* (UID FLAGS) (CHANGEDSINCE 12345)");
+    }
+
+    @Test
+    public void fetchChangedFlags_shouldReturnMessagesWithFlags() throws Exception {
+        ImapFolder folder = createFolder("Folder");
+        prepareImapFolderForOpen(OPEN_MODE_RO);
+        folder.open(OPEN_MODE_RO);
+        when(imapConnection.executeSimpleCommand("UID FETCH 1:* (UID FLAGS) (CHANGEDSINCE 12345)")).thenReturn(asList(
+                createImapResponse("* 3 FETCH (UID 7 FLAGS (\\Seen \\Flagged) MODSEQ (12350))"),
+                createImapResponse("* 5 FETCH (UID 9 FLAGS () MODSEQ (12351))"),
+                createImapResponse("x OK Fetch completed")
+        ));
+
+        List<ImapMessage> messages = folder.fetchChangedFlags(12345L);
+
+        assertEquals(2, messages.size());
+        assertEquals("7", messages.get(0).getUid());
+        assertTrue(messages.get(0).isSet(Flag.SEEN));
+        assertTrue(messages.get(0).isSet(Flag.FLAGGED));
+        assertEquals("9", messages.get(1).getUid());
+        assertFalse(messages.get(1).isSet(Flag.SEEN));
+    }
+
     @Test
     public void fetchPart_withTextSection_shouldIssueRespectiveCommand() throws Exception {
         ImapFolder folder = createFolder("Folder");
@@ -902,6 +1011,85 @@ public class ImapFolderTest {
         assertEquals("text", buffer.readUtf8());
     }
 
+    @Test
+    public void fetchPart_withPartAtChunkedFetchThreshold_shouldFetchWholePart() throws Exception {
+        ImapFolder folder = createFolder("Folder");
+        prepareImapFolderForOpen(OPEN_MODE_RO);
+        folder.open(OPEN_MODE_RO);
+        ImapMessage message = createImapMessage("1");
+        Part part = createAttachmentPart("2", ImapFolder.CHUNKED_FETCH_THRESHOLD);
+        when(imapConnection.readResponse(nullable(ImapResponseCallback.class))).thenReturn(createImapResponse("x OK"));
+
+        folder.fetchPart(message, part, null, new DefaultBodyFactory());
+
+        verify(imapConnection).sendCommand("UID FETCH 1 (UID BODY.PEEK[2])", false);
+    }
+
+    @Test
+    public void fetchPart_withPartAboveChunkedFetchThreshold_shouldFetchPartInChunks() throws Exception {
+        ImapFolder folder = createFolder("Folder");
+        prepareImapFolderForOpen(OPEN_MODE_RO);
+        folder.open(OPEN_MODE_RO);
+        ImapMessage message = createImapMessage("1");
+        Part part = createAttachmentPart("2", ImapFolder.CHUNKED_FETCH_THRESHOLD + 1);
+        byte[] firstChunk = createChunk(ImapFolder.PART_CHUNK_SIZE, 'a');
+        byte[] lastChunk = createChunk(3, 'b');
+        when(imapConnection.readResponse(nullable(ImapResponseCallback.class))).thenReturn(
+                createChunkFetchResponse("1", "2", firstChunk), createImapResponse("x OK"),
+                createChunkFetchResponse("1", "2", lastChunk), createImapResponse("x OK"));
+
+        folder.fetchPart(message, part, null, new DefaultBodyFactory());
+
+        verify(imapConnection).sendCommand("UID FETCH 1 (UID BODY.PEEK[2]<0.262144>)", false);
+        verify(imapConnection).sendCommand("UID FETCH 1 (UID BODY.PEEK[2]<262144.262144>)", false);
+        assertEquals(ImapFolder.PART_CHUNK_SIZE + 3, readPartBody(part).length);
+    }
+
+    @Test
+    public void fetchPart_withConnectionLostDuringChunkedFetch_shouldReconnectAndResumeAtFailedChunk()
+            throws Exception {
+        ImapFolder folder = createFolder("Folder");
+        prepareImapFolderForOpen(OPEN_MODE_RO);
+        folder.open(OPEN_MODE_RO);
+        ImapMessage message = createImapMessage("1");
+        Part part = createAttachmentPart("2", ImapFolder.CHUNKED_FETCH_THRESHOLD + 1);
+        byte[] firstChunk = createChunk(ImapFolder.PART_CHUNK_SIZE, 'a');
+        byte[] lastChunk = createChunk(3, 'b');
+        when(imapConnection.readResponse(nullable(ImapResponseCallback.class)))
+                .thenReturn(createChunkFetchResponse("1", "2", firstChunk), createImapResponse("x OK"))
+                .thenThrow(new IOException("Connection lost"))
+                .thenReturn(createChunkFetchResponse("1", "2", lastChunk), createImapResponse("x OK"));
+
+        folder.fetchPart(message, part, null, new DefaultBodyFactory());
+
+        verify(imapConnection).sendCommand("UID FETCH 1 (UID BODY.PEEK[2]<0.262144>)", false);
+        verify(imapConnection, times(2)).sendCommand("UID FETCH 1 (UID BODY.PEEK[2]<262144.262144>)", false);
+        verify(imapConnection, times(2)).executeSimpleCommand("EXAMINE \"Folder\"");
+        byte[] body = readPartBody(part);
+        assertEquals(ImapFolder.PART_CHUNK_SIZE + 3, body.length);
+        assertEquals('b', body[body.length - 1]);
+    }
+
+    @Test
+    public void fetchPart_withRejectedChunk_shouldThrowNegativeImapResponseException() throws Exception {
+        ImapFolder folder = createFolder("Folder");
+        prepareImapFolderForOpen(OPEN_MODE_RO);
+        folder.open(OPEN_MODE_RO);
+        ImapMessage message = createImapMessage("1");
+        Part part = createAttachmentPart("2", ImapFolder.CHUNKED_FETCH_THRESHOLD + 1);
+        when(imapConnection.readResponse(nullable(ImapResponseCallback.class)))
+                .thenReturn(createImapResponse("x NO [UNAVAILABLE] Try again later"));
+
+        try {
+            folder.fetchPart(message, part, null, new DefaultBodyFactory());
+            fail("Expected exception");
+        } catch (NegativeImapResponseException e) {
+            assertTrue(e.getMessage().startsWith("Command: UID FETCH 1 (UID BODY.PEEK[2]<0.262144>);"));
+        }
+
+        verify(part, never()).setBody(nullable(Body.class));
+    }
+
     @Test
     public void appendMessages_shouldIssueRespectiveCommand() throws Exception {
         ImapFolder folder = createFolder("Folder");
@@ -1029,6 +1217,23 @@ public class ImapFolderTest {
         assertCommandIssued("UID SEARCH OR SUBJECT \"query\" FROM \"query\"");
     }
 
+    @Test
+    public void search_withEsearchCapableServer_shouldRequestEsearchResponse() throws Exception {
+        ImapFolder folder = createFolder("Folder");
+        prepareImapFolderForOpen(OPEN_MODE_RO);
+        when(storeConfig.isAllowRemoteSearch()).thenReturn(true);
+        when(storeConfig.isRemoteSearchFullText()).thenReturn(true);
+        when(imapConnection.isEsearchCapable()).thenReturn(true);
+        setupUidSearchResponses("* ESEARCH (TAG \"1\") UID ALL 1:2", "1 OK SEARCH completed");
+
+        List<ImapMessage> messages = folder.search("query", Collections.<Flag>emptySet(),
+                Collections.<Flag>emptySet());
+
+        assertCommandIssued("UID SEARCH RETURN (ALL) TEXT \"query\"");
+        assertEquals(2, messages.size());
+        assertEquals("2", messages.get(0).getUid());
+    }
+
     @Test
     public void search_withRemoteSearchDisabled_shouldThrow() throws Exception {
         ImapFolder folder = createFolder("Folder");
@@ -1063,6 +1268,48 @@ public class ImapFolderTest {
         return part;
     }
 
+    private Part createAttachmentPart(String serverExtra, long size) {
+        Part part = createPart(serverExtra);
+        when(part.getHeader(MimeHeader.HEADER_CONTENT_TRANSFER_ENCODING)).thenReturn(
+                new String[] { MimeUtil.ENC_BINARY }
+        );
+        when(part.getHeader(MimeHeader.HEADER_CONTENT_TYPE)).thenReturn(
+                new String[] { "application/octet-stream" }
+        );
+        when(part.getHeader(MimeHeader.HEADER_CONTENT_DISPOSITION)).thenReturn(
+                new String[] { "attachment; filename=\"data.bin\"; size=" + size }
+        );
+        return part;
+    }
+
+    private byte[] createChunk(int length, char content) {
+        byte[] chunk = new byte[length];
+        Arrays.fill(chunk, (byte) content);
+        return chunk;
+    }
+
+    private ImapResponse createChunkFetchResponse(String uid, String partId, byte[] chunk) {
+        ImapResponse response = ImapResponse.newUntaggedResponse(null);
+        response.add("1");
+        response.add("FETCH");
+        ImapList fetchList = new ImapList();
+        fetchList.add("UID");
+        fetchList.add(uid);
+        fetchList.add("BODY");
+        fetchList.add(partId);
+        fetchList.add(chunk);
+        response.add(fetchList);
+        return response;
+    }
+
+    private byte[] readPartBody(Part part) throws Exception {
+        ArgumentCaptor<Body> bodyArgumentCaptor = ArgumentCaptor.forClass(Body.class);
+        verify(part).setBody(bodyArgumentCaptor.capture());
+        Buffer buffer = new Buffer();
+        bodyArgumentCaptor.getValue().writeTo(buffer.outputStream());
+        return buffer.readByteArray();
+    }
+
     private void setupSingleFetchResponseToCallback() throws IOException {
         when(imapConnection.readResponse(nullable(ImapResponseCallback.class)))
                 .thenAnswer(new Answer<ImapResponse>() {
@@ -30,7 +30,8 @@ public class ImapPusherTest {
 
         PushReceiver pushReceiver = mock(PushReceiver.class);
         PowerManager powerManager = mock(PowerManager.class);
-        imapPusher = new TestImapPusher(imapStore, pushReceiver, powerManager);
+        IdleKeepAliveController keepAliveController = mock(IdleKeepAliveController.class);
+        imapPusher = new TestImapPusher(imapStore, pushReceiver, powerManager, keepAliveController);
     }
 
     @Test
@@ -65,17 +66,40 @@ public class ImapPusherTest {
     }
 
     @Test
-    public void start_withTwoFolderNames_shouldCreateTwoImapFolderPushersAndCallStart() throws Exception {
+    public void start_withTwoFolderNames_shouldCreateOneImapFolderPusherWatchingBothFolders() throws Exception {
         List<String> folderNames = Arrays.asList("Important", "Drafts");
 
         imapPusher.start(folderNames);
 
         List<ImapFolderPusher> imapFolderPushers = imapPusher.getImapFolderPushers();
-        assertEquals(2, imapFolderPushers.size());
-        ImapFolderPusher imapFolderPusherOne = imapFolderPushers.get(0);
-        ImapFolderPusher imapFolderPusherTwo = imapFolderPushers.get(1);
-        verify(imapFolderPusherOne).start();
-        verify(imapFolderPusherTwo).start();
+        assertEquals(1, imapFolderPushers.size());
+        verify(imapFolderPushers.get(0)).start();
+        assertEquals(Collections.singletonList("Drafts"), imapPusher.getNotifyFolderServerIds().get(0));
+    }
+
+    @Test
+    public void startSeparatePushers_shouldCreateImapFolderPusherForEachFolderAndCallStart() throws Exception {
+        imapPusher.start(Arrays.asList("INBOX", "Important", "Drafts"));
+        ImapFolderPusher notifyPusher = imapPusher.getImapFolderPushers().get(0);
+
+        imapPusher.startSeparatePushers(notifyPusher, Arrays.asList("Important", "Drafts"));
+
+        List<ImapFolderPusher> imapFolderPushers = imapPusher.getImapFolderPushers();
+        assertEquals(3, imapFolderPushers.size());
+        verify(imapFolderPushers.get(1)).start();
+        verify(imapFolderPushers.get(2)).start();
+        assertEquals(Collections.emptyList(), imapPusher.getNotifyFolderServerIds().get(1));
+    }
+
+    @Test
+    public void startSeparatePushers_afterStop_shouldNotCreateImapFolderPushers() throws Exception {
+        imapPusher.start(Arrays.asList("INBOX", "Drafts"));
+        ImapFolderPusher notifyPusher = imapPusher.getImapFolderPushers().get(0);
+        imapPusher.stop();
+
+        imapPusher.startSeparatePushers(notifyPusher, Collections.singletonList("Drafts"));
+
+        assertEquals(1, imapPusher.getImapFolderPushers().size());
     }
 
     @Test
@@ -156,16 +180,19 @@ public class ImapPusherTest {
 
 
         private final List<ImapFolderPusher> imapFolderPushers = new ArrayList<>();
+        private final List<List<String>> notifyFolderServerIds = new ArrayList<>();
 
 
-        public TestImapPusher(ImapStore store, PushReceiver receiver, PowerManager powerManager) {
-            super(store, receiver, powerManager);
+        public TestImapPusher(ImapStore store, PushReceiver receiver, PowerManager powerManager,
+                IdleKeepAliveController keepAliveController) {
+            super(store, receiver, powerManager, keepAliveController);
         }
 
         @Override
-        ImapFolderPusher createImapFolderPusher(String folderName) {
+        ImapFolderPusher createImapFolderPusher(String folderName, List<String> notifyFolderServerIds) {
             ImapFolderPusher imapFolderPusher = mock(ImapFolderPusher.class);
             imapFolderPushers.add(imapFolderPusher);
+            this.notifyFolderServerIds.add(notifyFolderServerIds);
             return imapFolderPusher;
         }
 
@@ -173,6 +200,10 @@ public class ImapPusherTest {
             return imapFolderPushers;
         }
 
+        public List<List<String>> getNotifyFolderServerIds() {
+            return notifyFolderServerIds;
+        }
+
         @Override
         long currentTimeMillis() {
             return CURRENT_TIME_MILLIS;
@@ -218,6 +218,33 @@ public class ImapResponseParserTest {
         assertEquals("", response.getString(0));
     }
 
+    @Test
+    public void testParseMultipleLiteralsOfDifferentSize() throws Exception {
+        ImapResponseParser parser = createParser("* ({11}\r\nhello world {5}\r\nshort)\r\n" +
+                "* {4}\r\ntest\r\n");
+
+        ImapResponse firstResponse = parser.readResponse();
+        ImapResponse secondResponse = parser.readResponse();
+
+        ImapList list = firstResponse.getList(0);
+        assertEquals("hello world", list.getString(0));
+        assertEquals("short", list.getString(1));
+        assertEquals("test", secondResponse.getString(0));
+    }
+
+    @Test
+    public void testParseLargeLiteral() throws Exception {
+        String literal = createLongString(100 * 1024);
+        ImapResponseParser parser = createParser("* {" + literal.length() + "}\r\n" + literal + "\r\n" +
+                "* {4}\r\ntest\r\n");
+
+        ImapResponse firstResponse = parser.readResponse();
+        ImapResponse secondResponse = parser.readResponse();
+
+        assertEquals(literal, firstResponse.getString(0));
+        assertEquals("test", secondResponse.getString(0));
+    }
+
     @Test(expected = IOException.class)
     public void testParseLiteralToEndOfStream() throws Exception {
         ImapResponseParser parser = createParser("* {4}\r\nabc");
@@ -483,6 +510,14 @@ public class ImapResponseParserTest {
         }
     }
 
+    private String createLongString(int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + i % 26));
+        }
+        return sb.toString();
+    }
+
     private ImapResponseParser createParser(String response) {
         ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(response.getBytes());
         peekableInputStream = new PeekableInputStream(byteArrayInputStream);
@@ -3,6 +3,7 @@ package com.fsck.k9.mail.store.imap;
 
 import java.io.IOException;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Deque;
@@ -362,6 +363,64 @@ public class ImapStoreTest {
         assertSame(imapConnectionTwo, result);
     }
 
+    @Test
+    public void getConnection_withConnectionIdleForTooLong_shouldCloseItAndReturnNewImapConnectionInstance()
+            throws Exception {
+        ImapConnection imapConnectionOne = mock(ImapConnection.class);
+        ImapConnection imapConnectionTwo = mock(ImapConnection.class);
+        imapStore.enqueueImapConnection(imapConnectionOne);
+        imapStore.enqueueImapConnection(imapConnectionTwo);
+        imapStore.getConnection();
+        when(imapConnectionOne.isConnected()).thenReturn(true);
+        imapStore.setCurrentTime(1000L);
+        imapStore.releaseConnection(imapConnectionOne);
+        imapStore.setCurrentTime(1000L + 10 * 60 * 1000L);
+
+        ImapConnection result = imapStore.getConnection();
+
+        assertSame(imapConnectionTwo, result);
+        verify(imapConnectionOne).close();
+        verify(imapConnectionOne, never()).executeSimpleCommand(Commands.NOOP);
+    }
+
+    @Test
+    public void getConnection_withMultipleReleasedConnections_shouldReturnMostRecentlyReleasedConnection()
+            throws Exception {
+        ImapConnection imapConnectionOne = mock(ImapConnection.class);
+        ImapConnection imapConnectionTwo = mock(ImapConnection.class);
+        imapStore.enqueueImapConnection(imapConnectionOne);
+        imapStore.enqueueImapConnection(imapConnectionTwo);
+        imapStore.getConnection();
+        imapStore.getConnection();
+        when(imapConnectionOne.isConnected()).thenReturn(true);
+        when(imapConnectionTwo.isConnected()).thenReturn(true);
+        imapStore.releaseConnection(imapConnectionOne);
+        imapStore.releaseConnection(imapConnectionTwo);
+
+        ImapConnection result = imapStore.getConnection();
+
+        assertSame(imapConnectionTwo, result);
+    }
+
+    @Test
+    public void releaseConnection_withTooManyIdleConnections_shouldCloseLeastRecentlyReleasedConnection()
+            throws Exception {
+        List<ImapConnection> imapConnections = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            ImapConnection imapConnection = mock(ImapConnection.class);
+            when(imapConnection.isConnected()).thenReturn(true);
+            imapStore.enqueueImapConnection(imapConnection);
+            imapConnections.add(imapStore.getConnection());
+        }
+
+        for (ImapConnection imapConnection : imapConnections) {
+            imapStore.releaseConnection(imapConnection);
+        }
+
+        verify(imapConnections.get(0)).close();
+        verify(imapConnections.get(3), never()).close();
+    }
+
 
     private ImapStoreSettings createImapStoreSettings() {
         return new ImapStoreSettings(
@@ -414,6 +473,7 @@ public class ImapStoreTest {
     static class TestImapStore extends ImapStore {
         private Deque<ImapConnection> imapConnections = new ArrayDeque<>();
         private String testCombinedPrefix;
+        private long currentTime = 0L;
 
         public TestImapStore(ImapStoreSettings serverSettings, StoreConfig storeConfig,
                 TrustedSocketFactory trustedSocketFactory, ConnectivityManager connectivityManager,
@@ -441,5 +501,14 @@ public class ImapStoreTest {
         void setTestCombinedPrefix(String prefix) {
             testCombinedPrefix = prefix;
         }
+
+        @Override
+        long currentTimeMillis() {
+            return currentTime;
+        }
+
+        void setCurrentTime(long currentTime) {
+            this.currentTime = currentTime;
+        }
     }
 }
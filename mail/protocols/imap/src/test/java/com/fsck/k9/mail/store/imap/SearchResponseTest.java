@@ -47,6 +47,30 @@ public class SearchResponseTest {
         assertEquals(asList(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L), result.getNumbers());
     }
 
+    @Test
+    public void parse_withEsearchResponse_shouldExpandSequenceSet() throws Exception {
+        List<ImapResponse> imapResponses = createImapResponseList(
+                "* ESEARCH (TAG \"1\") UID ALL 4:6,10",
+                "1 OK SEARCH completed");
+
+        SearchResponse result = SearchResponse.parse(imapResponses);
+
+        assertNotNull(result);
+        assertEquals(asList(4L, 5L, 6L, 10L), result.getNumbers());
+    }
+
+    @Test
+    public void parse_withEsearchResponseWithoutMatches_shouldReturnEmptyList() throws Exception {
+        List<ImapResponse> imapResponses = createImapResponseList(
+                "* ESEARCH (TAG \"1\") UID",
+                "1 OK SEARCH completed");
+
+        SearchResponse result = SearchResponse.parse(imapResponses);
+
+        assertNotNull(result);
+        assertEquals(Collections.emptyList(), result.getNumbers());
+    }
+
     @Test
     public void parse_withSingleTaggedSearchResponse_shouldReturnEmptyList() throws Exception {
         List<ImapResponse> imapResponses = createImapResponseList("x SEARCH 7 8 9");
@@ -33,6 +33,19 @@ public class UidCopyResponseTest {
         assertNull(result);
     }
 
+    @Test
+    public void parse_withUntaggedResponseAllowed_shouldCreateUidMapping() throws Exception {
+        List<ImapResponse> imapResponses = createImapResponseList(
+                "* OK [COPYUID 1 1,3:5 7:10] Moved",
+                "* 1 EXPUNGE",
+                "x OK Success");
+
+        UidCopyResponse result = UidCopyResponse.parse(imapResponses, true);
+
+        assertNotNull(result);
+        assertEquals(createUidMapping("1=7", "3=8", "4=9", "5=10"), result.getUidMapping());
+    }
+
     @Test
     public void parse_withTooShortResponse_shouldReturnNull() throws Exception {
         List<ImapResponse> imapResponses = createImapResponseList("x OK");
@@ -34,4 +34,15 @@ public class UidSearchCommandBuilderTest {
 
         assertEquals("UID SEARCH OR SUBJECT \"query\" FROM \"query\" NOT DELETED", command);
     }
+
+    @Test
+    public void build_withEsearch() {
+        String command = new UidSearchCommandBuilder()
+                .performFullTextSearch(true)
+                .useEsearch(true)
+                .queryString("query")
+                .build();
+
+        assertEquals("UID SEARCH RETURN (ALL) TEXT \"query\"", command);
+    }
 }
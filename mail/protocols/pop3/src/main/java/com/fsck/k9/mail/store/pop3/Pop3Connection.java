@@ -222,6 +222,8 @@ class Pop3Connection {
                     capabilities.uidl = true;
                 } else if (response.equals(TOP_CAPABILITY)) {
                     capabilities.top = true;
+                } else if (response.equals(PIPELINING_CAPABILITY)) {
+                    capabilities.pipelining = true;
                 } else if (response.startsWith(SASL_CAPABILITY)) {
                     List<String> saslAuthMechanisms = Arrays.asList(response.split(" "));
                     if (saslAuthMechanisms.contains(AUTH_PLAIN_CAPABILITY)) {
@@ -335,6 +337,45 @@ class Pop3Connection {
         out.flush();
     }
 
+    /**
+     * Buffer a command without waiting for its response.
+     *
+     * <p>
+     * Only to be used if the server supports PIPELINING. The commands are sent by {@link #flushPipelinedCommands()}
+     * and the responses have to be read in order using {@link #readResponse()}.
+     * </p>
+     */
+    void sendPipelinedCommand(String command) throws MessagingException {
+        if (K9MailLib.isDebug() && DEBUG_PROTOCOL_POP3) {
+            Timber.d(">>> %s", command);
+        }
+
+        try {
+            out.write(command.getBytes());
+            out.write('\r');
+            out.write('\n');
+        } catch (IOException e) {
+            close();
+            throw new MessagingException("Unable to send POP3 command", e);
+        }
+    }
+
+    void flushPipelinedCommands() throws MessagingException {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            close();
+            throw new MessagingException("Unable to send POP3 command", e);
+        }
+    }
+
+    /**
+     * Read the status line of the response to a command sent earlier.
+     */
+    String readResponse() throws MessagingException {
+        return executeSimpleCommand(null, false);
+    }
+
     String executeSimpleCommand(String command) throws MessagingException {
         return executeSimpleCommand(command, false);
     }
@@ -437,6 +478,10 @@ class Pop3Connection {
         return this.capabilities.uidl;
     }
 
+    boolean supportsPipelining() {
+        return capabilities.pipelining;
+    }
+
     InputStream getInputStream() {
         return in;
     }
@@ -3,9 +3,12 @@ package com.fsck.k9.mail.store.pop3;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -31,6 +34,8 @@ import static com.fsck.k9.mail.store.pop3.Pop3Commands.*;
  */
 public class Pop3Folder extends Folder<Pop3Message> {
     public static final String INBOX = "INBOX";
+    private static final int PIPELINED_COMMAND_BATCH_SIZE = 50;
+    private static final int NO_BODY = -2;
 
 
     private Pop3Store pop3Store;
@@ -42,6 +47,18 @@ public class Pop3Folder extends Folder<Pop3Message> {
     private int messageCount;
     private Pop3Connection connection;
 
+    /**
+     * The unique-id listing of the last session in which it was complete. See {@link UidlSnapshotStore}.
+     */
+    private List<String> uidlSnapshot;
+    /**
+     * The number of messages at the start of {@link #uidlSnapshot} that are known to be unchanged in this session,
+     * or {@code -1} if this hasn't been checked yet.
+     */
+    private int validSnapshotCount = -1;
+    private Map<String, Integer> snapshotMsgNumsByUid;
+    private final Set<String> deletedUids = new HashSet<>();
+
     Pop3Folder(Pop3Store pop3Store, String name) {
         super();
         this.pop3Store = pop3Store;
@@ -68,6 +85,9 @@ public class Pop3Folder extends Folder<Pop3Message> {
         uidToMsgMap.clear();
         msgNumToMsgMap.clear();
         uidToMsgNumMap.clear();
+        validSnapshotCount = -1;
+        snapshotMsgNumsByUid = null;
+        deletedUids.clear();
     }
 
     @Override
@@ -85,6 +105,9 @@ public class Pop3Folder extends Folder<Pop3Message> {
         try {
             if (isOpen()) {
                 connection.executeSimpleCommand(QUIT_COMMAND);
+
+                // The server only removes messages marked as deleted once QUIT succeeded
+                removeDeletedMessagesFromUidlSnapshot();
             }
         } catch (Exception e) {
             /*
@@ -189,6 +212,13 @@ public class Pop3Folder extends Folder<Pop3Message> {
      * has been queried so that uids are available in the local cache.
      */
     private void indexMsgNums(int start, int end) throws MessagingException, IOException {
+        int validSnapshotCount = checkUidlSnapshot();
+        for (int msgNum = start; msgNum <= end && msgNum <= validSnapshotCount; msgNum++) {
+            if (msgNumToMsgMap.get(msgNum) == null) {
+                indexMessage(msgNum, new Pop3Message(uidlSnapshot.get(msgNum - 1), this));
+            }
+        }
+
         int unindexedMessageCount = 0;
         for (int msgNum = start; msgNum <= end; msgNum++) {
             if (msgNumToMsgMap.get(msgNum) == null) {
@@ -206,19 +236,18 @@ public class Pop3Folder extends Folder<Pop3Message> {
             for (int msgNum = start; msgNum <= end; msgNum++) {
                 Pop3Message message = msgNumToMsgMap.get(msgNum);
                 if (message == null) {
-                    String response = connection.executeSimpleCommand(UIDL_COMMAND + " " + msgNum);
-                    // response = "+OK msgNum msgUid"
-                    String[] uidParts = response.split(" +");
-                    if (uidParts.length < 3 || !"+OK".equals(uidParts[0])) {
-                        Timber.e("ERR response: %s", response);
+                    String msgUid = fetchUid(msgNum);
+                    if (msgUid == null) {
                         return;
                     }
-                    String msgUid = uidParts[2];
                     message = new Pop3Message(msgUid, this);
                     indexMessage(msgNum, message);
                 }
             }
+
+            extendUidlSnapshot();
         } else {
+            String[] listedUids = new String[messageCount];
             connection.executeSimpleCommand(UIDL_COMMAND);
             String response;
             while ((response = connection.readLine()) != null) {
@@ -252,6 +281,7 @@ public class Pop3Folder extends Folder<Pop3Message> {
                 if (uidParts.length >= 2) {
                     Integer msgNum = Integer.valueOf(uidParts[0]);
                     String msgUid = uidParts[1];
+                    addToListing(listedUids, msgNum, msgUid);
                     if (msgNum >= start && msgNum <= end) {
                         Pop3Message message = msgNumToMsgMap.get(msgNum);
                         if (message == null) {
@@ -261,6 +291,8 @@ public class Pop3Folder extends Folder<Pop3Message> {
                     }
                 }
             }
+
+            saveUidlListing(listedUids);
         }
     }
 
@@ -278,11 +310,18 @@ public class Pop3Folder extends Folder<Pop3Message> {
         if (unindexedUids.isEmpty()) {
             return;
         }
+
+        indexUidsFromSnapshot(unindexedUids);
+        if (unindexedUids.isEmpty()) {
+            return;
+        }
+
         /*
          * If we are missing uids in the cache the only sure way to
          * get them is to do a full UIDL list. A possible optimization
          * would be trying UIDL for the latest X messages and praying.
          */
+        String[] listedUids = new String[messageCount];
         connection.executeSimpleCommand(UIDL_COMMAND);
         String response;
         while ((response = connection.readLine()) != null) {
@@ -295,6 +334,7 @@ public class Pop3Folder extends Folder<Pop3Message> {
             if (uidParts.length >= 2) {
                 Integer msgNum = Integer.valueOf(uidParts[0]);
                 String msgUid = uidParts[1];
+                addToListing(listedUids, msgNum, msgUid);
                 if (unindexedUids.contains(msgUid)) {
                     if (K9MailLib.isDebug() && DEBUG_PROTOCOL_POP3) {
                         Timber.d("Got msgNum %d for UID %s", msgNum, msgUid);
@@ -308,6 +348,167 @@ public class Pop3Folder extends Folder<Pop3Message> {
                 }
             }
         }
+
+        saveUidlListing(listedUids);
+    }
+
+    /**
+     * Returns the UID of a single message using {@code UIDL msgNum}, or {@code null} if the response is malformed.
+     */
+    private String fetchUid(int msgNum) throws MessagingException {
+        String response = connection.executeSimpleCommand(UIDL_COMMAND + " " + msgNum);
+        // response = "+OK msgNum msgUid"
+        String[] uidParts = response.split(" +");
+        if (uidParts.length < 3 || !"+OK".equals(uidParts[0])) {
+            Timber.e("ERR response: %s", response);
+            return null;
+        }
+        return uidParts[2];
+    }
+
+    /**
+     * Checks how much of the unique-id listing saved in an earlier session is still valid.
+     *
+     * <p>
+     * New messages are appended to the maildrop and removing a message renumbers all messages after it. So if the
+     * message at the highest message number covered by both the snapshot and the maildrop still has the UID recorded
+     * in the snapshot, no message up to that number has been removed. This takes a single {@code UIDL msgNum}
+     * command instead of listing all messages.
+     * </p>
+     *
+     * @return The number of messages at the start of {@link #uidlSnapshot} that can be used in this session.
+     */
+    private int checkUidlSnapshot() throws MessagingException {
+        if (validSnapshotCount != -1) {
+            return validSnapshotCount;
+        }
+
+        validSnapshotCount = 0;
+
+        List<String> snapshot = getUidlSnapshot();
+        int lastMsgNum = Math.min(snapshot.size(), messageCount);
+        if (lastMsgNum == 0) {
+            return 0;
+        }
+
+        String msgUid;
+        try {
+            msgUid = fetchUid(lastMsgNum);
+        } catch (Pop3ErrorResponse e) {
+            msgUid = null;
+        }
+
+        if (snapshot.get(lastMsgNum - 1).equals(msgUid)) {
+            validSnapshotCount = lastMsgNum;
+        } else if (K9MailLib.isDebug() && DEBUG_PROTOCOL_POP3) {
+            Timber.d("UIDL snapshot is outdated, message %d is now %s", lastMsgNum, msgUid);
+        }
+
+        return validSnapshotCount;
+    }
+
+    private void indexUidsFromSnapshot(Set<String> unindexedUids) throws MessagingException {
+        int validSnapshotCount = checkUidlSnapshot();
+        if (validSnapshotCount == 0) {
+            return;
+        }
+
+        if (snapshotMsgNumsByUid == null) {
+            snapshotMsgNumsByUid = new HashMap<>(validSnapshotCount);
+            for (int i = 0; i < validSnapshotCount; i++) {
+                snapshotMsgNumsByUid.put(uidlSnapshot.get(i), i + 1);
+            }
+        }
+
+        Iterator<String> iterator = unindexedUids.iterator();
+        while (iterator.hasNext()) {
+            String msgUid = iterator.next();
+            Integer msgNum = snapshotMsgNumsByUid.get(msgUid);
+            if (msgNum != null) {
+                Pop3Message message = uidToMsgMap.get(msgUid);
+                if (message == null) {
+                    message = new Pop3Message(msgUid, this);
+                }
+                indexMessage(msgNum, message);
+                iterator.remove();
+            }
+        }
+    }
+
+    private List<String> getUidlSnapshot() {
+        if (uidlSnapshot == null) {
+            UidlSnapshotStore snapshotStore = pop3Store.getUidlSnapshotStore();
+            List<String> snapshot = snapshotStore != null ? snapshotStore.loadSnapshot() : null;
+            uidlSnapshot = snapshot != null ? snapshot : Collections.<String>emptyList();
+        }
+        return uidlSnapshot;
+    }
+
+    private void addToListing(String[] listedUids, int msgNum, String msgUid) {
+        if (msgNum >= 1 && msgNum <= listedUids.length) {
+            listedUids[msgNum - 1] = msgUid;
+        }
+    }
+
+    private void saveUidlListing(String[] listedUids) {
+        for (String msgUid : listedUids) {
+            if (msgUid == null) {
+                // Malformed or missing lines. Don't save an incomplete listing.
+                return;
+            }
+        }
+
+        List<String> snapshot = Arrays.asList(listedUids);
+        saveUidlSnapshot(snapshot);
+        validSnapshotCount = snapshot.size();
+        snapshotMsgNumsByUid = null;
+    }
+
+    /**
+     * Saves the snapshot if the UIDs of messages not covered by it have all been fetched individually.
+     */
+    private void extendUidlSnapshot() {
+        if (validSnapshotCount == messageCount && uidlSnapshot.size() == messageCount) {
+            return;
+        }
+
+        List<String> snapshot = new ArrayList<>(messageCount);
+        for (int msgNum = 1; msgNum <= messageCount; msgNum++) {
+            if (msgNum <= validSnapshotCount) {
+                snapshot.add(uidlSnapshot.get(msgNum - 1));
+            } else {
+                Pop3Message message = msgNumToMsgMap.get(msgNum);
+                if (message == null) {
+                    return;
+                }
+                snapshot.add(message.getUid());
+            }
+        }
+
+        saveUidlSnapshot(snapshot);
+        validSnapshotCount = messageCount;
+        snapshotMsgNumsByUid = null;
+    }
+
+    private void removeDeletedMessagesFromUidlSnapshot() {
+        if (deletedUids.isEmpty()) {
+            return;
+        }
+
+        List<String> snapshot = new ArrayList<>(getUidlSnapshot());
+        if (snapshot.removeAll(deletedUids)) {
+            saveUidlSnapshot(snapshot);
+        }
+        deletedUids.clear();
+    }
+
+    private void saveUidlSnapshot(List<String> snapshot) {
+        uidlSnapshot = snapshot;
+
+        UidlSnapshotStore snapshotStore = pop3Store.getUidlSnapshotStore();
+        if (snapshotStore != null) {
+            snapshotStore.saveSnapshot(snapshot);
+        }
     }
 
     private void indexMessage(int msgNum, Pop3Message message) {
@@ -354,24 +555,23 @@ public class Pop3Folder extends Folder<Pop3Message> {
         } catch (IOException ioe) {
             throw new MessagingException("fetch", ioe);
         }
+        int lines = getLinesToFetch(fp);
+        boolean pipelineBodyCommands = lines != NO_BODY && messages.size() > 1 && canPipelineBodyCommands(lines);
+        int pipelinedCount = 0;
         for (int i = 0, count = messages.size(); i < count; i++) {
             Pop3Message pop3Message = messages.get(i);
             try {
                 if (listener != null && !fp.contains(FetchProfile.Item.ENVELOPE)) {
                     listener.messageStarted(pop3Message.getUid(), i, count);
                 }
-                if (fp.contains(FetchProfile.Item.BODY)) {
-                    fetchBody(pop3Message, -1);
-                } else if (fp.contains(FetchProfile.Item.BODY_SANE)) {
-                    /*
-                     * To convert the suggested download size we take the size
-                     * divided by the maximum line size (76).
-                     */
-                    if (pop3Store.getConfig().getMaximumAutoDownloadMessageSize() > 0) {
-                        fetchBody(pop3Message,
-                                  (pop3Store.getConfig().getMaximumAutoDownloadMessageSize() / 76));
+                if (lines != NO_BODY) {
+                    if (pipelineBodyCommands) {
+                        if (i == pipelinedCount) {
+                            pipelinedCount = sendPipelinedBodyCommands(messages, i, lines);
+                        }
+                        readPipelinedBody(pop3Message, lines);
                     } else {
-                        fetchBody(pop3Message, -1);
+                        fetchBody(pop3Message, lines);
                     }
                 } else if (fp.contains(FetchProfile.Item.STRUCTURE)) {
                     /*
@@ -389,6 +589,68 @@ public class Pop3Folder extends Folder<Pop3Message> {
         }
     }
 
+    /**
+     * Returns the number of lines of the body to fetch, {@code -1} for the whole message, or {@link #NO_BODY}.
+     */
+    private int getLinesToFetch(FetchProfile fp) {
+        if (fp.contains(FetchProfile.Item.BODY)) {
+            return -1;
+        } else if (fp.contains(FetchProfile.Item.BODY_SANE)) {
+            /*
+             * To convert the suggested download size we take the size
+             * divided by the maximum line size (76).
+             */
+            int maximumAutoDownloadMessageSize = pop3Store.getConfig().getMaximumAutoDownloadMessageSize();
+            return maximumAutoDownloadMessageSize > 0 ? maximumAutoDownloadMessageSize / 76 : -1;
+        }
+
+        return NO_BODY;
+    }
+
+    /**
+     * Commands can only be pipelined if the server supports it (RFC 2449) and we don't have to find out whether TOP
+     * works by trying it.
+     */
+    private boolean canPipelineBodyCommands(int lines) {
+        return connection.supportsPipelining() && (lines == -1 || connection.supportsTop());
+    }
+
+    /**
+     * Sends TOP or RETR commands for a batch of messages starting at {@code start} without waiting for the responses.
+     *
+     * @return The index of the first message whose command hasn't been sent.
+     */
+    private int sendPipelinedBodyCommands(List<Pop3Message> messages, int start, int lines)
+            throws MessagingException {
+        int end = Math.min(messages.size(), start + PIPELINED_COMMAND_BATCH_SIZE);
+        for (int i = start; i < end; i++) {
+            connection.sendPipelinedCommand(getBodyCommand(messages.get(i), lines));
+        }
+        connection.flushPipelinedCommands();
+
+        return end;
+    }
+
+    private void readPipelinedBody(Pop3Message message, int lines) throws IOException, MessagingException {
+        try {
+            connection.readResponse();
+            parseBody(message, lines);
+        } catch (IOException | MessagingException e) {
+            // Responses to the other commands of the batch are still pending. Don't leave them on the connection.
+            connection.close();
+            throw e;
+        }
+    }
+
+    private String getBodyCommand(Pop3Message message, int lines) {
+        Integer msgNum = uidToMsgNumMap.get(message.getUid());
+        if (lines == -1) {
+            return String.format(Locale.US, RETR_COMMAND + " %d", msgNum);
+        } else {
+            return String.format(Locale.US, TOP_COMMAND + " %d %d", msgNum, lines);
+        }
+    }
+
     private void fetchEnvelope(List<Pop3Message> messages,
                                MessageRetrievalListener<Pop3Message> listener)  throws IOException, MessagingException {
         int unsizedMessages = 0;
@@ -471,9 +733,7 @@ public class Pop3Folder extends Folder<Pop3Message> {
                           "Checking to see if the TOP command is supported nevertheless.");
                 }
 
-                response = connection.executeSimpleCommand(
-                        String.format(Locale.US, TOP_COMMAND + " %d %d",
-                                uidToMsgNumMap.get(message.getUid()), lines));
+                response = connection.executeSimpleCommand(getBodyCommand(message, lines));
                 // TOP command is supported. Remember this for the next time.
                 connection.setSupportsTop(true);
             } catch (Pop3ErrorResponse e) {
@@ -493,12 +753,16 @@ public class Pop3Folder extends Folder<Pop3Message> {
         }
 
         if (response == null) {
-            connection.executeSimpleCommand(String.format(Locale.US, RETR_COMMAND + " %d",
-                                 uidToMsgNumMap.get(message.getUid())));
+            connection.executeSimpleCommand(getBodyCommand(message, -1));
         }
 
+        parseBody(message, lines);
+    }
+
+    private void parseBody(Pop3Message message, int lines) throws IOException, MessagingException {
+        Pop3ResponseInputStream in = new Pop3ResponseInputStream(connection.getInputStream());
         try {
-            message.parse(new Pop3ResponseInputStream(connection.getInputStream()));
+            message.parse(in);
 
             // TODO: if we've received fewer lines than requested we also have the complete message.
             if (lines == -1 || !connection.supportsTop()) {
@@ -515,6 +779,11 @@ public class Pop3Folder extends Folder<Pop3Message> {
                 throw me;
             }
         }
+
+        // Skip whatever the parser didn't read, so the next response starts where it should
+        while (in.read() != -1) {
+            // Keep reading
+        }
     }
 
     @Override
@@ -562,6 +831,7 @@ public class Pop3Folder extends Folder<Pop3Message> {
             }
             open(Folder.OPEN_MODE_RW);
             connection.executeSimpleCommand(String.format(DELE_COMMAND + " %s", msgNum));
+            deletedUids.add(message.getUid());
         }
     }
 
@@ -26,11 +26,23 @@ public class Pop3Store extends RemoteStore {
     private final String clientCertificateAlias;
     private final AuthType authType;
     private final ConnectionSecurity connectionSecurity;
+    private final UidlSnapshotStore uidlSnapshotStore;
 
     private Map<String, Pop3Folder> mFolders = new HashMap<>();
 
     public Pop3Store(ServerSettings serverSettings, StoreConfig storeConfig, TrustedSocketFactory socketFactory) {
+        this(serverSettings, storeConfig, socketFactory, null);
+    }
+
+    /**
+     * @param uidlSnapshotStore
+     *         Used to keep the unique-id listing across app restarts. May be {@code null}, in which case the listing
+     *         is only kept in memory.
+     */
+    public Pop3Store(ServerSettings serverSettings, StoreConfig storeConfig, TrustedSocketFactory socketFactory,
+            UidlSnapshotStore uidlSnapshotStore) {
         super(storeConfig, socketFactory);
+        this.uidlSnapshotStore = uidlSnapshotStore;
 
         host = serverSettings.host;
         port = serverSettings.port;
@@ -81,6 +93,10 @@ public class Pop3Store extends RemoteStore {
         return mStoreConfig;
     }
 
+    UidlSnapshotStore getUidlSnapshotStore() {
+        return uidlSnapshotStore;
+    }
+
     public Pop3Connection createConnection() throws MessagingException {
         return new Pop3Connection(new StorePop3Settings(), mTrustedSocketFactory);
     }
@@ -0,0 +1,21 @@
+package com.fsck.k9.mail.store.pop3;
+
+
+import java.util.List;
+
+
+/**
+ * Persists the unique-id listing of the POP3 maildrop between sessions.
+ *
+ * <p>
+ * The element at index {@code i} is the UID of message number {@code i + 1}.
+ * </p>
+ */
+public interface UidlSnapshotStore {
+    /**
+     * Returns the saved listing, or {@code null} if there is none.
+     */
+    List<String> loadSnapshot();
+
+    void saveSnapshot(List<String> uids);
+}
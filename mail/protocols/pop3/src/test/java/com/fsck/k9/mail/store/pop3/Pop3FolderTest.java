@@ -6,10 +6,13 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import com.fsck.k9.mail.FetchProfile;
 import com.fsck.k9.mail.FetchProfile.Item;
+import com.fsck.k9.mail.Flag;
 import com.fsck.k9.mail.Folder;
 import com.fsck.k9.mail.MessageRetrievalListener;
 import com.fsck.k9.mail.MessagingException;
@@ -17,13 +20,17 @@ import com.fsck.k9.mail.internet.BinaryTempFileBody;
 import com.fsck.k9.mail.store.StoreConfig;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.InOrder;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -319,6 +326,110 @@ public class Pop3FolderTest {
         assertEquals("this is some test text.", new String(bodyData.toByteArray(), "UTF-8"));
     }
 
+    @Test
+    public void fetch_withPipeliningSupported_sendsAllBodyCommandsBeforeReadingResponses()
+            throws MessagingException, IOException {
+        InputStream messageInputStream = new ByteArrayInputStream((
+                "Subject: One\r\n" +
+                "\r\n" +
+                "first\r\n" +
+                ".\r\n" +
+                "Subject: Two\r\n" +
+                "\r\n" +
+                "second\r\n" +
+                ".\r\n").getBytes());
+        folder.open(Folder.OPEN_MODE_RW);
+        when(mockConnection.readLine()).thenReturn("1 abcd").thenReturn("2 efgh").thenReturn(".");
+        List<Pop3Message> messageList = folder.getMessages(1, 2, null, mockListener);
+        FetchProfile fetchProfile = new FetchProfile();
+        fetchProfile.add(Item.BODY);
+        when(mockConnection.supportsPipelining()).thenReturn(true);
+        when(mockConnection.getInputStream()).thenReturn(messageInputStream);
+
+        folder.fetch(messageList, fetchProfile, mockListener);
+
+        InOrder inOrder = inOrder(mockConnection);
+        inOrder.verify(mockConnection).sendPipelinedCommand("RETR 1");
+        inOrder.verify(mockConnection).sendPipelinedCommand("RETR 2");
+        inOrder.verify(mockConnection).flushPipelinedCommands();
+        inOrder.verify(mockConnection, times(2)).readResponse();
+        assertEquals("Two", messageList.get(1).getSubject());
+    }
+
+    @Test
+    public void fetch_withPipeliningAndBrokenResponse_closesConnection() throws MessagingException, IOException {
+        InputStream brokenInputStream = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Connection reset");
+            }
+        };
+        folder.open(Folder.OPEN_MODE_RW);
+        when(mockConnection.readLine()).thenReturn("1 abcd").thenReturn("2 efgh").thenReturn(".");
+        List<Pop3Message> messageList = folder.getMessages(1, 2, null, mockListener);
+        FetchProfile fetchProfile = new FetchProfile();
+        fetchProfile.add(Item.BODY);
+        when(mockConnection.supportsPipelining()).thenReturn(true);
+        when(mockConnection.getInputStream()).thenReturn(brokenInputStream);
+
+        try {
+            folder.fetch(messageList, fetchProfile, mockListener);
+            fail("Expected exception");
+        } catch (MessagingException e) {
+            verify(mockConnection).close();
+        }
+    }
+
+    @Test
+    public void getMessages_withValidUidlSnapshot_doesNotListAllUids() throws Exception {
+        UidlSnapshotStore snapshotStore = createUidlSnapshotStore("a", "b", "c", "d", "e", "f", "g", "h", "i", "j");
+        when(mockConnection.executeSimpleCommand("UIDL 10")).thenReturn("+OK 10 j");
+        folder.open(Folder.OPEN_MODE_RW);
+
+        List<Pop3Message> result = folder.getMessages(1, 10, null, mockListener);
+
+        assertEquals(10, result.size());
+        assertEquals("c", result.get(2).getUid());
+        verify(mockConnection, never()).executeSimpleCommand(Pop3Commands.UIDL_COMMAND);
+        verify(snapshotStore, never()).saveSnapshot(anyList());
+    }
+
+    @Test
+    public void getMessages_withOutdatedUidlSnapshot_listsAllUidsAndSavesSnapshot() throws Exception {
+        UidlSnapshotStore snapshotStore = createUidlSnapshotStore("a", "b", "c", "d", "e", "f", "g", "h", "i", "j");
+        when(mockConnection.executeSimpleCommand("UIDL 10")).thenReturn("+OK 10 k");
+        when(mockConnection.readLine()).thenReturn("1 b", "2 c", "3 d", "4 e", "5 f", "6 g", "7 h", "8 i", "9 j",
+                "10 k", ".");
+        folder.open(Folder.OPEN_MODE_RW);
+
+        List<Pop3Message> result = folder.getMessages(10, 10, null, mockListener);
+
+        assertEquals("k", result.get(0).getUid());
+        verify(mockConnection).executeSimpleCommand(Pop3Commands.UIDL_COMMAND);
+        verify(snapshotStore).saveSnapshot(Arrays.asList("b", "c", "d", "e", "f", "g", "h", "i", "j", "k"));
+    }
+
+    @Test
+    public void close_afterDeletingMessage_removesMessageFromUidlSnapshot() throws Exception {
+        UidlSnapshotStore snapshotStore = createUidlSnapshotStore("a", "b", "c", "d", "e", "f", "g", "h", "i", "j");
+        when(mockConnection.executeSimpleCommand("UIDL 10")).thenReturn("+OK 10 j");
+        folder.open(Folder.OPEN_MODE_RW);
+        when(mockConnection.isOpen()).thenReturn(true);
+
+        folder.setFlags(Arrays.asList(folder.getMessage("b")), Collections.singleton(Flag.DELETED), true);
+        folder.close();
+
+        verify(mockConnection).executeSimpleCommand("DELE 2");
+        verify(snapshotStore).saveSnapshot(Arrays.asList("a", "c", "d", "e", "f", "g", "h", "i", "j"));
+    }
+
+    private UidlSnapshotStore createUidlSnapshotStore(String... uids) {
+        UidlSnapshotStore snapshotStore = mock(UidlSnapshotStore.class);
+        when(snapshotStore.loadSnapshot()).thenReturn(Arrays.asList(uids));
+        when(mockStore.getUidlSnapshotStore()).thenReturn(snapshotStore);
+        return snapshotStore;
+    }
+
     private List<Pop3Message> setupMessageFromServer() throws IOException, MessagingException {
         when(mockConnection.readLine()).thenReturn("1 abcd").thenReturn(".");
         return folder.getMessages(1, 1, null, mockListener);
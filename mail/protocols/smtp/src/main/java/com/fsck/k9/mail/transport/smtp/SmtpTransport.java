@@ -4,7 +4,11 @@ package com.fsck.k9.mail.transport.smtp;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Inet6Address;
 import java.net.InetAddress;
@@ -41,6 +45,7 @@ import com.fsck.k9.mail.filter.EOLConvertingOutputStream;
 import com.fsck.k9.mail.filter.LineWrapOutputStream;
 import com.fsck.k9.mail.filter.PeekableInputStream;
 import com.fsck.k9.mail.filter.SmtpDataStuffing;
+import com.fsck.k9.mail.internet.BinaryTempFileBody;
 import com.fsck.k9.mail.internet.CharsetSupport;
 import com.fsck.k9.mail.oauth.OAuth2TokenProvider;
 import com.fsck.k9.mail.oauth.XOAuth2ChallengeParser;
@@ -55,6 +60,7 @@ import static com.fsck.k9.mail.K9MailLib.DEBUG_PROTOCOL_SMTP;
 public class SmtpTransport extends Transport {
     private static final int SMTP_CONTINUE_REQUEST = 334;
     private static final int SMTP_AUTHENTICATION_FAILURE_ERROR_CODE = 535;
+    private static final int SMTP_SERVICE_NOT_AVAILABLE = 421;
 
 
     private final TrustedSocketFactory trustedSocketFactory;
@@ -77,6 +83,7 @@ public class SmtpTransport extends Transport {
     private int largestAcceptableMessage;
     private boolean retryXoauthWithNewToken;
     private boolean isPipeliningSupported;
+    private volatile boolean isSessionReuseEnabled;
 
 
     public SmtpTransport(ServerSettings serverSettings,
@@ -392,29 +399,120 @@ public class SmtpTransport extends Transport {
             addressesOfCharset.add(addressString);
         }
 
-        for (Map.Entry<String, List<String>> charsetAddressesMapEntry :
-                charsetAddressesMap.entrySet()) {
-            String charset = charsetAddressesMapEntry.getKey();
-            List<String> addressesOfCharset = charsetAddressesMapEntry.getValue();
-            message.setCharset(charset);
-            sendMessageTo(addressesOfCharset, message);
+        try {
+            for (Map.Entry<String, List<String>> charsetAddressesMapEntry :
+                    charsetAddressesMap.entrySet()) {
+                String charset = charsetAddressesMapEntry.getKey();
+                List<String> addressesOfCharset = charsetAddressesMapEntry.getValue();
+                message.setCharset(charset);
+                sendMessageTo(addressesOfCharset, message);
+            }
+        } finally {
+            if (!isSessionReuseEnabled) {
+                close();
+            }
         }
     }
 
-    private void sendMessageTo(List<String> addresses, Message message)
-            throws MessagingException {
+    /**
+     * Keep the connection open after {@link #sendMessage(Message)} so it can be used to send further messages.
+     *
+     * <p>
+     * Call {@link #endSession()} when done sending messages.
+     * </p>
+     */
+    public void beginSession() {
+        isSessionReuseEnabled = true;
+    }
+
+    /**
+     * Close the connection kept open since {@link #beginSession()}.
+     */
+    public void endSession() {
+        isSessionReuseEnabled = false;
         close();
+    }
+
+    /**
+     * Make sure there's an open and authenticated connection to the server.
+     *
+     * <p>
+     * An existing connection is reset with {@code RSET}, which also checks that the server didn't drop it in the
+     * meantime. If that fails, e.g. with a {@code 421} reply because of an idle timeout, a new connection is opened.
+     * </p>
+     */
+    private void openOrResetSession() throws MessagingException {
+        if (socket != null && socket.isConnected() && !socket.isClosed()) {
+            try {
+                executeCommand("RSET");
+                return;
+            } catch (NegativeSmtpReplyException e) {
+                if (e.getReplyCode() == SMTP_SERVICE_NOT_AVAILABLE) {
+                    // The server is closing the connection. Sending QUIT would only run into the read timeout.
+                    Timber.d("Server closed the connection; reconnecting");
+                    closeConnection();
+                } else {
+                    Timber.d(e, "RSET failed; reconnecting");
+                    close();
+                }
+            } catch (IOException | MessagingException | RuntimeException e) {
+                // The state of the connection is unknown. Don't try to talk to the server again.
+                Timber.d(e, "Connection can't be reused; reconnecting");
+                closeConnection();
+            }
+        }
+
         open();
+    }
+
+    private void sendMessageTo(List<String> addresses, Message message)
+            throws MessagingException {
+        openOrResetSession();
+
+        File spooledMessage = null;
+        try {
+            // If the message has attachments and our server has told us about a limit on the size of messages,
+            // write the message to a temporary file to find out its size. The file is then used to send the message,
+            // so the attachments don't have to be encoded a second time.
+            if (largestAcceptableMessage > 0 && message.hasAttachments()) {
+                spooledMessage = spoolMessage(message);
+                if (spooledMessage.length() > largestAcceptableMessage) {
+                    throw new MessagingException("Message too large for server", true);
+                }
+            }
+
+            sendMessageData(addresses, message, spooledMessage);
+        } finally {
+            if (spooledMessage != null && !spooledMessage.delete()) {
+                Timber.w("Failed to delete spooled message %s", spooledMessage.getAbsolutePath());
+            }
+        }
+    }
 
-        // If the message has attachments and our server has told us about a limit on
-        // the size of messages, count the message's size before sending it
-        if (largestAcceptableMessage > 0 && message.hasAttachments()) {
-            if (message.calculateSize() > largestAcceptableMessage) {
-                throw new MessagingException("Message too large for server", true);
+    private static File spoolMessage(Message message) throws MessagingException {
+        File file = null;
+        try {
+            file = File.createTempFile("outgoing", null, BinaryTempFileBody.getTempDirectory());
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+            try {
+                message.writeTo(out);
+            } finally {
+                out.close();
+            }
+
+            return file;
+        } catch (IOException e) {
+            if (file != null) {
+                file.delete();
             }
+            throw new MessagingException("Unable to prepare message for sending", e);
         }
+    }
 
+    private void sendMessageData(List<String> addresses, Message message, File spooledMessage)
+            throws MessagingException {
         boolean entireMessageSent = false;
+        boolean messageAccepted = false;
 
         try {
             String mailFrom = constructSmtpMailFromCommand(message.getFrom(), is8bitEncodingAllowed);
@@ -443,17 +541,30 @@ public class SmtpTransport extends Transport {
             EOLConvertingOutputStream msgOut = new EOLConvertingOutputStream(
                     new LineWrapOutputStream(new SmtpDataStuffing(outputStream), 1000));
 
-            message.writeTo(msgOut);
+            if (spooledMessage != null) {
+                InputStream in = new FileInputStream(spooledMessage);
+                try {
+                    IOUtils.copy(in, msgOut);
+                } finally {
+                    in.close();
+                }
+            } else {
+                message.writeTo(msgOut);
+            }
             msgOut.endWithCrLfAndFlush();
 
             entireMessageSent = true; // After the "\r\n." is attempted, we may have sent the message
             executeCommand(".");
+            messageAccepted = true;
         } catch (NegativeSmtpReplyException e) {
             throw e;
         } catch (Exception e) {
             throw new MessagingException("Unable to send message", entireMessageSent, e);
         } finally {
-            close();
+            // The state of the session is unknown after an error
+            if (!messageAccepted) {
+                close();
+            }
         }
 
     }
@@ -475,6 +586,10 @@ public class SmtpTransport extends Transport {
         } catch (Exception e) {
             // don't care
         }
+        closeConnection();
+    }
+
+    private void closeConnection() {
         IOUtils.closeQuietly(inputStream);
         IOUtils.closeQuietly(outputStream);
         IOUtils.closeQuietly(socket);
@@ -76,6 +76,11 @@ public class MockSmtpServer {
         interactions.add(new CloseConnection());
     }
 
+    public void acceptConnection() {
+        checkServerNotRunning();
+        interactions.add(new AcceptConnection());
+    }
+
     public void start() throws IOException {
         checkServerNotRunning();
 
@@ -218,6 +223,9 @@ public class MockSmtpServer {
     private static class CloseConnection implements SmtpInteraction {
     }
 
+    private static class AcceptConnection implements SmtpInteraction {
+    }
+
     private static class UnexpectedCommandException extends Exception {
         public UnexpectedCommandException(String expectedCommand, String receivedCommand) {
             super("Expected <" + expectedCommand + ">, but received <" + receivedCommand + ">");
@@ -261,14 +269,6 @@ public class MockSmtpServer {
             Socket socket = null;
             try {
                 socket = acceptConnectionAndCloseServerSocket();
-                clientSocket = socket;
-
-                String remoteHostAddress = socket.getInetAddress().getHostAddress();
-                int remotePort = socket.getPort();
-                logger.log("Accepted connection from %s:%d", remoteHostAddress, remotePort);
-
-                input = Okio.buffer(Okio.source(socket));
-                output = Okio.buffer(Okio.sink(socket));
 
                 while (!shouldStop && !interactions.isEmpty()) {
                     handleInteractions(socket);
@@ -292,7 +292,8 @@ public class MockSmtpServer {
                 throw new RuntimeException(e);
             }
 
-            IOUtils.closeQuietly(socket);
+            IOUtils.closeQuietly(clientSocket);
+            IOUtils.closeQuietly(serverSocket);
 
             logger.log("Exiting");
         }
@@ -308,6 +309,8 @@ public class MockSmtpServer {
                 writeCannedResponse((CannedResponse) interaction);
             } else if (interaction instanceof CloseConnection) {
                 clientSocket.close();
+            } else if (interaction instanceof AcceptConnection) {
+                acceptConnectionAndCloseServerSocket();
             }
         }
 
@@ -380,11 +383,32 @@ public class MockSmtpServer {
 
         private Socket acceptConnectionAndCloseServerSocket() throws IOException {
             Socket socket = serverSocket.accept();
-            serverSocket.close();
+            if (!isAcceptConnectionPending()) {
+                serverSocket.close();
+            }
+
+            clientSocket = socket;
+
+            String remoteHostAddress = socket.getInetAddress().getHostAddress();
+            int remotePort = socket.getPort();
+            logger.log("Accepted connection from %s:%d", remoteHostAddress, remotePort);
+
+            input = Okio.buffer(Okio.source(socket));
+            output = Okio.buffer(Okio.sink(socket));
 
             return socket;
         }
 
+        private boolean isAcceptConnectionPending() {
+            for (SmtpInteraction interaction : interactions) {
+                if (interaction instanceof AcceptConnection) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
         public void shouldStop() {
             shouldStop = true;
 
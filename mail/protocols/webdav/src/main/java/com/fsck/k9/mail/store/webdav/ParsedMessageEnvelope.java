@@ -29,6 +29,7 @@ class ParsedMessageEnvelope {
 
     private boolean mReadStatus = false;
     private String mUid = "";
+    private String mUrl = "";
     private Map<String, String> mMessageHeaders = new HashMap<>();
     private List<String> mHeaders = new ArrayList<>();
 
@@ -66,5 +67,15 @@ class ParsedMessageEnvelope {
     public String getUid() {
         return this.mUid;
     }
+
+    public void setUrl(String url) {
+        if (url != null) {
+            this.mUrl = url;
+        }
+    }
+
+    public String getUrl() {
+        return this.mUrl;
+    }
 }
 
@@ -0,0 +1,130 @@
+package com.fsck.k9.mail.store.webdav;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+import timber.log.Timber;
+
+
+/**
+ * Parses the multistatus response of a WebDAV SEARCH or PROPFIND request into message envelopes.
+ *
+ * <p>
+ * Unlike {@link WebDavHandler} the response is read with a pull parser and every {@code response} element is turned
+ * into a {@link ParsedMessageEnvelope} as soon as it has been read, without building an intermediate {@link DataSet}.
+ * </p>
+ */
+class WebDavEnvelopeParser {
+    private static final String RESPONSE_TAG = "response";
+
+
+    private WebDavEnvelopeParser() {
+    }
+
+    /**
+     * Returns a map of message UID => ParsedMessageEnvelope, in the order the server returned the messages.
+     */
+    static Map<String, ParsedMessageEnvelope> parse(InputStream inputStream)
+            throws XmlPullParserException, IOException {
+        XmlPullParserFactory factory = XmlPullParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        XmlPullParser parser = factory.newPullParser();
+        parser.setInput(inputStream, null);
+
+        Map<String, ParsedMessageEnvelope> envelopes = new LinkedHashMap<>();
+        ParsedMessageEnvelope envelope = null;
+        String leafTag = null;
+        StringBuilder text = new StringBuilder();
+
+        int eventType = parser.getEventType();
+        while (eventType != XmlPullParser.END_DOCUMENT) {
+            if (eventType == XmlPullParser.START_TAG) {
+                String tagName = parser.getName();
+                if (RESPONSE_TAG.equals(tagName)) {
+                    envelope = new ParsedMessageEnvelope();
+                }
+
+                leafTag = tagName;
+                text.setLength(0);
+            } else if (eventType == XmlPullParser.TEXT) {
+                if (leafTag != null) {
+                    text.append(parser.getText());
+                }
+            } else if (eventType == XmlPullParser.END_TAG) {
+                String tagName = parser.getName();
+                if (RESPONSE_TAG.equals(tagName)) {
+                    if (envelope != null) {
+                        envelopes.put(envelope.getUid(), envelope);
+                    }
+                    envelope = null;
+                } else if (envelope != null && tagName.equals(leafTag)) {
+                    addValue(envelope, tagName, text.toString());
+                }
+
+                leafTag = null;
+            }
+
+            eventType = parser.next();
+        }
+
+        return envelopes;
+    }
+
+    private static void addValue(ParsedMessageEnvelope envelope, String tagName, String value) {
+        switch (tagName) {
+            case "uid": {
+                envelope.setUid(value);
+                break;
+            }
+            case "href": {
+                envelope.setUrl(value);
+                break;
+            }
+            case "read": {
+                // A missing value means unread
+                envelope.setReadStatus(!value.isEmpty() && !value.equals("0"));
+                break;
+            }
+            case "date": {
+                envelope.addHeader(tagName, convertExchangeDate(value));
+                break;
+            }
+            default: {
+                envelope.addHeader(tagName, value);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Exchange doesn't give us rfc822 dates like it claims. The date is in the format:
+     * yyyy-MM-dd'T'HH:mm:ss.SSS<Single digit representation of timezone, so far, all instances are Z>
+     */
+    private static String convertExchangeDate(String date) {
+        if (date.isEmpty()) {
+            return "";
+        }
+
+        DateFormat dfInput = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS", Locale.US);
+        DateFormat dfOutput = new SimpleDateFormat("EEE, d MMM yy HH:mm:ss Z", Locale.US);
+
+        try {
+            Date parsedDate = dfInput.parse(date.substring(0, date.length() - 1));
+            return dfOutput.format(parsedDate);
+        } catch (ParseException pe) {
+            Timber.e(pe, "Error parsing date: %s", date);
+            return "";
+        }
+    }
+}
@@ -14,6 +14,8 @@ import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.entity.StringEntity;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
 import timber.log.Timber;
 
 import java.io.BufferedOutputStream;
@@ -32,6 +34,10 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import static com.fsck.k9.mail.K9MailLib.DEBUG_PROTOCOL_WEBDAV;
 import static com.fsck.k9.mail.helper.UrlEncodingHelper.encodeUtf8;
@@ -40,6 +46,11 @@ import static com.fsck.k9.mail.helper.UrlEncodingHelper.encodeUtf8;
  * A WebDav Folder
  */
 public class WebDavFolder extends Folder<WebDavMessage> {
+    /**
+     * Number of messages whose envelopes or flags are requested with a single SEARCH request.
+     */
+    private static final int FETCH_BATCH_SIZE = 50;
+
     private String mName;
     private String mFolderUrl;
     private boolean mIsOpen = false;
@@ -306,7 +317,7 @@ public class WebDavFolder extends Folder<WebDavMessage> {
          * Fetch message flag info for the array
          */
         if (fp.contains(FetchProfile.Item.FLAGS)) {
-            fetchFlags(messages, listener);
+            fetchFlags(messages);
         }
 
         if (fp.contains(FetchProfile.Item.BODY_SANE)) {
@@ -324,241 +335,267 @@ public class WebDavFolder extends Folder<WebDavMessage> {
 
     /**
      * Fetches the full messages or up to {@param lines} lines and passes them to the message parser.
+     *
+     * <p>
+     * Messages are downloaded concurrently on the executor shared by all folders of the store. The listener is still
+     * notified on the calling thread and in the order of {@code messages}.
+     * </p>
      */
-    private void fetchMessages(List<WebDavMessage> messages, MessageRetrievalListener<WebDavMessage> listener, int lines)
-            throws MessagingException {
-        WebDavHttpClient httpclient;
-        httpclient = store.getHttpClient();
-
-        /**
-         * We can't hand off to processRequest() since we need the stream to parse.
-         */
-        for (int i = 0, count = messages.size(); i < count; i++) {
-            WebDavMessage wdMessage = messages.get(i);
-            int statusCode = 0;
+    private void fetchMessages(List<WebDavMessage> messages, MessageRetrievalListener<WebDavMessage> listener,
+            final int lines) throws MessagingException {
+        final WebDavHttpClient httpclient = store.getHttpClient();
 
-            if (listener != null) {
-                listener.messageStarted(wdMessage.getUid(), i, count);
-            }
+        resolveMissingMessageUrls(messages);
 
-            /**
-             * If fetch is called outside of the initial list (ie, a locally stored message), it may not have a URL
-             * associated. Verify and fix that
-             */
-            if (wdMessage.getUrl().equals("")) {
-                wdMessage.setUrl(getMessageUrls(new String[]{wdMessage.getUid()}).get(wdMessage.getUid()));
-                Timber.i("Fetching messages with UID = '%s', URL = '%s'", wdMessage.getUid(), wdMessage.getUrl());
-                if (wdMessage.getUrl().equals("")) {
-                    throw new MessagingException("Unable to get URL for message");
-                }
+        int count = messages.size();
+        ExecutorService executor = store.getDownloadExecutor();
+        List<Future<Void>> downloads = new ArrayList<>(count);
+        try {
+            for (final WebDavMessage wdMessage : messages) {
+                downloads.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws MessagingException {
+                        fetchMessage(httpclient, wdMessage, lines);
+                        return null;
+                    }
+                }));
             }
 
-            try {
-                Timber.i("Fetching message with UID = '%s', URL = '%s'", wdMessage.getUid(), wdMessage.getUrl());
-                HttpGet httpget = new HttpGet(new URI(wdMessage.getUrl()));
-                HttpResponse response;
-                HttpEntity entity;
-
-                httpget.setHeader("translate", "f");
-                if (store.getAuthentication() == WebDavConstants.AUTH_TYPE_BASIC) {
-                    httpget.setHeader("Authorization", store.getAuthString());
+            for (int i = 0; i < count; i++) {
+                WebDavMessage wdMessage = messages.get(i);
+                if (listener != null) {
+                    listener.messageStarted(wdMessage.getUid(), i, count);
                 }
-                response = httpclient.executeOverride(httpget, store.getHttpContext());
 
-                statusCode = response.getStatusLine().getStatusCode();
+                awaitDownload(downloads.get(i));
 
-                entity = response.getEntity();
-
-                if (statusCode < 200 ||
-                        statusCode > 300) {
-                    throw new IOException("Error during with code " + statusCode + " during fetch: "
-                            + response.getStatusLine().toString());
+                if (listener != null) {
+                    listener.messageFinished(wdMessage, i, count);
                 }
-
-                if (entity != null) {
-                    InputStream istream = null;
-                    StringBuilder buffer = new StringBuilder();
-                    String tempText;
-                    String resultText;
-                    BufferedReader reader = null;
-                    int currentLines = 0;
-
-                    try {
-                        istream = WebDavHttpClient.getUngzippedContent(entity);
-
-                        if (lines != -1) {
-                            //Convert the ungzipped input stream into a StringBuilder
-                            //containing the given line count
-                            reader = new BufferedReader(new InputStreamReader(istream), 8192);
-
-                            while ((tempText = reader.readLine()) != null &&
-                                    (currentLines < lines)) {
-                                buffer.append(tempText).append("\r\n");
-                                currentLines++;
-                            }
-
-                            IOUtils.closeQuietly(istream);
-
-                            resultText = buffer.toString();
-                            istream = new ByteArrayInputStream(resultText.getBytes("UTF-8"));
-                        }
-                        //Parse either the entire message stream, or a stream of the given lines
-                        wdMessage.parse(istream);
-
-                    } catch (IOException ioe) {
-                        Timber.e(ioe, "IOException during message parsing");
-                        throw new MessagingException("I/O Error", ioe);
-                    } finally {
-                        IOUtils.closeQuietly(reader);
-                        IOUtils.closeQuietly(istream);
-                    }
-                } else {
-                    Timber.v("Empty response");
-                }
-
-            } catch (IllegalArgumentException iae) {
-                Timber.e(iae, "IllegalArgumentException caught");
-                throw new MessagingException("IllegalArgumentException caught", iae);
-            } catch (URISyntaxException use) {
-                Timber.e(use, "URISyntaxException caught");
-                throw new MessagingException("URISyntaxException caught", use);
-            } catch (IOException ioe) {
-                Timber.e(ioe, "Non-success response code loading message, response code was %d, URL: %s",
-                        statusCode, wdMessage.getUrl());
-                throw new MessagingException("Failure code " + statusCode, ioe);
             }
-
-            if (listener != null) {
-                listener.messageFinished(wdMessage, i, count);
+        } finally {
+            // Don't leave downloads running after an error
+            for (Future<Void> download : downloads) {
+                download.cancel(true);
             }
         }
     }
 
     /**
-     * Fetches and sets the message flags for the supplied messages. The idea is to have this be recursive so that
-     * we do a series of medium calls instead of one large massive call or a large number of smaller calls.
+     * If fetch is called outside of the initial list (ie, a locally stored message), it may not have a URL
+     * associated. Look up the URLs of all such messages with a single request.
      */
-    private void fetchFlags(List<WebDavMessage> startMessages, MessageRetrievalListener<WebDavMessage> listener) throws MessagingException {
-        HashMap<String, String> headers = new HashMap<>();
-        String messageBody;
-        List<Message> messages = new ArrayList<>(20);
-        String[] uids;
+    private void resolveMissingMessageUrls(List<WebDavMessage> messages) throws MessagingException {
+        List<String> uids = new ArrayList<>();
+        for (WebDavMessage message : messages) {
+            if (message.getUrl().equals("")) {
+                uids.add(message.getUid());
+            }
+        }
 
-        if (startMessages == null ||
-                startMessages.isEmpty()) {
+        if (uids.isEmpty()) {
             return;
         }
 
-        if (startMessages.size() > 20) {
-            List<WebDavMessage> newMessages = new ArrayList<>(startMessages.size() - 20);
-            for (int i = 0, count = startMessages.size(); i < count; i++) {
-                if (i < 20) {
-                    messages.add(startMessages.get(i));
-                } else {
-                    newMessages.add(startMessages.get(i));
+        Map<String, String> uidToUrl = getMessageUrls(uids.toArray(WebDavConstants.EMPTY_STRING_ARRAY));
+        for (WebDavMessage message : messages) {
+            if (message.getUrl().equals("")) {
+                String url = uidToUrl.get(message.getUid());
+                if (url == null || url.equals("")) {
+                    throw new MessagingException("Unable to get URL for message");
                 }
+
+                message.setUrl(url);
+                Timber.i("Fetching messages with UID = '%s', URL = '%s'", message.getUid(), message.getUrl());
             }
+        }
+    }
 
-            fetchFlags(newMessages, listener);
-        } else {
-            messages.addAll(startMessages);
+    private static void awaitDownload(Future<Void> download) throws MessagingException {
+        try {
+            download.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof MessagingException) {
+                throw (MessagingException) cause;
+            }
+            throw new MessagingException("Error while fetching message", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while fetching message", e);
         }
+    }
 
-        uids = new String[messages.size()];
+    /**
+     * Downloads a single message. This is called from the download threads, so it must not touch shared state other
+     * than the (thread-safe) HTTP client.
+     */
+    private void fetchMessage(WebDavHttpClient httpclient, WebDavMessage wdMessage, int lines)
+            throws MessagingException {
+        int statusCode = 0;
 
-        for (int i = 0, count = messages.size(); i < count; i++) {
-            uids[i] = messages.get(i).getUid();
-        }
+        /**
+         * We can't hand off to processRequest() since we need the stream to parse.
+         */
+        try {
+            Timber.i("Fetching message with UID = '%s', URL = '%s'", wdMessage.getUid(), wdMessage.getUrl());
+            HttpGet httpget = new HttpGet(new URI(wdMessage.getUrl()));
+            HttpResponse response;
+            HttpEntity entity;
 
-        messageBody = store.getMessageFlagsXml(uids);
-        headers.put("Brief", "t");
-        DataSet dataset = store.processRequest(this.mFolderUrl, "SEARCH", messageBody, headers);
+            httpget.setHeader("translate", "f");
+            if (store.getAuthentication() == WebDavConstants.AUTH_TYPE_BASIC) {
+                httpget.setHeader("Authorization", store.getAuthString());
+            }
 
-        if (dataset == null) {
-            throw new MessagingException("Data Set from request was null");
-        }
+            // The client stores per-request state in the context, so concurrent requests can't share one. The cookies
+            // used for form-based authentication are still looked up in the store's context.
+            HttpContext requestContext = new BasicHttpContext(store.getHttpContext());
+            response = httpclient.executeOverride(httpget, requestContext);
 
-        Map<String, Boolean> uidToReadStatus = dataset.getUidToRead();
+            statusCode = response.getStatusLine().getStatusCode();
 
-        for (int i = 0, count = messages.size(); i < count; i++) {
-            if (!(messages.get(i) instanceof WebDavMessage)) {
-                throw new MessagingException("WebDavStore fetch called with non-WebDavMessage");
+            entity = response.getEntity();
+
+            if (statusCode < 200 ||
+                    statusCode > 300) {
+                WebDavHttpClient.releaseResponse(response);
+                throw new IOException("Error during with code " + statusCode + " during fetch: "
+                        + response.getStatusLine().toString());
             }
-            WebDavMessage wdMessage = (WebDavMessage) messages.get(i);
 
-            try {
-                wdMessage.setFlagInternal(Flag.SEEN, uidToReadStatus.get(wdMessage.getUid()));
-            } catch (NullPointerException e) {
-                Timber.v(e, "Under some weird circumstances, " +
-                        "setting the read status when syncing from webdav threw an NPE. Skipping.");
+            if (entity != null) {
+                InputStream istream = null;
+                StringBuilder buffer = new StringBuilder();
+                String tempText;
+                String resultText;
+                BufferedReader reader = null;
+                int currentLines = 0;
+
+                try {
+                    istream = WebDavHttpClient.getUngzippedContent(entity);
+
+                    if (lines != -1) {
+                        //Convert the ungzipped input stream into a StringBuilder
+                        //containing the given line count
+                        reader = new BufferedReader(new InputStreamReader(istream), 8192);
+
+                        while ((tempText = reader.readLine()) != null &&
+                                (currentLines < lines)) {
+                            buffer.append(tempText).append("\r\n");
+                            currentLines++;
+                        }
+
+                        IOUtils.closeQuietly(istream);
+
+                        resultText = buffer.toString();
+                        istream = new ByteArrayInputStream(resultText.getBytes("UTF-8"));
+                    }
+                    //Parse either the entire message stream, or a stream of the given lines
+                    wdMessage.parse(istream);
+
+                } catch (IOException ioe) {
+                    Timber.e(ioe, "IOException during message parsing");
+                    throw new MessagingException("I/O Error", ioe);
+                } finally {
+                    IOUtils.closeQuietly(reader);
+                    IOUtils.closeQuietly(istream);
+                }
+            } else {
+                Timber.v("Empty response");
             }
 
+        } catch (IllegalArgumentException iae) {
+            Timber.e(iae, "IllegalArgumentException caught");
+            throw new MessagingException("IllegalArgumentException caught", iae);
+        } catch (URISyntaxException use) {
+            Timber.e(use, "URISyntaxException caught");
+            throw new MessagingException("URISyntaxException caught", use);
+        } catch (IOException ioe) {
+            Timber.e(ioe, "Non-success response code loading message, response code was %d, URL: %s",
+                    statusCode, wdMessage.getUrl());
+            throw new MessagingException("Failure code " + statusCode, ioe);
         }
     }
 
     /**
-     * Fetches and parses the message envelopes for the supplied messages. The idea is to have this be recursive so
-     * that we do a series of medium calls instead of one large massive call or a large number of smaller calls.
-     * Call it a happy balance
+     * Fetches and sets the message flags for the supplied messages, using one SEARCH request per
+     * {@link #FETCH_BATCH_SIZE} messages.
      */
-    private void fetchEnvelope(List<WebDavMessage> startMessages, MessageRetrievalListener<WebDavMessage> listener)
-            throws MessagingException {
-        Map<String, String> headers = new HashMap<>();
-        String messageBody;
-        String[] uids;
-        List<WebDavMessage> messages = new ArrayList<>(10);
+    private void fetchFlags(List<WebDavMessage> messages) throws MessagingException {
+        for (int start = 0, count = messages.size(); start < count; start += FETCH_BATCH_SIZE) {
+            List<WebDavMessage> batch = messages.subList(start, Math.min(start + FETCH_BATCH_SIZE, count));
 
-        if (startMessages == null ||
-                startMessages.isEmpty()) {
-            return;
-        }
+            String messageBody = store.getMessageFlagsXml(getUids(batch));
+            Map<String, ParsedMessageEnvelope> envelopes = searchEnvelopes(messageBody, batch.size());
 
-        if (startMessages.size() > 10) {
-            List<WebDavMessage> newMessages = new ArrayList<>(startMessages.size() - 10);
-            for (int i = 0, count = startMessages.size(); i < count; i++) {
-                if (i < 10) {
-                    messages.add(i, startMessages.get(i));
+            for (WebDavMessage wdMessage : batch) {
+                ParsedMessageEnvelope envelope = envelopes.get(wdMessage.getUid());
+                if (envelope != null) {
+                    wdMessage.setFlagInternal(Flag.SEEN, envelope.getReadStatus());
                 } else {
-                    newMessages.add(i - 10, startMessages.get(i));
+                    Timber.v("No read status returned for message %s. Skipping.", wdMessage.getUid());
                 }
             }
-
-            fetchEnvelope(newMessages, listener);
-        } else {
-            messages.addAll(startMessages);
         }
+    }
 
-        uids = new String[messages.size()];
+    /**
+     * Fetches and parses the message envelopes for the supplied messages, using one SEARCH request per
+     * {@link #FETCH_BATCH_SIZE} messages.
+     */
+    private void fetchEnvelope(List<WebDavMessage> messages, MessageRetrievalListener<WebDavMessage> listener)
+            throws MessagingException {
+        int count = messages.size();
+        for (int start = 0; start < count; start += FETCH_BATCH_SIZE) {
+            int end = Math.min(start + FETCH_BATCH_SIZE, count);
+            List<WebDavMessage> batch = messages.subList(start, end);
 
-        for (int i = 0, count = messages.size(); i < count; i++) {
-            uids[i] = messages.get(i).getUid();
-        }
+            String messageBody = store.getMessageEnvelopeXml(getUids(batch));
+            Map<String, ParsedMessageEnvelope> envelopes = searchEnvelopes(messageBody, batch.size());
 
-        messageBody = store.getMessageEnvelopeXml(uids);
-        headers.put("Brief", "t");
-        DataSet dataset = store.processRequest(this.mFolderUrl, "SEARCH", messageBody, headers);
+            for (int i = start; i < end; i++) {
+                WebDavMessage message = messages.get(i);
+                if (listener != null) {
+                    listener.messageStarted(message.getUid(), i, count);
+                }
 
-        Map<String, ParsedMessageEnvelope> envelopes = dataset.getMessageEnvelopes();
+                ParsedMessageEnvelope envelope = envelopes.get(message.getUid());
+                if (envelope != null) {
+                    message.setNewHeaders(envelope);
+                    message.setFlagInternal(Flag.SEEN, envelope.getReadStatus());
 
-        int count = messages.size();
-        for (int i = messages.size() - 1; i >= 0; i--) {
-            WebDavMessage message = messages.get(i);
-            if (listener != null) {
-                listener.messageStarted(messages.get(i).getUid(), i, count);
-            }
+                    // Saves a separate URL lookup when the message body is fetched later
+                    if ("".equals(message.getUrl()) && !envelope.getUrl().equals("")) {
+                        message.setUrl(envelope.getUrl());
+                    }
+                } else {
+                    Timber.e("Asked to get metadata for a non-existent message: %s", message.getUid());
+                }
 
-            ParsedMessageEnvelope envelope = envelopes.get(message.getUid());
-            if (envelope != null) {
-                message.setNewHeaders(envelope);
-                message.setFlagInternal(Flag.SEEN, envelope.getReadStatus());
-            } else {
-                Timber.e("Asked to get metadata for a non-existent message: %s", message.getUid());
+                if (listener != null) {
+                    listener.messageFinished(message, i, count);
+                }
             }
+        }
+    }
 
-            if (listener != null) {
-                listener.messageFinished(messages.get(i), i, count);
-            }
+    private Map<String, ParsedMessageEnvelope> searchEnvelopes(String messageBody, int messageCount)
+            throws MessagingException {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Brief", "t");
+        headers.put("Range", "rows=0-" + (messageCount - 1));
+
+        return store.processEnvelopeRequest(this.mFolderUrl, "SEARCH", messageBody, headers);
+    }
+
+    private static String[] getUids(List<WebDavMessage> messages) {
+        String[] uids = new String[messages.size()];
+        for (int i = 0, count = messages.size(); i < count; i++) {
+            uids[i] = messages.get(i).getUid();
         }
+
+        return uids;
     }
 
     @Override
@@ -668,7 +705,7 @@ public class WebDavFolder extends Folder<WebDavMessage> {
 
                 Timber.i("Uploading message as %s", messageURL);
 
-                store.sendRequest(messageURL, "PUT", bodyEntity, null, true);
+                IOUtils.closeQuietly(store.sendRequest(messageURL, "PUT", bodyEntity, null, true));
 
                 WebDavMessage retMessage = new WebDavMessage(message.getUid(), this);
 
@@ -5,7 +5,16 @@ import org.apache.http.HttpEntity;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.params.ConnPerRouteBean;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.ssl.SSLSocketFactory;
 import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.params.HttpParams;
 import org.apache.http.protocol.HttpContext;
 import timber.log.Timber;
 
@@ -37,6 +46,34 @@ public class WebDavHttpClient extends DefaultHttpClient {
         }
     }
 
+    /**
+     * Maximum number of connections kept open to the server. This bounds the number of concurrent requests, e.g. when
+     * downloading message bodies in parallel.
+     */
+    static final int MAX_CONNECTIONS = 4;
+
+
+    /**
+     * Uses a pooling connection manager so the client can be shared by multiple threads.
+     *
+     * <p>
+     * Callers have to consume or close every response entity (see {@link #releaseResponse(HttpResponse)}), otherwise
+     * the connection is not returned to the pool.
+     * </p>
+     */
+    @Override
+    protected ClientConnectionManager createClientConnectionManager() {
+        SchemeRegistry registry = new SchemeRegistry();
+        registry.register(new Scheme("http", PlainSocketFactory.getSocketFactory(), 80));
+        registry.register(new Scheme("https", SSLSocketFactory.getSocketFactory(), 443));
+
+        HttpParams params = getParams();
+        ConnManagerParams.setMaxTotalConnections(params, MAX_CONNECTIONS);
+        ConnManagerParams.setMaxConnectionsPerRoute(params, new ConnPerRouteBean(MAX_CONNECTIONS));
+
+        return new ThreadSafeClientConnManager(params, registry);
+    }
+
     public static void modifyRequestToAcceptGzipResponse(HttpRequest request) {
         Timber.i("Requesting gzipped data");
         request.addHeader("Accept-Encoding", "gzip");
@@ -60,6 +97,22 @@ public class WebDavHttpClient extends DefaultHttpClient {
         return responseStream;
     }
 
+    /**
+     * Releases the connection used by a response whose entity is not going to be read.
+     */
+    public static void releaseResponse(HttpResponse response) {
+        HttpEntity entity = response.getEntity();
+        if (entity == null) {
+            return;
+        }
+
+        try {
+            entity.consumeContent();
+        } catch (IOException e) {
+            Timber.w(e, "Error releasing HTTP response");
+        }
+    }
+
     public HttpResponse executeOverride(HttpUriRequest request, HttpContext context)
             throws IOException {
         modifyRequestToAcceptGzipResponse(request);
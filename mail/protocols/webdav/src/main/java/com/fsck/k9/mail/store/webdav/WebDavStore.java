@@ -11,10 +11,15 @@ import java.net.URISyntaxException;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import com.fsck.k9.mail.CertificateValidationException;
 import com.fsck.k9.mail.ConnectionSecurity;
@@ -32,6 +37,7 @@ import javax.net.ssl.SSLException;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
+import org.apache.commons.io.IOUtils;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
@@ -48,6 +54,7 @@ import org.apache.http.protocol.HttpContext;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
+import org.xmlpull.v1.XmlPullParserException;
 import timber.log.Timber;
 
 import static com.fsck.k9.mail.K9MailLib.DEBUG_PROTOCOL_WEBDAV;
@@ -76,6 +83,7 @@ public class WebDavStore extends RemoteStore {
     private final TrustManagerFactory trustManagerFactory;
     private final WebDavHttpClient.WebDavHttpClientFactory httpClientFactory;
     private WebDavHttpClient httpClient = null;
+    private ExecutorService downloadExecutor = null;
     private HttpContext httpContext = null;
     private String authString;
     private CookieStore authCookies = null;
@@ -476,6 +484,7 @@ public class WebDavStore extends RemoteStore {
                     HttpResponse response = httpClient.executeOverride(request, httpContext);
 
                     int statusCode = response.getStatusLine().getStatusCode();
+                    WebDavHttpClient.releaseResponse(response);
                     if (statusCode >= 200 && statusCode < 300) {
                         authenticationType = WebDavConstants.AUTH_TYPE_BASIC;
                     } else if (statusCode == 401) {
@@ -524,6 +533,7 @@ public class WebDavStore extends RemoteStore {
         try {
             HttpResponse response = httpClient.executeOverride(request, httpContext);
             info.statusCode = response.getStatusLine().getStatusCode();
+            WebDavHttpClient.releaseResponse(response);
 
             if (info.statusCode == 401) {
                 // 401 is the "Unauthorized" status code, meaning the server wants
@@ -769,6 +779,25 @@ public class WebDavStore extends RemoteStore {
         return baseUrl;
     }
 
+    /**
+     * Returns the executor used by all folders of this store to download message bodies.
+     *
+     * <p>
+     * It runs at most {@link WebDavHttpClient#MAX_CONNECTIONS} downloads at a time. Idle threads are stopped after a
+     * while.
+     * </p>
+     */
+    synchronized ExecutorService getDownloadExecutor() {
+        if (downloadExecutor == null) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(WebDavHttpClient.MAX_CONNECTIONS,
+                    WebDavHttpClient.MAX_CONNECTIONS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+            executor.allowCoreThreadTimeOut(true);
+            downloadExecutor = executor;
+        }
+
+        return downloadExecutor;
+    }
+
     public WebDavHttpClient getHttpClient() throws MessagingException {
         if (httpClient == null) {
             httpClient = httpClientFactory.create();
@@ -834,13 +863,17 @@ public class WebDavStore extends RemoteStore {
 
             entity = response.getEntity();
 
+            if (statusCode < 200 || statusCode >= 300) {
+                WebDavHttpClient.releaseResponse(response);
+            }
+
             if (statusCode == 401) {
                 throw new MessagingException("Invalid username or password for Basic authentication.");
             } else if (statusCode == 440) {
                 if (tryAuth && authenticationType == WebDavConstants.AUTH_TYPE_FORM_BASED) {
                     // Our cookie expired, re-authenticate.
                     performFormBasedAuthentication(null);
-                    sendRequest(url, method, messageBody, headers, false);
+                    return sendRequest(url, method, messageBody, headers, false);
                 } else {
                     throw new MessagingException("Authentication failure in sendRequest().");
                 }
@@ -913,9 +946,10 @@ public class WebDavStore extends RemoteStore {
                 messageEntity.setContentType("text/xml");
             }
             InputStream istream = sendRequest(url, method, messageEntity, headers, true);
-            if (istream != null &&
-                    needsParsing) {
-                try {
+            // Always close the stream so the connection is returned to the pool, even if we don't parse the response.
+            try {
+                if (istream != null &&
+                        needsParsing) {
                     SAXParserFactory spf = SAXParserFactory.newInstance();
                     spf.setNamespaceAware(true); //This should be a no-op on Android, but makes the tests work
                     SAXParser sp = spf.newSAXParser();
@@ -927,15 +961,15 @@ public class WebDavStore extends RemoteStore {
                     xr.parse(new InputSource(istream));
 
                     dataset = myHandler.getDataSet();
-                } catch (SAXException se) {
-                    Timber.e(se, "SAXException in processRequest()");
-                    throw new MessagingException("SAXException in processRequest() ", se);
-                } catch (ParserConfigurationException pce) {
-                    Timber.e(pce, "ParserConfigurationException in processRequest()");
-                    throw new MessagingException("ParserConfigurationException in processRequest() ", pce);
                 }
-
-                istream.close();
+            } catch (SAXException se) {
+                Timber.e(se, "SAXException in processRequest()");
+                throw new MessagingException("SAXException in processRequest() ", se);
+            } catch (ParserConfigurationException pce) {
+                Timber.e(pce, "ParserConfigurationException in processRequest()");
+                throw new MessagingException("ParserConfigurationException in processRequest() ", pce);
+            } finally {
+                IOUtils.closeQuietly(istream);
             }
         } catch (UnsupportedEncodingException uee) {
             Timber.e(uee, "UnsupportedEncodingException: ");
@@ -948,6 +982,42 @@ public class WebDavStore extends RemoteStore {
         return dataset;
     }
 
+    /**
+     * Performs a SEARCH or PROPFIND request and parses the response directly into message envelopes, keyed by UID.
+     *
+     * @see WebDavEnvelopeParser
+     */
+    Map<String, ParsedMessageEnvelope> processEnvelopeRequest(String url, String method, String messageBody,
+            Map<String, String> headers) throws MessagingException {
+        if (K9MailLib.isDebug() && DEBUG_PROTOCOL_WEBDAV) {
+            Timber.v("processEnvelopeRequest url = '%s', method = '%s', messageBody = '%s'", url, method,
+                    messageBody);
+        }
+
+        getHttpClient();
+
+        InputStream istream = null;
+        try {
+            StringEntity messageEntity = new StringEntity(messageBody);
+            messageEntity.setContentType("text/xml");
+
+            istream = sendRequest(url, method, messageEntity, headers, true);
+            if (istream == null) {
+                return Collections.emptyMap();
+            }
+
+            return WebDavEnvelopeParser.parse(istream);
+        } catch (XmlPullParserException xppe) {
+            Timber.e(xppe, "XmlPullParserException in processEnvelopeRequest()");
+            throw new MessagingException("XmlPullParserException in processEnvelopeRequest() ", xppe);
+        } catch (IOException ioe) {
+            Timber.e(ioe, "IOException: ");
+            throw new MessagingException("IOException in processEnvelopeRequest() ", ioe);
+        } finally {
+            IOUtils.closeQuietly(istream);
+        }
+    }
+
     @Override
     public void sendMessages(List<? extends Message> messages) throws MessagingException {
         WebDavFolder tmpFolder = getFolder(mStoreConfig.getDraftsFolder());
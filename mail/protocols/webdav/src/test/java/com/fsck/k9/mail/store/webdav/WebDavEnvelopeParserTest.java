@@ -0,0 +1,110 @@
+package com.fsck.k9.mail.store.webdav;
+
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Map;
+
+import com.fsck.k9.mail.K9LibRobolectricTestRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+@RunWith(K9LibRobolectricTestRunner.class)
+public class WebDavEnvelopeParserTest {
+    @Test
+    public void parse_withEnvelopeResponse_shouldReturnEnvelopesInServerOrder() throws Exception {
+        String response = "<?xml version=\"1.0\"?>" +
+                "<a:multistatus xmlns:a=\"DAV:\" xmlns:d=\"urn:schemas:mailheader:\" " +
+                "xmlns:e=\"urn:schemas:httpmail:\">" +
+                "<a:response>" +
+                "<a:href>http://example.org/Exchange/user/Inbox/message2.EML</a:href>" +
+                "<a:propstat><a:status>HTTP/1.1 200 OK</a:status><a:prop>" +
+                "<a:uid>uid2</a:uid>" +
+                "<a:getcontentlength>1234</a:getcontentlength>" +
+                "<d:subject>Second &amp; last</d:subject>" +
+                "<d:from>alice@example.org</d:from>" +
+                "<e:read>1</e:read>" +
+                "</a:prop></a:propstat>" +
+                "</a:response>" +
+                "<a:response>" +
+                "<a:href>http://example.org/Exchange/user/Inbox/message1.EML</a:href>" +
+                "<a:propstat><a:status>HTTP/1.1 200 OK</a:status><a:prop>" +
+                "<a:uid>uid1</a:uid>" +
+                "<d:subject>First</d:subject>" +
+                "<e:read>0</e:read>" +
+                "</a:prop></a:propstat>" +
+                "</a:response>" +
+                "</a:multistatus>";
+
+        Map<String, ParsedMessageEnvelope> envelopes = parse(response);
+
+        assertEquals(asList("uid2", "uid1"), new ArrayList<>(envelopes.keySet()));
+
+        ParsedMessageEnvelope second = envelopes.get("uid2");
+        assertEquals("uid2", second.getUid());
+        assertEquals("http://example.org/Exchange/user/Inbox/message2.EML", second.getUrl());
+        assertTrue(second.getReadStatus());
+        assertEquals("Second & last", second.getMessageHeaders().get("Subject"));
+        assertEquals("alice@example.org", second.getMessageHeaders().get("From"));
+        assertEquals("1234", second.getMessageHeaders().get("Content-Length"));
+
+        ParsedMessageEnvelope first = envelopes.get("uid1");
+        assertFalse(first.getReadStatus());
+        assertEquals("First", first.getMessageHeaders().get("Subject"));
+    }
+
+    @Test
+    public void parse_shouldIgnoreUnknownProperties() throws Exception {
+        String response = "<?xml version=\"1.0\"?>" +
+                "<a:multistatus xmlns:a=\"DAV:\">" +
+                "<a:response>" +
+                "<a:propstat><a:status>HTTP/1.1 200 OK</a:status><a:prop>" +
+                "<a:uid>uid1</a:uid>" +
+                "</a:prop></a:propstat>" +
+                "</a:response>" +
+                "</a:multistatus>";
+
+        Map<String, ParsedMessageEnvelope> envelopes = parse(response);
+
+        ParsedMessageEnvelope envelope = envelopes.get("uid1");
+        assertEquals(0, envelope.getHeaderList().length);
+        assertNull(envelope.getMessageHeaders().get("status"));
+    }
+
+    @Test
+    public void parse_withEmptyReadProperty_shouldReturnUnread() throws Exception {
+        String response = "<?xml version=\"1.0\"?>" +
+                "<a:multistatus xmlns:a=\"DAV:\" xmlns:e=\"urn:schemas:httpmail:\">" +
+                "<a:response>" +
+                "<a:propstat><a:status>HTTP/1.1 200 OK</a:status><a:prop>" +
+                "<a:uid>uid1</a:uid>" +
+                "<e:read/>" +
+                "</a:prop></a:propstat>" +
+                "</a:response>" +
+                "</a:multistatus>";
+
+        Map<String, ParsedMessageEnvelope> envelopes = parse(response);
+
+        assertFalse(envelopes.get("uid1").getReadStatus());
+    }
+
+    @Test
+    public void parse_withEmptyMultistatus_shouldReturnEmptyMap() throws Exception {
+        String response = "<?xml version=\"1.0\"?><a:multistatus xmlns:a=\"DAV:\"></a:multistatus>";
+
+        Map<String, ParsedMessageEnvelope> envelopes = parse(response);
+
+        assertTrue(envelopes.isEmpty());
+    }
+
+    private Map<String, ParsedMessageEnvelope> parse(String response) throws Exception {
+        return WebDavEnvelopeParser.parse(new ByteArrayInputStream(response.getBytes("UTF-8")));
+    }
+}
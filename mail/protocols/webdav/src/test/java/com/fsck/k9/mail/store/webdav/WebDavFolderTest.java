@@ -11,8 +11,10 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
 
 import com.fsck.k9.mail.FetchProfile;
+import com.fsck.k9.mail.Flag;
 import com.fsck.k9.mail.Message;
 import com.fsck.k9.mail.MessageRetrievalListener;
 import com.fsck.k9.mail.MessagingException;
@@ -90,6 +92,7 @@ public class WebDavFolderTest {
         MockitoAnnotations.initMocks(this);
         when(mockStore.getUrl()).thenReturn(storeUrl);
         when(mockStore.getHttpClient()).thenReturn(mockHttpClient);
+        when(mockStore.getDownloadExecutor()).thenReturn(Executors.newCachedThreadPool());
         when(mockStore.getStoreConfig()).thenReturn(mockStoreConfig);
         when(mockStore.getMessageEnvelopeXml(any(String[].class))).thenReturn("mockEnvelopeXml");
         when(mockStore.getMessageFlagsXml(any(String[].class))).thenReturn("mockFlagsXml");
@@ -147,10 +150,7 @@ public class WebDavFolderTest {
     }
 
     @Test
-    public void folder_can_fetch_less_than_10_envelopes() throws MessagingException {
-        when(mockStore.processRequest(anyString(), anyString(), anyString(), anyMapOf(String.class, String.class)))
-                .thenReturn(mockDataSet);
-
+    public void folder_can_fetch_less_than_50_envelopes() throws MessagingException {
         List<WebDavMessage> messages = new ArrayList<>();
         for (int i = 0; i < 5; i++) {
             WebDavMessage mockMessage = createWebDavMessage(i);
@@ -160,30 +160,57 @@ public class WebDavFolderTest {
         FetchProfile profile = new FetchProfile();
         profile.add(FetchProfile.Item.ENVELOPE);
         folder.fetch(messages, profile, listener);
+
+        verify(mockStore).processEnvelopeRequest(eq("https://localhost/webDavStoreUrl/testFolder"), eq("SEARCH"),
+                eq("mockEnvelopeXml"), headerCaptor.capture());
+        assertEquals("rows=0-4", headerCaptor.getValue().get("Range"));
+        verify(listener, times(5)).messageStarted(anyString(), anyInt(), eq(5));
+        verify(listener, times(5)).messageFinished(any(WebDavMessage.class), anyInt(), eq(5));
     }
 
     @Test
-    public void folder_can_fetch_more_than_10_envelopes() throws MessagingException {
-        when(mockStore.processRequest(anyString(), anyString(), anyString(),
-                anyMapOf(String.class, String.class)))
-                .thenReturn(mockDataSet);
-
+    public void folder_can_fetch_more_than_50_envelopes() throws MessagingException {
         List<WebDavMessage> messages = new ArrayList<>();
-        for (int i = 0; i < 15; i++) {
+        for (int i = 0; i < 75; i++) {
             WebDavMessage mockMessage = createWebDavMessage(i);
             messages.add(mockMessage);
         }
         FetchProfile profile = new FetchProfile();
         profile.add(FetchProfile.Item.ENVELOPE);
         folder.fetch(messages, profile, listener);
+
+        verify(mockStore, times(2)).processEnvelopeRequest(anyString(), anyString(), anyString(),
+                headerCaptor.capture());
+        assertEquals("rows=0-49", headerCaptor.getAllValues().get(0).get("Range"));
+        assertEquals("rows=0-24", headerCaptor.getAllValues().get(1).get("Range"));
+        verify(listener, times(75)).messageStarted(anyString(), anyInt(), eq(75));
+        verify(listener, times(75)).messageFinished(any(WebDavMessage.class), anyInt(), eq(75));
     }
 
     @Test
-    public void folder_can_fetch_less_than_20_flags() throws MessagingException {
-        when(mockStore.processRequest(anyString(), anyString(), anyString(),
-                anyMapOf(String.class, String.class)))
-                .thenReturn(mockDataSet);
+    public void fetch_envelope_should_apply_parsed_envelope_to_message() throws MessagingException {
+        WebDavMessage message = new WebDavMessage("uid1", folder);
+        ParsedMessageEnvelope envelope = new ParsedMessageEnvelope();
+        envelope.setUid("uid1");
+        envelope.setReadStatus(true);
+        envelope.setUrl("http://example.org/Exchange/user/Inbox/message1.EML");
+        envelope.addHeader("subject", "Hello");
+        Map<String, ParsedMessageEnvelope> envelopes = new HashMap<>();
+        envelopes.put("uid1", envelope);
+        when(mockStore.processEnvelopeRequest(anyString(), anyString(), anyString(),
+                anyMapOf(String.class, String.class))).thenReturn(envelopes);
+
+        FetchProfile profile = new FetchProfile();
+        profile.add(FetchProfile.Item.ENVELOPE);
+        folder.fetch(singletonList(message), profile, listener);
 
+        assertEquals("Hello", message.getSubject());
+        assertTrue(message.isSet(Flag.SEEN));
+        assertEquals("http://example.org/Exchange/user/Inbox/message1.EML", message.getUrl());
+    }
+
+    @Test
+    public void folder_can_fetch_less_than_50_flags() throws MessagingException {
         List<WebDavMessage> messages = new ArrayList<>();
         for (int i = 0; i < 5; i++) {
             WebDavMessage mockMessage = createWebDavMessage(i);
@@ -192,16 +219,15 @@ public class WebDavFolderTest {
         FetchProfile profile = new FetchProfile();
         profile.add(FetchProfile.Item.FLAGS);
         folder.fetch(messages, profile, listener);
+
+        verify(mockStore).processEnvelopeRequest(eq("https://localhost/webDavStoreUrl/testFolder"), eq("SEARCH"),
+                eq("mockFlagsXml"), anyMapOf(String.class, String.class));
     }
 
     @Test
-    public void folder_can_fetch_more_than_20_flags() throws MessagingException {
-        when(mockStore.processRequest(anyString(), anyString(), anyString(),
-                anyMapOf(String.class, String.class)))
-                .thenReturn(mockDataSet);
-
+    public void folder_can_fetch_more_than_50_flags() throws MessagingException {
         List<WebDavMessage> messages = new ArrayList<>();
-        for (int i = 0; i < 25; i++) {
+        for (int i = 0; i < 75; i++) {
             WebDavMessage mockMessage = createWebDavMessage(i);
             messages.add(mockMessage);
         }
@@ -209,6 +235,53 @@ public class WebDavFolderTest {
         FetchProfile profile = new FetchProfile();
         profile.add(FetchProfile.Item.FLAGS);
         folder.fetch(messages, profile, listener);
+
+        verify(mockStore, times(2)).processEnvelopeRequest(eq("https://localhost/webDavStoreUrl/testFolder"),
+                eq("SEARCH"), eq("mockFlagsXml"), anyMapOf(String.class, String.class));
+    }
+
+    @Test
+    public void fetch_flags_should_set_read_status() throws MessagingException {
+        WebDavMessage message = new WebDavMessage("uid1", folder);
+        ParsedMessageEnvelope envelope = new ParsedMessageEnvelope();
+        envelope.setUid("uid1");
+        envelope.setReadStatus(true);
+        Map<String, ParsedMessageEnvelope> envelopes = new HashMap<>();
+        envelopes.put("uid1", envelope);
+        when(mockStore.processEnvelopeRequest(anyString(), anyString(), anyString(),
+                anyMapOf(String.class, String.class))).thenReturn(envelopes);
+
+        FetchProfile profile = new FetchProfile();
+        profile.add(FetchProfile.Item.FLAGS);
+        folder.fetch(singletonList(message), profile, listener);
+
+        assertTrue(message.isSet(Flag.SEEN));
+    }
+
+    @Test
+    public void fetch_body_should_look_up_missing_urls_with_single_request() throws MessagingException, IOException {
+        setupStoreForMessageFetching();
+        List<WebDavMessage> messages = new ArrayList<>();
+        Map<String, String> uidToUrl = new HashMap<>();
+        for (int i = 0; i < 3; i++) {
+            messages.add(new WebDavMessage("uid" + i, folder));
+            uidToUrl.put("uid" + i, "http://example.org/Exchange/user/Inbox/message" + i + ".EML");
+        }
+        when(mockStore.getMessageUrlsXml(any(String[].class))).thenReturn("<xml>GetUrls</xml>");
+        when(mockStore.processRequest(anyString(), anyString(), anyString(), anyMapOf(String.class, String.class)))
+                .thenReturn(mockDataSet);
+        when(mockDataSet.getUidToUrl()).thenReturn(uidToUrl);
+        when(mockHttpClient.executeOverride(any(HttpUriRequest.class), nullable(HttpContext.class)))
+                .thenReturn(mockHttpResponse);
+        when(mockHttpResponse.getStatusLine()).thenReturn(mockStatusLine);
+        when(mockStatusLine.getStatusCode()).thenReturn(200);
+
+        FetchProfile profile = new FetchProfile();
+        profile.add(FetchProfile.Item.BODY);
+        folder.fetch(messages, profile, listener);
+
+        verify(mockStore).getMessageUrlsXml(new String[]{"uid0", "uid1", "uid2"});
+        verify(mockHttpClient, times(3)).executeOverride(any(HttpUriRequest.class), nullable(HttpContext.class));
     }
 
     @Test
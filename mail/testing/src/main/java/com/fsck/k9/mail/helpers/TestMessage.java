@@ -58,6 +58,9 @@ class TestMessage extends MimeMessage {
     public void writeTo(OutputStream out) throws IOException, MessagingException {
         BufferedSink bufferedSink = Okio.buffer(Okio.sink(out));
         bufferedSink.writeUtf8("[message data]");
+        for (long i = "[message data]".length(); i < messageSize; i++) {
+            bufferedSink.writeByte(' ');
+        }
         bufferedSink.emit();
     }
 